@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsAircraftBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsComment;
+import org.ogn.commons.beacon.impl.aprs.AprsEnvelope;
+import org.ogn.commons.beacon.impl.aprs.AprsPatternConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.code.regexp.Matcher;
+import com.google.code.regexp.Pattern;
+
+/**
+ * <code>AprsAircraftBeacon.update</code> of one beacon with the aircraft comments of the corpus, from the regex
+ * groups and from the tokenized comment. The comments are matched (scanned) up-front, so only the decoding of the
+ * fields is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AprsAircraftBeaconUpdateBenchmark {
+
+	private static final Pattern AIRCRAFT_PATTERN = Pattern.compile(AprsPatternConstants.PATTERN_AIRCRAFT_BEACON);
+
+	private Matcher[] matchers;
+	private AprsComment[] comments;
+	private AprsAircraftBeacon beacon;
+
+	private int next;
+
+	@Setup
+	public void setup() {
+		final List<Matcher> matched = new ArrayList<>();
+		final List<AprsComment> scanned = new ArrayList<>();
+		for (final String line : AprsFeed.positions()) {
+			final AprsEnvelope envelope = new AprsEnvelope();
+			if (!envelope.scan(line) || !envelope.hasComment()
+					|| AprsComment.classify(line, envelope.getCommentStart()) != AprsComment.Type.AIRCRAFT)
+				continue;
+
+			// only the comments both the tokenizer and the regex can decode on their own
+			final AprsComment comment = new AprsComment();
+			final Matcher matcher = AIRCRAFT_PATTERN.matcher(envelope.getComment());
+			if (comment.scanAircraft(line, envelope.getCommentStart(), line.length()) != AprsComment.ScanResult.MATCH
+					|| !matcher.matches())
+				continue;
+
+			if (beacon == null)
+				beacon = new AprsAircraftBeacon(envelope);
+			matched.add(matcher);
+			scanned.add(comment);
+		}
+
+		if (beacon == null)
+			throw new IllegalStateException("no aircraft beacons in " + AprsFeed.RESOURCE);
+		matchers = matched.toArray(new Matcher[matched.size()]);
+		comments = scanned.toArray(new AprsComment[scanned.size()]);
+	}
+
+	private int nextComment() {
+		final int i = next;
+		next = i + 1 == comments.length ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public OgnBeacon updateFromMatcher() {
+		return beacon.update(matchers[nextComment()]);
+	}
+
+	@Benchmark
+	public OgnBeacon updateFromComment() {
+		return beacon.update(comments[nextComment()]);
+	}
+}
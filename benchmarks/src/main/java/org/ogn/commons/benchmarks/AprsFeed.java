@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The benchmark corpus: an anonymised sample of the live APRS feed, with the aircraft beacons (FLARM, OGN trackers,
+ * ADS-B, a few relayed), the receiver status and receiver position lines and the occasional server comment mixed in
+ * the proportions of the feed (roughly 80/10/10). The addresses and the receiver names are made up, the positions
+ * and the times follow plausible tracks.
+ */
+public final class AprsFeed {
+
+	public static final String RESOURCE = "/aprs-feed.txt";
+
+	private static final List<String> LINES = load();
+
+	private AprsFeed() {
+		// no instances
+	}
+
+	/**
+	 * @return all the lines of the corpus, in the order of the feed
+	 */
+	public static List<String> lines() {
+		return LINES;
+	}
+
+	/**
+	 * @return the APRS position lines (aircraft and receiver positions)
+	 */
+	public static List<String> positions() {
+		final List<String> result = new ArrayList<>();
+		for (final String line : LINES) {
+			if (line.contains(":/"))
+				result.add(line);
+		}
+		return result;
+	}
+
+	private static List<String> load() {
+		try (InputStream in = AprsFeed.class.getResourceAsStream(RESOURCE)) {
+			if (in == null)
+				throw new IllegalStateException(RESOURCE + " not found on the classpath");
+
+			final List<String> lines = new ArrayList<>();
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.ISO_8859_1));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty())
+					lines.add(line);
+			}
+			return Collections.unmodifiableList(lines);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
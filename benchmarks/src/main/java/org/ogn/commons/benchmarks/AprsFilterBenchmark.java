@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.filter.AprsFilter;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A beacon of the corpus tested against the given number of compiled filters (a mix of range, area, prefix and
+ * budlist filters, as the consumers of a feed would have), with the beacon prepared once or once per filter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AprsFilterBenchmark {
+
+	@Param({ "10", "200" })
+	private int filterCount;
+
+	private AprsFilter[] filters;
+	private OgnBeacon[] beacons;
+
+	private int next;
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(42);
+		filters = new AprsFilter[filterCount];
+		for (int i = 0; i < filterCount; i++) {
+			final double lat = 35 + random.nextDouble() * 25;
+			final double lon = -10 + random.nextDouble() * 30;
+			switch (i % 4) {
+			case 0:
+				filters[i] = AprsFilter
+						.compile(String.format(Locale.ROOT, "r/%.2f/%.2f/%d", lat, lon, 50 + random.nextInt(200)));
+				break;
+			case 1:
+				filters[i] = AprsFilter.compile(
+						String.format(Locale.ROOT, "a/%.2f/%.2f/%.2f/%.2f -p/ICA", lat + 2, lon, lat, lon + 3));
+				break;
+			case 2:
+				filters[i] = AprsFilter.compile(String.format("p/FLRDD%X/OGN/ICA4 t/s", random.nextInt(16)));
+				break;
+			default:
+				filters[i] = AprsFilter.compile(String.format("b/FLRDD%04X/ICA%06X/OGN%X*", random.nextInt(0x10000),
+						random.nextInt(0x1000000), random.nextInt(16)));
+			}
+		}
+
+		final AprsLineParser parser = AprsLineParser.get();
+		final List<OgnBeacon> parsed = new ArrayList<>();
+		for (final String line : AprsFeed.lines()) {
+			final OgnBeacon beacon = parser.parse(line);
+			if (beacon != null)
+				parsed.add(beacon);
+		}
+		beacons = parsed.toArray(new OgnBeacon[parsed.size()]);
+	}
+
+	private OgnBeacon nextBeacon() {
+		final OgnBeacon beacon = beacons[next];
+		next = next + 1 == beacons.length ? 0 : next + 1;
+		return beacon;
+	}
+
+	@Benchmark
+	public int preparedOnce() {
+		final AprsFilter.Candidate candidate = new AprsFilter.Candidate(nextBeacon());
+		int matches = 0;
+		for (final AprsFilter filter : filters) {
+			if (filter.test(candidate))
+				matches++;
+		}
+		return matches;
+	}
+
+	@Benchmark
+	public int preparedPerFilter() {
+		final OgnBeacon beacon = nextBeacon();
+		int matches = 0;
+		for (final AprsFilter filter : filters) {
+			if (filter.test(beacon))
+				matches++;
+		}
+		return matches;
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser;
+import org.ogn.commons.beacon.impl.aprs.MutableAircraftBeacon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses the lines of the corpus one per operation, in the order of the feed, so the numbers are averaged over the
+ * realistic mix of aircraft and receiver lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AprsLineParserBenchmark {
+
+	@Param({ "SCANNER", "REGEX" })
+	public AprsLineParser.Mode mode;
+
+	private AprsLineParser parser;
+	private String[] lines;
+	private byte[][] bytes;
+	private final MutableAircraftBeacon aircraft = new MutableAircraftBeacon();
+
+	private int next;
+
+	@Setup
+	public void setup() {
+		parser = AprsLineParser.get(mode);
+
+		final List<String> feed = AprsFeed.lines();
+		lines = feed.toArray(new String[feed.size()]);
+		bytes = new byte[lines.length][];
+		for (int i = 0; i < lines.length; i++)
+			bytes[i] = lines[i].getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private int nextLine() {
+		final int i = next;
+		next = i + 1 == lines.length ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public OgnBeacon parse() {
+		return parser.parse(lines[nextLine()]);
+	}
+
+	@Benchmark
+	public OgnBeacon parseBytes() {
+		final byte[] line = bytes[nextLine()];
+		return parser.parse(line, 0, line.length);
+	}
+
+	@Benchmark
+	public boolean parseIntoMutable() {
+		return parser.parseInto(lines[nextLine()], aircraft);
+	}
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar: runs the benchmarks selected on the command line (all by default, any JMH
+ * option is accepted) with the gc profiler, so the results show the allocation per operation next to the throughput
+ * and the average time.
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+		// no instances
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		final Options options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ogn.commons.utils.AprsUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Distances from a receiver to the aircraft it hears (within ~100 km), one at a time and in batches of 1024. Each
+ * operation computes all the distances of the batch, so the single-call variants are directly comparable with the
+ * batch kernels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeodesyBenchmark {
+
+	private static final int COUNT = 1024;
+	private static final double RECEIVER_LAT = 47.5;
+	private static final double RECEIVER_LON = 8.5;
+
+	private final double[] lats = new double[COUNT];
+	private final double[] lons = new double[COUNT];
+	private final double[] distances = new double[COUNT];
+
+	private AprsUtils.ReferencePoint receiver;
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(42);
+		for (int i = 0; i < COUNT; i++) {
+			lats[i] = RECEIVER_LAT + random.nextGaussian() * 0.3;
+			lons[i] = RECEIVER_LON + random.nextGaussian() * 0.4;
+		}
+		receiver = new AprsUtils.ReferencePoint(RECEIVER_LAT, RECEIVER_LON);
+	}
+
+	@Benchmark
+	public void haversine(Blackhole bh) {
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(AprsUtils.haversineDistance(RECEIVER_LAT, RECEIVER_LON, lats[i], lons[i]));
+	}
+
+	@Benchmark
+	public void equirectangular(Blackhole bh) {
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(AprsUtils.equirectangularDistance(RECEIVER_LAT, RECEIVER_LON, lats[i], lons[i]));
+	}
+
+	@Benchmark
+	public void referencePoint(Blackhole bh) {
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(receiver.distance(lats[i], lons[i]));
+	}
+
+	@Benchmark
+	public void referencePointFast(Blackhole bh) {
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(receiver.fastDistance(lats[i], lons[i]));
+	}
+
+	@Benchmark
+	public double[] batch() {
+		receiver.distances(lats, lons, distances, COUNT);
+		return distances;
+	}
+
+	@Benchmark
+	public double[] batchFast() {
+		receiver.fastDistances(lats, lons, distances, COUNT);
+		return distances;
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.impl.OgnBeaconImpl;
+import org.ogn.commons.beacon.impl.aprs.AprsEnvelope;
+import org.ogn.commons.beacon.impl.aprs.AprsPatternConstants;
+import org.ogn.commons.utils.AprsUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.code.regexp.Matcher;
+import com.google.code.regexp.Pattern;
+
+/**
+ * Decoding of the position and time fields of the APRS position lines of the corpus into an
+ * <code>OgnBeaconImpl</code>, from the regex groups and from the scanned envelope. The lines are matched (scanned)
+ * up-front, so only the decoding is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OgnBeaconDecodingBenchmark {
+
+	private static final Pattern POSITION_PATTERN = Pattern.compile(AprsPatternConstants.PATTERN_APRS_POSITION,
+			Pattern.MULTILINE);
+
+	private Matcher[] matchers;
+	private AprsEnvelope[] envelopes;
+	private String[] times;
+
+	private int next;
+
+	@Setup
+	public void setup() {
+		final List<String> positions = AprsFeed.positions();
+		matchers = new Matcher[positions.size()];
+		envelopes = new AprsEnvelope[positions.size()];
+		times = new String[positions.size()];
+		for (int i = 0; i < positions.size(); i++) {
+			final String line = positions.get(i);
+
+			matchers[i] = POSITION_PATTERN.matcher(line);
+			envelopes[i] = new AprsEnvelope();
+			if (!matchers[i].matches() || !envelopes[i].scan(line))
+				throw new IllegalStateException("not an APRS position: " + line);
+			times[i] = envelopes[i].getTime();
+		}
+	}
+
+	private int nextLine() {
+		final int i = next;
+		next = i + 1 == envelopes.length ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public OgnBeacon fromMatcher() {
+		return new OgnBeaconImpl(matchers[nextLine()]);
+	}
+
+	@Benchmark
+	public OgnBeacon fromEnvelope() {
+		return new OgnBeaconImpl(envelopes[nextLine()]);
+	}
+
+	@Benchmark
+	public void envelopeCoordinates(Blackhole bh) {
+		final AprsEnvelope envelope = envelopes[nextLine()];
+		bh.consume(envelope.decodeLatMicroDegrees());
+		bh.consume(envelope.decodeLonMicroDegrees());
+	}
+
+	@Benchmark
+	public void envelopeDegrees(Blackhole bh) {
+		final AprsEnvelope envelope = envelopes[nextLine()];
+		bh.consume(envelope.decodeLat());
+		bh.consume(envelope.decodeLon());
+	}
+
+	@Benchmark
+	public long envelopeTimestamp() {
+		return envelopes[nextLine()].getTimestamp();
+	}
+
+	@Benchmark
+	public long stringTimestamp() {
+		return AprsUtils.toUtcTimestamp(times[nextLine()]);
+	}
+}
@@ -3,6 +3,10 @@
  */
 package org.ogn.commons.beacon;
 
+import org.ogn.commons.utils.AprsUtils;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public interface AircraftBeacon extends OgnBeacon {
 
 	/**
@@ -20,6 +24,14 @@ public interface AircraftBeacon extends OgnBeacon {
 	 */
 	String getAddress();
 
+	/**
+	 * @return the 24-bit value of the address, -1 if the address is not 6 hex digits
+	 */
+	@JsonIgnore
+	default int getAddressInt() {
+		return AprsUtils.parseAddress(getAddress());
+	}
+
 	/**
 	 * 
 	 * Original (FLARM) address. If one sets ICAO address this one will still point to the original FLARM device id
@@ -79,6 +91,32 @@ public interface AircraftBeacon extends OgnBeacon {
 	 */
 	String[] getHeardAircraftIds();
 
+	/**
+	 * number of other aircraft received by this aircraft
+	 */
+	@JsonIgnore
+	default int getHeardAircraftIdCount() {
+		return getHeardAircraftIds().length;
+	}
+
+	/**
+	 * @return the index-th id (16 bit) of the other aircraft received by this aircraft, the ids are ascending
+	 */
+	default int getHeardAircraftId(int index) {
+		return Integer.parseInt(getHeardAircraftIds()[index], 16);
+	}
+
+	/**
+	 * @return true if the aircraft with the given id (16 bit) was received by this aircraft
+	 */
+	default boolean containsHeardAircraftId(int id) {
+		for (int i = 0; i < getHeardAircraftIdCount(); i++) {
+			if (getHeardAircraftId(i) == id)
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * version of the transmitter's firmware
 	 */
@@ -4,6 +4,10 @@
 
 package org.ogn.commons.beacon;
 
+import org.ogn.commons.utils.AprsUtils;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * basic, common interface of all OGN beacons
  */
@@ -31,6 +35,22 @@ public interface OgnBeacon {
 	 */
 	double getLon();
 
+	/**
+	 * @return beacon's latitude in micro-degrees (the exact value decoded from the packet)
+	 */
+	@JsonIgnore
+	default int getLatMicroDegrees() {
+		return AprsUtils.degToMicroDegrees(getLat());
+	}
+
+	/**
+	 * @return beacon's longitude in micro-degrees (the exact value decoded from the packet)
+	 */
+	@JsonIgnore
+	default int getLonMicroDegrees() {
+		return AprsUtils.degToMicroDegrees(getLon());
+	}
+
 	/**
 	 * @return beacon's GPS altitude (m)
 	 */
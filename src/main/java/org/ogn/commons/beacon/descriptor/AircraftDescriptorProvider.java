@@ -7,6 +7,7 @@ package org.ogn.commons.beacon.descriptor;
 import java.util.Optional;
 
 import org.ogn.commons.beacon.AircraftDescriptor;
+import org.ogn.commons.utils.AprsUtils;
 
 /**
  * The descriptor provider service provides aircraft static descriptors based on the information provided in the beacon
@@ -22,4 +23,13 @@ public interface AircraftDescriptorProvider {
 	 * @return static aircraft's descriptor or Optional.empty if unavailable
 	 */
 	Optional<AircraftDescriptor> findDescriptor(String address);
+
+	/**
+	 * @param address
+	 *            24-bit hardware address (FLARM.ICAO,OGN..), e.g. <code>AircraftBeacon.getAddressInt()</code>
+	 * @return static aircraft's descriptor or Optional.empty if unavailable
+	 */
+	default Optional<AircraftDescriptor> findDescriptor(int address) {
+		return address < 0 ? Optional.empty() : findDescriptor(AprsUtils.formatAddress(address));
+	}
 }
\ No newline at end of file
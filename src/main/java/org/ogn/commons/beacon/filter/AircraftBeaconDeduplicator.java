@@ -0,0 +1,354 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.filter;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.ogn.commons.beacon.AircraftBeacon;
+
+/**
+ * Passes only the first copy of each aircraft transmission downstream. One transmission is usually heard by many
+ * receivers and every reception arrives as its own line; the copies are recognized by the (address, timestamp, lat,
+ * lon, alt) of the beacon, which the receivers do not change.
+ * <p>
+ * The transmissions seen are remembered for a limited time (the expiry, counted from the arrival of the first copy)
+ * in a bounded table: when it is full the oldest transmissions are forgotten first. The table is split into
+ * independently locked stripes, so the beacons of different aircraft can be filtered by many threads at once. The
+ * deduplicator is a <code>Consumer</code> and can be put between the parser and the consumers, e.g.
+ *
+ * <pre>
+ * new AprsStreamParser(new AircraftBeaconDeduplicator(forwarder), receiverConsumer)
+ * </pre>
+ * <p>
+ * Optionally the receptions (the receiving stations and their signal strengths) are recorded: the downstream consumer
+ * gets them together with the first copy, and they keep being added to as long as the transmission is remembered.
+ */
+public class AircraftBeaconDeduplicator implements Consumer<AircraftBeacon> {
+
+	public static final int DEFAULT_CAPACITY = 64 * 1024;
+	public static final long DEFAULT_EXPIRY = TimeUnit.SECONDS.toMillis(10);
+
+	private static final int STRIPES = 16;
+
+	/**
+	 * the receptions of one transmission: the first copy and the receivers which heard it, in the order of arrival.
+	 * Safe to read while further receptions are being added.
+	 */
+	public static final class Receptions {
+
+		private final AircraftBeacon beacon;
+		private String[] receivers = new String[4];
+		private float[] signalStrengths = new float[4];
+		private int count;
+
+		Receptions(AircraftBeacon beacon) {
+			this.beacon = beacon;
+			add(beacon);
+		}
+
+		synchronized void add(AircraftBeacon copy) {
+			if (count == receivers.length) {
+				receivers = Arrays.copyOf(receivers, count * 2);
+				signalStrengths = Arrays.copyOf(signalStrengths, count * 2);
+			}
+			receivers[count] = copy.getReceiverName();
+			signalStrengths[count] = copy.getSignalStrength();
+			count++;
+		}
+
+		/**
+		 * @return the first copy of the transmission
+		 */
+		public AircraftBeacon getBeacon() {
+			return beacon;
+		}
+
+		/**
+		 * @return the number of receptions so far
+		 */
+		public synchronized int size() {
+			return count;
+		}
+
+		public synchronized String getReceiverName(int index) {
+			if (index >= count)
+				throw new IndexOutOfBoundsException("index: " + index + ", size: " + count);
+			return receivers[index];
+		}
+
+		/**
+		 * @return signal strength (dB) of the given reception
+		 */
+		public synchronized float getSignalStrength(int index) {
+			if (index >= count)
+				throw new IndexOutOfBoundsException("index: " + index + ", size: " + count);
+			return signalStrengths[index];
+		}
+
+		/**
+		 * @return the names of the receivers so far
+		 */
+		public synchronized String[] getReceiverNames() {
+			return Arrays.copyOf(receivers, count);
+		}
+
+		/**
+		 * @return the signal strengths (dB) of the receptions so far
+		 */
+		public synchronized float[] getSignalStrengths() {
+			return Arrays.copyOf(signalStrengths, count);
+		}
+
+		@Override
+		public synchronized String toString() {
+			final StringBuilder str = new StringBuilder(beacon.getAddress()).append(" [");
+			for (int i = 0; i < count; i++) {
+				if (i > 0)
+					str.append(", ");
+				str.append(receivers[i]).append(' ').append(signalStrengths[i]).append("dB");
+			}
+			return str.append(']').toString();
+		}
+	}
+
+	/**
+	 * identity of a transmission
+	 */
+	private static final class Key {
+		final int address;
+		// only needed for the (rare) addresses which are not 6 hex digits
+		final String otherAddress;
+		final long timestamp;
+		final int lat;
+		final int lon;
+		final int alt;
+		final int hash;
+
+		Key(AircraftBeacon beacon) {
+			final int addressInt = beacon.getAddressInt();
+			this.address = addressInt;
+			this.otherAddress = addressInt < 0 ? beacon.getAddress() : null;
+			this.timestamp = beacon.getTimestamp();
+			this.lat = beacon.getLatMicroDegrees();
+			this.lon = beacon.getLonMicroDegrees();
+			this.alt = Float.floatToIntBits(beacon.getAlt());
+
+			int h = otherAddress != null ? otherAddress.hashCode() : addressInt;
+			h = 31 * h + Long.hashCode(timestamp);
+			h = 31 * h + lat;
+			h = 31 * h + lon;
+			h = 31 * h + alt;
+			this.hash = h ^ (h >>> 16);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			final Key other = (Key) obj;
+			return address == other.address && timestamp == other.timestamp && lat == other.lat && lon == other.lon
+					&& alt == other.alt
+					&& (otherAddress == null ? other.otherAddress == null : otherAddress.equals(other.otherAddress));
+		}
+	}
+
+	private static final class Entry {
+		final long seen;
+		final Receptions receptions;
+
+		Entry(long seen, Receptions receptions) {
+			this.seen = seen;
+			this.receptions = receptions;
+		}
+	}
+
+	/**
+	 * the transmissions of one stripe, in the order of arrival; guarded by itself
+	 */
+	private static final class Stripe extends LinkedHashMap<Key, Entry> {
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		Stripe(int capacity) {
+			super(16, 0.75f, false);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			return size() > capacity;
+		}
+
+		void expire(long now, long expiry) {
+			final Iterator<Entry> it = values().iterator();
+			while (it.hasNext() && now - it.next().seen >= expiry)
+				it.remove();
+		}
+	}
+
+	private final Consumer<? super AircraftBeacon> downstream;
+	private final BiConsumer<? super AircraftBeacon, ? super Receptions> receptionsDownstream;
+	private final long expiry;
+	private final Clock clock;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	private final AtomicLong passed = new AtomicLong();
+	private final AtomicLong duplicates = new AtomicLong();
+
+	/**
+	 * @param downstream
+	 *            consumer of the first copies
+	 */
+	public AircraftBeaconDeduplicator(Consumer<? super AircraftBeacon> downstream) {
+		this(downstream, DEFAULT_CAPACITY, DEFAULT_EXPIRY);
+	}
+
+	/**
+	 * @param downstream
+	 *            consumer of the first copies
+	 * @param capacity
+	 *            max. number of transmissions remembered
+	 * @param expiry
+	 *            time (ms) a transmission is remembered after its first copy arrived
+	 */
+	public AircraftBeaconDeduplicator(Consumer<? super AircraftBeacon> downstream, int capacity, long expiry) {
+		this(downstream, null, capacity, expiry, Clock.systemUTC());
+	}
+
+	AircraftBeaconDeduplicator(Consumer<? super AircraftBeacon> downstream,
+			BiConsumer<? super AircraftBeacon, ? super Receptions> receptionsDownstream, int capacity, long expiry,
+			Clock clock) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be positive");
+		if (expiry <= 0)
+			throw new IllegalArgumentException("expiry must be positive");
+		this.downstream = downstream;
+		this.receptionsDownstream = receptionsDownstream;
+		this.expiry = expiry;
+		this.clock = clock;
+
+		final int stripeCapacity = (capacity + STRIPES - 1) / STRIPES;
+		for (int i = 0; i < STRIPES; i++)
+			stripes[i] = new Stripe(stripeCapacity);
+	}
+
+	/**
+	 * creates a deduplicator which records the receptions of the transmissions
+	 *
+	 * @param downstream
+	 *            consumer of the first copies, together with their receptions (which keep being added to while the
+	 *            transmission is remembered)
+	 * @param capacity
+	 *            max. number of transmissions remembered
+	 * @param expiry
+	 *            time (ms) a transmission is remembered after its first copy arrived
+	 */
+	public static AircraftBeaconDeduplicator withReceptions(
+			BiConsumer<? super AircraftBeacon, ? super Receptions> downstream, int capacity, long expiry) {
+		return new AircraftBeaconDeduplicator(null, downstream, capacity, expiry, Clock.systemUTC());
+	}
+
+	/**
+	 * passes the beacon downstream if it is the first copy of its transmission
+	 */
+	@Override
+	public void accept(AircraftBeacon beacon) {
+		final Entry entry = record(beacon);
+		if (entry == null)
+			return;
+
+		if (receptionsDownstream != null)
+			receptionsDownstream.accept(beacon, entry.receptions);
+		else
+			downstream.accept(beacon);
+	}
+
+	/**
+	 * @return true if the beacon is the first copy of its transmission (the transmission is remembered from now on),
+	 *         false if it is a copy of a transmission seen before
+	 */
+	public boolean isFirst(AircraftBeacon beacon) {
+		return record(beacon) != null;
+	}
+
+	/**
+	 * @return the entry of the new transmission, null for a duplicate
+	 */
+	private Entry record(AircraftBeacon beacon) {
+		final Key key = new Key(beacon);
+		final Stripe stripe = stripes[key.hash & (STRIPES - 1)];
+		final long now = clock.millis();
+
+		synchronized (stripe) {
+			stripe.expire(now, expiry);
+			final Entry entry = stripe.get(key);
+			if (entry != null) {
+				if (entry.receptions != null)
+					entry.receptions.add(beacon);
+				duplicates.incrementAndGet();
+				return null;
+			}
+
+			final Entry created = new Entry(now, receptionsDownstream != null ? new Receptions(beacon) : null);
+			stripe.put(key, created);
+			passed.incrementAndGet();
+			return created;
+		}
+	}
+
+	/**
+	 * @return the number of transmissions currently remembered
+	 */
+	public int size() {
+		int result = 0;
+		for (final Stripe stripe : stripes) {
+			synchronized (stripe) {
+				result += stripe.size();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * forgets all the transmissions
+	 */
+	public void clear() {
+		for (final Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of first copies passed downstream
+	 */
+	public long getPassed() {
+		return passed.get();
+	}
+
+	/**
+	 * @return the number of copies dropped
+	 */
+	public long getDuplicates() {
+		return duplicates.get();
+	}
+}
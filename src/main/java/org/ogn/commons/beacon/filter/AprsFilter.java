@@ -0,0 +1,306 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.ReceiverBeacon;
+import org.ogn.commons.beacon.ReceiverBeaconType;
+import org.ogn.commons.utils.AprsUtils;
+
+/**
+ * Compiled APRS-IS filter expression (the <code>filter</code> of the login line, see
+ * <a href="http://www.aprs-is.net/javAPRSFilter.aspx">APRS-IS server-side filters</a>), for filtering an unfiltered
+ * feed locally the way the server would. The expression is a list of space separated filters:
+ * <ul>
+ * <li><code>r/lat/lon/dist</code> - the positions within dist (km) of the point</li>
+ * <li><code>a/latN/lonW/latS/lonE</code> - the positions within the box (crossing the antimeridian if lonW &gt;
+ * lonE)</li>
+ * <li><code>p/aa/bb/cc...</code> - the callsigns starting with any of the prefixes</li>
+ * <li><code>b/call1/call2...</code> - the callsigns given, which may end with a <code>*</code> wildcard</li>
+ * <li><code>t/poimqstunw</code> - the packet types; the OGN beacons are positions (p), except the receiver status
+ * beacons (s)</li>
+ * </ul>
+ * A beacon passes if it matches any of the filters and none of the exclusion filters (those prefixed with
+ * <code>-</code>). The callsigns are matched case-insensitively; the receiver status beacons have no position.
+ * <p>
+ * The trigonometry of the range filters is done once at compile time: a position is a unit vector, and a range test
+ * compares the squared chord between the two vectors to a precomputed threshold. Testing many filters against the
+ * same beacon shares the per-beacon work, see <code>Candidate</code>. The compiled filters are immutable and
+ * thread-safe.
+ */
+public final class AprsFilter implements Predicate<OgnBeacon> {
+
+	private static final String TYPES = "poimqstunw";
+	private static final int POSITION = typeBit('p');
+	private static final int STATUS = typeBit('s');
+
+	/**
+	 * a beacon prepared for being tested against any number of filters: its position as a unit vector and its type
+	 */
+	public static final class Candidate {
+		final String callsign;
+		final int type;
+		final boolean hasPosition;
+		final int lat;
+		final int lon;
+		final double x;
+		final double y;
+		final double z;
+
+		public Candidate(OgnBeacon beacon) {
+			callsign = beacon.getId() != null ? beacon.getId() : "";
+			hasPosition = !(beacon instanceof ReceiverBeacon)
+					|| ((ReceiverBeacon) beacon).getReceiverBeaconType() != ReceiverBeaconType.RECEIVER_STATUS;
+			type = hasPosition ? POSITION : STATUS;
+			if (hasPosition) {
+				lat = beacon.getLatMicroDegrees();
+				lon = beacon.getLonMicroDegrees();
+				final double latRad = Math.toRadians(beacon.getLat());
+				final double lonRad = Math.toRadians(beacon.getLon());
+				x = Math.cos(latRad) * Math.cos(lonRad);
+				y = Math.cos(latRad) * Math.sin(lonRad);
+				z = Math.sin(latRad);
+			} else {
+				lat = lon = 0;
+				x = y = z = 0;
+			}
+		}
+	}
+
+	private interface Part {
+		boolean test(Candidate candidate);
+	}
+
+	private static final class Range implements Part {
+		private final double x;
+		private final double y;
+		private final double z;
+		private final double maxChord2;
+
+		Range(double lat, double lon, double km) {
+			final double latRad = Math.toRadians(lat);
+			final double lonRad = Math.toRadians(lon);
+			x = Math.cos(latRad) * Math.cos(lonRad);
+			y = Math.cos(latRad) * Math.sin(lonRad);
+			z = Math.sin(latRad);
+			final double angle = km * 1000 / AprsUtils.EARTH_RADIUS;
+			final double chord = angle >= Math.PI ? 2 : 2 * Math.sin(angle / 2);
+			maxChord2 = chord * chord;
+		}
+
+		@Override
+		public boolean test(Candidate candidate) {
+			if (!candidate.hasPosition)
+				return false;
+			final double dx = candidate.x - x;
+			final double dy = candidate.y - y;
+			final double dz = candidate.z - z;
+			return dx * dx + dy * dy + dz * dz <= maxChord2;
+		}
+	}
+
+	private static final class Area implements Part {
+		private final int north;
+		private final int west;
+		private final int south;
+		private final int east;
+
+		Area(double north, double west, double south, double east) {
+			this.north = AprsUtils.degToMicroDegrees(north);
+			this.west = AprsUtils.degToMicroDegrees(west);
+			this.south = AprsUtils.degToMicroDegrees(south);
+			this.east = AprsUtils.degToMicroDegrees(east);
+		}
+
+		@Override
+		public boolean test(Candidate candidate) {
+			if (!candidate.hasPosition || candidate.lat < south || candidate.lat > north)
+				return false;
+			return west <= east ? candidate.lon >= west && candidate.lon <= east
+					: candidate.lon >= west || candidate.lon <= east;
+		}
+	}
+
+	private static final class Callsigns implements Part {
+		private final CallsignTrie trie;
+
+		Callsigns(CallsignTrie trie) {
+			this.trie = trie;
+		}
+
+		@Override
+		public boolean test(Candidate candidate) {
+			return trie.matches(candidate.callsign);
+		}
+	}
+
+	private static final class Types implements Part {
+		private final int types;
+
+		Types(int types) {
+			this.types = types;
+		}
+
+		@Override
+		public boolean test(Candidate candidate) {
+			return (types & candidate.type) != 0;
+		}
+	}
+
+	private final String expression;
+	private final Part[] included;
+	private final Part[] excluded;
+
+	private AprsFilter(String expression, Part[] included, Part[] excluded) {
+		this.expression = expression;
+		this.included = included;
+		this.excluded = excluded;
+	}
+
+	private static int typeBit(char type) {
+		return 1 << TYPES.indexOf(type);
+	}
+
+	/**
+	 * @return the compiled filter expression; an empty expression passes nothing
+	 * @throws IllegalArgumentException
+	 *             if the expression is not valid or contains filters which are not supported (e.g. those relative to
+	 *             another station)
+	 */
+	public static AprsFilter compile(String expression) {
+		final List<Part> included = new ArrayList<>();
+		final List<Part> excluded = new ArrayList<>();
+		for (final String filter : expression.trim().split("\\s+")) {
+			if (filter.isEmpty())
+				continue;
+			final boolean exclusion = filter.charAt(0) == '-';
+			(exclusion ? excluded : included).add(compilePart(exclusion ? filter.substring(1) : filter));
+		}
+		return new AprsFilter(expression.trim(), included.toArray(new Part[included.size()]),
+				excluded.toArray(new Part[excluded.size()]));
+	}
+
+	private static Part compilePart(String filter) {
+		final String[] args = filter.split("/", -1);
+		if (args.length < 2 || args[0].length() != 1)
+			throw new IllegalArgumentException("invalid filter: " + filter);
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].isEmpty())
+				throw new IllegalArgumentException("empty argument in filter: " + filter);
+		}
+
+		switch (Character.toLowerCase(args[0].charAt(0))) {
+		case 'r':
+			checkArgs(filter, args, 3);
+			final double lat = latitude(filter, args[1]);
+			final double lon = longitude(filter, args[2]);
+			final double km = number(filter, args[3]);
+			if (!(km > 0))
+				throw new IllegalArgumentException("distance must be positive: " + filter);
+			return new Range(lat, lon, km);
+
+		case 'a':
+			checkArgs(filter, args, 4);
+			final double north = latitude(filter, args[1]);
+			final double south = latitude(filter, args[3]);
+			if (north < south)
+				throw new IllegalArgumentException("north latitude below the south one: " + filter);
+			return new Area(north, longitude(filter, args[2]), south, longitude(filter, args[4]));
+
+		case 'p':
+			final CallsignTrie prefixes = new CallsignTrie();
+			for (int i = 1; i < args.length; i++)
+				prefixes.add(args[i], true);
+			return new Callsigns(prefixes);
+
+		case 'b':
+			final CallsignTrie callsigns = new CallsignTrie();
+			for (int i = 1; i < args.length; i++) {
+				final int wildcard = args[i].indexOf('*');
+				if (wildcard >= 0 && wildcard != args[i].length() - 1)
+					throw new IllegalArgumentException("only a trailing * wildcard is supported: " + filter);
+				callsigns.add(wildcard >= 0 ? args[i].substring(0, wildcard) : args[i], wildcard >= 0);
+			}
+			return new Callsigns(callsigns);
+
+		case 't':
+			if (args.length != 2)
+				throw new IllegalArgumentException("type filters relative to a station are not supported: " + filter);
+			int types = 0;
+			for (final char type : args[1].toLowerCase().toCharArray()) {
+				if (TYPES.indexOf(type) < 0)
+					throw new IllegalArgumentException("unknown packet type '" + type + "': " + filter);
+				types |= typeBit(type);
+			}
+			return new Types(types);
+
+		default:
+			throw new IllegalArgumentException("unsupported filter: " + filter);
+		}
+	}
+
+	private static void checkArgs(String filter, String[] args, int count) {
+		if (args.length != count + 1)
+			throw new IllegalArgumentException(count + " arguments expected: " + filter);
+	}
+
+	private static double number(String filter, String arg) {
+		try {
+			return Double.parseDouble(arg);
+		} catch (final NumberFormatException ex) {
+			throw new IllegalArgumentException("invalid number '" + arg + "': " + filter);
+		}
+	}
+
+	private static double latitude(String filter, String arg) {
+		final double result = number(filter, arg);
+		if (!(result >= -90 && result <= 90))
+			throw new IllegalArgumentException("latitude out of range: " + filter);
+		return result;
+	}
+
+	private static double longitude(String filter, String arg) {
+		final double result = number(filter, arg);
+		if (!(result >= -180 && result <= 180))
+			throw new IllegalArgumentException("longitude out of range: " + filter);
+		return result;
+	}
+
+	/**
+	 * @return the expression the filter was compiled from
+	 */
+	public String getExpression() {
+		return expression;
+	}
+
+	@Override
+	public boolean test(OgnBeacon beacon) {
+		return test(new Candidate(beacon));
+	}
+
+	/**
+	 * @return true if the beacon of the candidate passes the filter
+	 */
+	public boolean test(Candidate candidate) {
+		for (final Part part : excluded) {
+			if (part.test(candidate))
+				return false;
+		}
+		for (final Part part : included) {
+			if (part.test(candidate))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.filter;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.ogn.commons.beacon.OgnBeacon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves many consumers from one unfiltered feed, each with its own APRS-IS filter expression (see
+ * <code>AprsFilter</code>), instead of a connection to APRS-IS per consumer. Every beacon is prepared once and then
+ * tested against the compiled filters of all the consumers.
+ * <p>
+ * The consumers can subscribe and cancel at any time, also from other threads; a consumer which throws does not keep
+ * the beacon from the others.
+ */
+public class AprsFilterRouter implements Consumer<OgnBeacon> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AprsFilterRouter.class);
+
+	/**
+	 * a consumer and its filter
+	 */
+	public final class Subscription {
+		private final AprsFilter filter;
+		private final Consumer<? super OgnBeacon> consumer;
+
+		Subscription(AprsFilter filter, Consumer<? super OgnBeacon> consumer) {
+			this.filter = filter;
+			this.consumer = consumer;
+		}
+
+		public AprsFilter getFilter() {
+			return filter;
+		}
+
+		/**
+		 * stops the beacons to the consumer
+		 */
+		public void cancel() {
+			subscriptions.remove(this);
+		}
+	}
+
+	private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the filter expression is not valid
+	 */
+	public Subscription subscribe(String filter, Consumer<? super OgnBeacon> consumer) {
+		return subscribe(AprsFilter.compile(filter), consumer);
+	}
+
+	public Subscription subscribe(AprsFilter filter, Consumer<? super OgnBeacon> consumer) {
+		final Subscription subscription = new Subscription(filter, consumer);
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
+	/**
+	 * @return the number of consumers subscribed
+	 */
+	public int size() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * passes the beacon to the consumers whose filter it matches
+	 */
+	@Override
+	public void accept(OgnBeacon beacon) {
+		if (subscriptions.isEmpty())
+			return;
+		final AprsFilter.Candidate candidate = new AprsFilter.Candidate(beacon);
+		for (final Subscription subscription : subscriptions) {
+			if (subscription.filter.test(candidate)) {
+				try {
+					subscription.consumer.accept(beacon);
+				} catch (final RuntimeException ex) {
+					LOG.error("Consumer failed on beacon: {}", beacon.getRawPacket(), ex);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.filter;
+
+import java.util.Arrays;
+
+/**
+ * Set of callsigns and callsign prefixes, matched case-insensitively in one pass over the callsign however many
+ * entries there are.
+ */
+final class CallsignTrie {
+
+	private static final class Node {
+		char[] labels = new char[0];
+		Node[] children = new Node[0];
+		// a callsign ends here
+		boolean exact;
+		// every callsign starting with the path to here matches
+		boolean prefix;
+
+		Node child(char label) {
+			for (int i = 0; i < labels.length; i++) {
+				if (labels[i] == label)
+					return children[i];
+			}
+			return null;
+		}
+
+		Node addChild(char label) {
+			final Node child = new Node();
+			labels = Arrays.copyOf(labels, labels.length + 1);
+			children = Arrays.copyOf(children, children.length + 1);
+			labels[labels.length - 1] = label;
+			children[children.length - 1] = child;
+			return child;
+		}
+	}
+
+	private final Node root = new Node();
+
+	private static char upperCase(char c) {
+		return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+	}
+
+	/**
+	 * @param prefix
+	 *            true if the callsigns starting with the given one match as well
+	 */
+	void add(String callsign, boolean prefix) {
+		Node node = root;
+		for (int i = 0; i < callsign.length(); i++) {
+			final char label = upperCase(callsign.charAt(i));
+			final Node child = node.child(label);
+			node = child != null ? child : node.addChild(label);
+		}
+		if (prefix)
+			node.prefix = true;
+		else
+			node.exact = true;
+	}
+
+	boolean matches(String callsign) {
+		Node node = root;
+		for (int i = 0; i < callsign.length(); i++) {
+			if (node.prefix)
+				return true;
+			node = node.child(upperCase(callsign.charAt(i)));
+			if (node == null)
+				return false;
+		}
+		return node.prefix || node.exact;
+	}
+}
@@ -4,14 +4,20 @@
 
 package org.ogn.commons.beacon.impl;
 
-import static org.ogn.commons.utils.AprsUtils.dmsToDeg;
+import static org.ogn.commons.utils.AprsUtils.aprsToMicroDegrees;
 import static org.ogn.commons.utils.AprsUtils.feetsToMetres;
 import static org.ogn.commons.utils.AprsUtils.kntToKmh;
+import static org.ogn.commons.utils.AprsUtils.microDegreesToDeg;
 import static org.ogn.commons.utils.AprsUtils.toUtcTimestamp;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsEnvelope;
+import org.ogn.commons.beacon.impl.aprs.AprsStringPool;
+import org.ogn.commons.utils.UtcTimestampResolver;
 
 import com.google.code.regexp.Matcher;
 
@@ -42,17 +48,30 @@ public class OgnBeaconImpl implements OgnBeacon, Serializable {
 
 	protected String rawPacket;
 
+	/**
+	 * the raw packet as (copied) bytes, turned into the rawPacket string only when asked for
+	 */
+	private transient CharSequence rawLine;
+
 	protected OgnBeaconImpl() {
 	}
 
 	public OgnBeaconImpl(Matcher matcher) {
+		this(matcher, UtcTimestampResolver.getDefault());
+	}
+
+	/**
+	 * @param resolver
+	 *            dates the hhmmss time of the packet
+	 */
+	public OgnBeaconImpl(Matcher matcher, UtcTimestampResolver resolver) {
 		this.rawPacket = matcher.group(0);
 
 		// APRS status and position fields
-		this.id = matcher.group("callsign");
+		this.id = AprsStringPool.getDefault().intern(matcher.group("callsign"));
 		// this.dstcall = matcher.group("dstcall");
 		// this.srvName = matcher.group("receiver");
-		this.timestamp = toUtcTimestamp(matcher.group("time"));
+		this.timestamp = toUtcTimestamp(resolver, matcher.group("time"));
 
 		// if we have a APRS status, then we have just 5 groups
 		if (matcher.groupCount() == 5) {
@@ -60,19 +79,20 @@ public class OgnBeaconImpl implements OgnBeacon, Serializable {
 		}
 
 		// APRS position fields
-		this.lat = dmsToDeg(Double.parseDouble(matcher.group("latitude")) / 100);
-		this.lat += matcher.group("posExtension") == null ? 0
-				: Double.parseDouble(matcher.group("latitudeEnhancement")) / 1000 / 60;
+		final boolean enhanced = matcher.group("posExtension") != null;
+		int latE6 = aprsToMicroDegrees(matcher.group("latitude"), 0, 2,
+				enhanced ? matcher.group("latitudeEnhancement").charAt(0) - '0' : 0);
 		if (matcher.group("latitudeSign").equals("S")) {
-			this.lat *= -1;
+			latE6 = -latE6;
 		}
+		this.lat = microDegreesToDeg(latE6);
 		// matcher.group("symboltable");
-		this.lon = dmsToDeg(Double.parseDouble(matcher.group("longitude")) / 100);
-		this.lon += matcher.group("posExtension") == null ? 0
-				: Double.parseDouble(matcher.group("longitudeEnhancement")) / 1000 / 60;
+		int lonE6 = aprsToMicroDegrees(matcher.group("longitude"), 0, 3,
+				enhanced ? matcher.group("longitudeEnhancement").charAt(0) - '0' : 0);
 		if (matcher.group("longitudeSign").equals("W")) {
-			this.lon *= -1;
+			lonE6 = -lonE6;
 		}
+		this.lon = microDegreesToDeg(lonE6);
 		// matcher.group("symbol");
 		matcher.group("courseExtension");
 		this.track = matcher.group("course") == null ? 0 : Integer.parseInt(matcher.group("course"));
@@ -82,6 +102,44 @@ public class OgnBeaconImpl implements OgnBeacon, Serializable {
 		// matcher.group("comment");
 	}
 
+	public OgnBeaconImpl(AprsEnvelope envelope) {
+		final CharSequence line = envelope.detachLine();
+		if (line instanceof String) {
+			this.rawPacket = (String) line;
+		} else {
+			this.rawLine = line;
+		}
+
+		// APRS status and position fields
+		this.id = envelope.getCallsign();
+		this.timestamp = envelope.getTimestamp();
+
+		if (envelope.isStatus()) {
+			return;
+		}
+
+		// APRS position fields
+		this.lat = envelope.decodeLat();
+		this.lon = envelope.decodeLon();
+		this.track = envelope.decodeTrack();
+		this.groundSpeed = envelope.decodeGroundSpeed();
+		this.alt = envelope.decodeAlt();
+	}
+
+	/**
+	 * copies the fields of the given beacon
+	 */
+	protected OgnBeaconImpl(OgnBeacon beacon) {
+		this.rawPacket = beacon.getRawPacket();
+		this.id = beacon.getId();
+		this.timestamp = beacon.getTimestamp();
+		this.lat = beacon.getLat();
+		this.lon = beacon.getLon();
+		this.alt = beacon.getAlt();
+		this.track = beacon.getTrack();
+		this.groundSpeed = beacon.getGroundSpeed();
+	}
+
 	@Override
 	public String getId() {
 		return id;
@@ -119,7 +177,19 @@ public class OgnBeaconImpl implements OgnBeacon, Serializable {
 
 	@Override
 	public String getRawPacket() {
-		return rawPacket;
+		// the line is kept once set: threads racing here (the beacons may be shared, e.g. by the parse cache) at worst
+		// build the same string twice, but never see both fields empty
+		String result = rawPacket;
+		if (result == null && rawLine != null) {
+			result = rawLine.toString();
+			rawPacket = result;
+		}
+		return result;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getRawPacket();
+		out.defaultWriteObject();
 	}
 
 	@Override
@@ -133,7 +203,7 @@ public class OgnBeaconImpl implements OgnBeacon, Serializable {
 		result = prime * result + (int) (temp ^ (temp >>> 32));
 		temp = Double.doubleToLongBits(lon);
 		result = prime * result + (int) (temp ^ (temp >>> 32));
-		result = prime * result + ((rawPacket == null) ? 0 : rawPacket.hashCode());
+		result = prime * result + ((getRawPacket() == null) ? 0 : getRawPacket().hashCode());
 		result = prime * result + Float.floatToIntBits(groundSpeed);
 		result = prime * result + (int) (timestamp ^ (timestamp >>> 32));
 		result = prime * result + track;
@@ -160,10 +230,10 @@ public class OgnBeaconImpl implements OgnBeacon, Serializable {
 			return false;
 		if (Double.doubleToLongBits(lon) != Double.doubleToLongBits(other.lon))
 			return false;
-		if (rawPacket == null) {
-			if (other.rawPacket != null)
+		if (getRawPacket() == null) {
+			if (other.getRawPacket() != null)
 				return false;
-		} else if (!rawPacket.equals(other.rawPacket))
+		} else if (!getRawPacket().equals(other.getRawPacket()))
 			return false;
 		if (Float.floatToIntBits(groundSpeed) != Float.floatToIntBits(other.groundSpeed))
 			return false;
@@ -7,15 +7,13 @@ package org.ogn.commons.beacon.impl.aprs;
 import static org.ogn.commons.utils.AprsUtils.feetsToMetres;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.TreeSet;
 
 import org.ogn.commons.beacon.AddressType;
 import org.ogn.commons.beacon.AircraftBeacon;
 import org.ogn.commons.beacon.AircraftType;
 import org.ogn.commons.beacon.OgnBeacon;
 import org.ogn.commons.beacon.impl.OgnBeaconImpl;
+import org.ogn.commons.utils.UtcTimestampResolver;
 
 import com.google.code.regexp.Matcher;
 
@@ -104,9 +102,9 @@ public class AprsAircraftBeacon extends OgnBeaconImpl implements AircraftBeacon
 	protected float firmwareVersion = Float.NaN;
 
 	/**
-	 * id of another aircraft received by this aircraft
+	 * ids (16 bit, ascending) of other aircraft received by this aircraft
 	 */
-	protected transient Set<String> heardAircraftIds = new HashSet<>();
+	protected transient int[] heardAircraftIds = AprsComment.NO_IDS;
 
 	/**
 	 * flight level as computed by the device (barometric)
@@ -190,7 +188,29 @@ public class AprsAircraftBeacon extends OgnBeaconImpl implements AircraftBeacon
 
 	@Override
 	public String[] getHeardAircraftIds() {
-		return heardAircraftIds.toArray(new String[0]);
+		return AprsComment.formatHeardAircraftIds(heardAircraftIds, getHeardAircraftIdCount());
+	}
+
+	// used by jackson, the JSON form keeps the ids in the APRS format
+	@SuppressWarnings("unused")
+	private void setHeardAircraftIds(String[] ids) {
+		this.heardAircraftIds = Arrays.stream(ids).mapToInt(id -> Integer.parseInt(id, 16)).sorted().distinct()
+				.toArray();
+	}
+
+	@Override
+	public int getHeardAircraftIdCount() {
+		return heardAircraftIds == null ? 0 : heardAircraftIds.length;
+	}
+
+	@Override
+	public int getHeardAircraftId(int index) {
+		return heardAircraftIds[index];
+	}
+
+	@Override
+	public boolean containsHeardAircraftId(int id) {
+		return getHeardAircraftIdCount() > 0 && Arrays.binarySearch(heardAircraftIds, id) >= 0;
 	}
 
 	@Override
@@ -225,11 +245,48 @@ public class AprsAircraftBeacon extends OgnBeaconImpl implements AircraftBeacon
 	}
 
 	public AprsAircraftBeacon(Matcher positionMatcher, boolean isRelayed) {
-		super(positionMatcher);
-		this.receiverName = positionMatcher.group("receiver");
+		this(positionMatcher, isRelayed, UtcTimestampResolver.getDefault());
+	}
+
+	public AprsAircraftBeacon(Matcher positionMatcher, boolean isRelayed, UtcTimestampResolver resolver) {
+		super(positionMatcher, resolver);
+		this.receiverName = AprsStringPool.getDefault().intern(positionMatcher.group("receiver"));
 		this.relayed = null != positionMatcher.group("relay");
 	}
 
+	public AprsAircraftBeacon(AprsEnvelope envelope) {
+		super(envelope);
+		this.receiverName = envelope.getReceiver();
+		this.relayed = envelope.isRelayed();
+	}
+
+	/**
+	 * copies the fields of the given beacon
+	 */
+	public AprsAircraftBeacon(AircraftBeacon beacon) {
+		super(beacon);
+		this.receiverName = beacon.getReceiverName();
+		this.address = beacon.getAddress();
+		this.originalAddress = beacon.getOriginalAddress();
+		this.addressType = beacon.getAddressType();
+		this.aircraftType = beacon.getAircraftType();
+		this.stealth = beacon.isStealth();
+		this.relayed = beacon.isRelayed();
+		this.climbRate = beacon.getClimbRate();
+		this.turnRate = beacon.getTurnRate();
+		this.signalStrength = beacon.getSignalStrength();
+		this.erp = beacon.getERP();
+		this.frequencyOffset = beacon.getFrequencyOffset();
+		this.gpsStatus = beacon.getGpsStatus();
+		this.errorCount = beacon.getErrorCount();
+		this.hardwareVersion = beacon.getHardwareVersion();
+		this.firmwareVersion = beacon.getFirmwareVersion();
+		this.heardAircraftIds = new int[beacon.getHeardAircraftIdCount()];
+		for (int i = 0; i < heardAircraftIds.length; i++)
+			this.heardAircraftIds[i] = beacon.getHeardAircraftId(i);
+		this.flightLevel = beacon.getFlightLevel();
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -244,7 +301,7 @@ public class AprsAircraftBeacon extends OgnBeaconImpl implements AircraftBeacon
 		result = prime * result + Float.floatToIntBits(frequencyOffset);
 		result = prime * result + ((gpsStatus == null) ? 0 : gpsStatus.hashCode());
 		result = prime * result + hardwareVersion;
-		result = prime * result + ((heardAircraftIds == null) ? 0 : heardAircraftIds.hashCode());
+		result = prime * result + Arrays.hashCode(heardAircraftIds);
 		result = prime * result + ((originalAddress == null) ? 0 : originalAddress.hashCode());
 		result = prime * result + ((receiverName == null) ? 0 : receiverName.hashCode());
 		result = prime * result + Float.floatToIntBits(signalStrength);
@@ -288,10 +345,7 @@ public class AprsAircraftBeacon extends OgnBeaconImpl implements AircraftBeacon
 			return false;
 		if (hardwareVersion != other.hardwareVersion)
 			return false;
-		if (heardAircraftIds == null) {
-			if (other.heardAircraftIds != null)
-				return false;
-		} else if (!heardAircraftIds.equals(other.heardAircraftIds))
+		if (!Arrays.equals(heardAircraftIds, other.heardAircraftIds))
 			return false;
 		if (originalAddress == null) {
 			if (other.originalAddress != null)
@@ -320,7 +374,7 @@ public class AprsAircraftBeacon extends OgnBeaconImpl implements AircraftBeacon
 		this.aircraftType = AircraftType.forValue((details & 0b01111100) >>> 2);
 		this.stealth = ((details & 0b10000000) >>> 7) == 1;
 
-		this.address = aircraftMatcher.group("id");
+		this.address = AprsStringPool.getDefault().intern(aircraftMatcher.group("id"));
 		this.climbRate = aircraftMatcher.group("climbRate") == null ? 0
 				: feetsToMetres(Float.parseFloat(aircraftMatcher.group("climbRate"))) / 60.0f;
 		this.turnRate = aircraftMatcher.group("turnRate") == null ? 0
@@ -333,16 +387,46 @@ public class AprsAircraftBeacon extends OgnBeaconImpl implements AircraftBeacon
 				: Integer.parseInt(aircraftMatcher.group("errors"));
 		this.frequencyOffset = aircraftMatcher.group("frequencyOffset") == null ? 0
 				: Float.parseFloat(aircraftMatcher.group("frequencyOffset"));
-		this.gpsStatus = aircraftMatcher.group("gpsAccuracy") == null ? "" : aircraftMatcher.group("gpsAccuracy");
+		this.gpsStatus = aircraftMatcher.group("gpsAccuracy") == null ? ""
+				: AprsStringPool.getDefault().intern(aircraftMatcher.group("gpsAccuracy"));
 		this.firmwareVersion = aircraftMatcher.group("flarmSoftwareVersion") == null ? 0
 				: Float.parseFloat(aircraftMatcher.group("flarmSoftwareVersion"));
 		this.hardwareVersion = aircraftMatcher.group("flarmHardwareVersion") == null ? 0
 				: Integer.parseInt(aircraftMatcher.group("flarmHardwareVersion"), 16);
-		this.originalAddress = aircraftMatcher.group("flarmId") == null ? "" : aircraftMatcher.group("flarmId");
+		this.originalAddress = aircraftMatcher.group("flarmId") == null ? ""
+				: AprsStringPool.getDefault().intern(aircraftMatcher.group("flarmId"));
 		this.erp = aircraftMatcher.group("signalPower") == null ? 0
 				: Float.parseFloat(aircraftMatcher.group("signalPower"));
-		this.heardAircraftIds = aircraftMatcher.group("proximity") == null ? new TreeSet<>()
-				: new TreeSet<>(Arrays.asList(aircraftMatcher.group("proximity").substring(4).split(" hear")));
+		final String proximity = aircraftMatcher.group("proximity");
+		this.heardAircraftIds = proximity == null ? AprsComment.NO_IDS
+				: AprsComment.heardAircraftIds(proximity, 0, proximity.length());
+		return this;
+	}
+
+	public OgnBeacon update(AprsComment comment) {
+		final int details = comment.getHex(AprsComment.DETAILS);
+		this.addressType = AddressType.forValue(details & 0b00000011);
+		this.aircraftType = AircraftType.forValue((details & 0b01111100) >>> 2);
+		this.stealth = ((details & 0b10000000) >>> 7) == 1;
+
+		this.address = comment.getInternedString(AprsComment.ID);
+		this.climbRate = !comment.has(AprsComment.CLIMB_RATE) ? 0
+				: feetsToMetres(comment.getFloat(AprsComment.CLIMB_RATE)) / 60.0f;
+		this.turnRate = !comment.has(AprsComment.TURN_RATE) ? 0 : comment.getFloat(AprsComment.TURN_RATE);
+		this.flightLevel = !comment.has(AprsComment.FLIGHT_LEVEL) ? 0 : comment.getFloat(AprsComment.FLIGHT_LEVEL);
+		this.signalStrength = !comment.has(AprsComment.SIGNAL_QUALITY) ? 0
+				: comment.getFloat(AprsComment.SIGNAL_QUALITY);
+		this.errorCount = !comment.has(AprsComment.ERRORS) ? 0 : comment.getInt(AprsComment.ERRORS);
+		this.frequencyOffset = !comment.has(AprsComment.FREQUENCY_OFFSET) ? 0
+				: comment.getFloat(AprsComment.FREQUENCY_OFFSET);
+		this.gpsStatus = !comment.has(AprsComment.GPS_ACCURACY) ? "" : comment.getInternedString(AprsComment.GPS_ACCURACY);
+		this.firmwareVersion = !comment.has(AprsComment.FLARM_SOFTWARE_VERSION) ? 0
+				: comment.getFloat(AprsComment.FLARM_SOFTWARE_VERSION);
+		this.hardwareVersion = !comment.has(AprsComment.FLARM_HARDWARE_VERSION) ? 0
+				: comment.getHex(AprsComment.FLARM_HARDWARE_VERSION);
+		this.originalAddress = !comment.has(AprsComment.FLARM_ID) ? "" : comment.getInternedString(AprsComment.FLARM_ID);
+		this.erp = !comment.has(AprsComment.SIGNAL_POWER) ? 0 : comment.getFloat(AprsComment.SIGNAL_POWER);
+		this.heardAircraftIds = comment.getHeardAircraftIds();
 		return this;
 	}
 
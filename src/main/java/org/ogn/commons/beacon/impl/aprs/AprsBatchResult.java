@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.ogn.commons.beacon.OgnBeacon;
+
+/**
+ * Result of a batch parse: the beacons and the rejected lines (unrecognized or malformed), both in input order
+ */
+public class AprsBatchResult {
+
+	private final List<OgnBeacon> beacons;
+	private final List<String> rejected;
+
+	public AprsBatchResult(List<OgnBeacon> beacons, List<String> rejected) {
+		this.beacons = Collections.unmodifiableList(beacons);
+		this.rejected = Collections.unmodifiableList(rejected);
+	}
+
+	public List<OgnBeacon> getBeacons() {
+		return beacons;
+	}
+
+	public List<String> getRejected() {
+		return rejected;
+	}
+
+	@Override
+	public String toString() {
+		return "AprsBatchResult [beacons=" + beacons.size() + ", rejected=" + rejected.size() + "]";
+	}
+}
@@ -0,0 +1,24 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import org.ogn.commons.beacon.OgnBeacon;
+
+/**
+ * Decoder of the beacons sent by one source type (dstcall). Decoders are looked up in the
+ * <code>AprsDecoderRegistry</code> once the APRS envelope of a line is scanned. Implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface AprsBeaconDecoder {
+
+	/**
+	 * @param envelope
+	 *            the scanned line
+	 * @param comment
+	 *            a tokenizer the decoder may use for the comment (owned by the calling thread)
+	 * @return the beacon or null if the line is not recognized
+	 */
+	OgnBeacon decode(AprsEnvelope envelope, AprsComment comment);
+}
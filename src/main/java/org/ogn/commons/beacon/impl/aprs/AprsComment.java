@@ -0,0 +1,708 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import java.util.Arrays;
+
+import org.ogn.commons.utils.AprsUtils;
+
+import com.google.code.regexp.Matcher;
+
+/**
+ * Single-pass, regex-free tokenizer of the OGN part (the comment) of aircraft and receiver beacons. It walks the
+ * tokens in the order defined by <code>AprsPatternConstants.PATTERN_AIRCRAFT_BEACON</code> and
+ * <code>AprsPatternConstants.PATTERN_RECEIVER_BEACON</code>, recognizing them by their prefixes and suffixes (id,
+ * fpm, rot, FL, dB, e, kHz, gps, s, h, r, dBm, hear, CPU:, RAM:, NTP:, RF: ...) and only records the offsets of the
+ * fields. The values are decoded on request, without creating intermediate strings.
+ * <p>
+ * The scanner follows exactly the path the regex engine tries first. If that path does not consume the whole comment
+ * the regex engine might still find a match by backtracking - in such (rare) cases <code>UNDECIDED</code> is
+ * returned and the caller is expected to fall back to the regular expressions. An instance is not thread-safe, but
+ * can be re-used.
+ */
+public class AprsComment {
+
+	public enum ScanResult {
+		/**
+		 * the comment matches, the fields are available
+		 */
+		MATCH,
+		/**
+		 * the comment certainly does not match
+		 */
+		NO_MATCH,
+		/**
+		 * the comment could not be decided in a single pass
+		 */
+		UNDECIDED
+	}
+
+	public enum Type {
+		/**
+		 * starts with "id", only the aircraft pattern can match
+		 */
+		AIRCRAFT,
+		/**
+		 * starts with "v" or "CPU:", only the receiver pattern can match
+		 */
+		RECEIVER,
+		/**
+		 * none of the patterns can match
+		 */
+		UNKNOWN
+	}
+
+	// aircraft beacon fields
+	public static final int DETAILS = 0;
+	public static final int ID = 1;
+	public static final int CLIMB_RATE = 2;
+	public static final int TURN_RATE = 3;
+	public static final int FLIGHT_LEVEL = 4;
+	public static final int SIGNAL_QUALITY = 5;
+	public static final int ERRORS = 6;
+	public static final int FREQUENCY_OFFSET = 7;
+	public static final int GPS_ACCURACY = 8;
+	public static final int FLARM_SOFTWARE_VERSION = 9;
+	public static final int FLARM_HARDWARE_VERSION = 10;
+	public static final int FLARM_ID = 11;
+	public static final int SIGNAL_POWER = 12;
+	public static final int PROXIMITY = 13;
+
+	// receiver beacon fields (SIGNAL_QUALITY is shared)
+	public static final int VERSION = 14;
+	public static final int PLATFORM = 15;
+	public static final int CPU_LOAD = 16;
+	public static final int RAM_FREE = 17;
+	public static final int RAM_TOTAL = 18;
+	public static final int NTP_OFFSET = 19;
+	public static final int NTP_CORRECTION = 20;
+	public static final int VOLTAGE = 21;
+	public static final int AMPERAGE = 22;
+	public static final int CPU_TEMPERATURE = 23;
+	public static final int VISIBLE_SENDERS = 24;
+	public static final int SENDERS = 25;
+	public static final int RF_CORRECTION_MANUAL = 26;
+	public static final int RF_CORRECTION_AUTOMATIC = 27;
+	public static final int SENDERS_SIGNAL_QUALITY = 28;
+	public static final int SENDERS_MESSAGES = 29;
+	public static final int GOOD_SENDERS_SIGNAL_QUALITY = 30;
+	public static final int GOOD_SENDERS = 31;
+	public static final int GOOD_AND_BAD_SENDERS = 32;
+
+	private static final int FIELDS = 33;
+
+	// names of the corresponding groups in the regular expressions
+	private static final String[] GROUPS = { "details", "id", "climbRate", "turnRate", "flightLevel", "signalQuality",
+			"errors", "frequencyOffset", "gpsAccuracy", "flarmSoftwareVersion", "flarmHardwareVersion", "flarmId",
+			"signalPower", "proximity", "version", "platform", "cpuLoad", "ramFree", "ramTotal", "ntpOffset",
+			"ntpCorrection", "voltage", "amperage", "cpuTemperature", "visibleSenders", "senders",
+			"rfCorrectionManual", "rfCorrectionAutomatic", "sendersSignalQuality", "sendersMessages",
+			"goodSendersSignalQuality", "goodSenders", "goodAndBadSenders" };
+
+	private static final int NONE = AprsEnvelope.NONE;
+
+	private static final String HEAR = "hear";
+	private static final int HEAR_TOKEN_LENGTH = 8;
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	static final int[] NO_IDS = new int[0];
+
+	// character classes
+	private static final int DIGIT = 0;
+	private static final int DECIMAL = 1;
+	private static final int HEX = 2;
+
+	private CharSequence s;
+	private int to;
+
+	private final int[] starts = new int[FIELDS];
+	private final int[] ends = new int[FIELDS];
+
+	private void reset(CharSequence s, int to) {
+		this.s = s;
+		this.to = to;
+		Arrays.fill(starts, NONE);
+	}
+
+	/**
+	 * classifies a comment by its first chars, so that just the one applicable pattern has to be tried
+	 *
+	 * @param s
+	 *            a sequence containing the comment
+	 * @param from
+	 *            index of the comment's first char
+	 */
+	public static Type classify(CharSequence s, int from) {
+		final int length = s.length() - from;
+		if (length >= 2 && s.charAt(from) == 'i' && s.charAt(from + 1) == 'd')
+			return Type.AIRCRAFT;
+		if (length >= 1 && s.charAt(from) == 'v' || length >= 4 && s.charAt(from) == 'C' && s.charAt(from + 1) == 'P'
+				&& s.charAt(from + 2) == 'U' && s.charAt(from + 3) == ':')
+			return Type.RECEIVER;
+		return Type.UNKNOWN;
+	}
+
+	/**
+	 * scans the comment of an aircraft beacon
+	 *
+	 * @param s
+	 *            a sequence containing the comment
+	 * @param from
+	 *            index of the comment's first char
+	 * @param to
+	 *            index after the comment's last char
+	 */
+	public ScanResult scanAircraft(CharSequence s, int from, int to) {
+		reset(s, to);
+
+		// id(?<details>\w{2})(?<id>\w{6}?)\s?
+		int p = from;
+		if (!startsWith(p, "id") || p + 10 > to)
+			return ScanResult.NO_MATCH;
+		for (int i = p + 2; i < p + 10; i++) {
+			if (!isWordChar(s.charAt(i)))
+				return ScanResult.NO_MATCH;
+		}
+		set(DETAILS, p + 2, p + 4);
+		set(ID, p + 4, p + 10);
+		p = skipWhitespace(p + 10);
+
+		p = token(p, CLIMB_RATE, null, true, DIGIT, "fpm");
+		p = token(p, TURN_RATE, null, true, DECIMAL, "rot");
+		p = token(p, FLIGHT_LEVEL, "FL", false, DECIMAL, null);
+		p = token(p, SIGNAL_QUALITY, null, false, DECIMAL, "dB");
+		p = token(p, ERRORS, null, false, DIGIT, "e");
+		p = token(p, FREQUENCY_OFFSET, null, true, DECIMAL, "kHz");
+		p = gpsToken(p);
+		p = token(p, FLARM_SOFTWARE_VERSION, "s", false, DECIMAL, null);
+		p = hardwareVersionToken(p);
+		p = token(p, FLARM_ID, "r", false, HEX, null);
+		p = token(p, SIGNAL_POWER, null, true, DECIMAL, "dBm");
+		p = proximityToken(p);
+
+		return p == to ? ScanResult.MATCH : ScanResult.UNDECIDED;
+	}
+
+	/**
+	 * scans the comment of a receiver beacon
+	 *
+	 * @param s
+	 *            a sequence containing the comment
+	 * @param from
+	 *            index of the comment's first char
+	 * @param to
+	 *            index after the comment's last char
+	 */
+	public ScanResult scanReceiver(CharSequence s, int from, int to) {
+		reset(s, to);
+
+		int p = from;
+		if (p < to && s.charAt(p) == 'v') {
+			p = versionToken(p);
+			if (p == NONE)
+				return ScanResult.UNDECIDED;
+		}
+		if (!startsWith(p, "CPU:"))
+			// a longer platform name might still do
+			return has(PLATFORM) ? ScanResult.UNDECIDED : ScanResult.NO_MATCH;
+
+		// the mandatory part
+		p = requiredNumber(p + 4, CPU_LOAD, false, "");
+		p = requiredWhitespace(p);
+		p = requiredLiteral(p, "RAM:");
+		p = requiredNumber(p, RAM_FREE, false, "/");
+		p = requiredNumber(p, RAM_TOTAL, false, "MB");
+		p = requiredWhitespace(p);
+		p = requiredLiteral(p, "NTP:");
+		p = requiredNumber(p, NTP_OFFSET, false, "ms/");
+		p = requiredNumber(p, NTP_CORRECTION, true, "ppm");
+		p = requiredWhitespace(p);
+		if (p == NONE)
+			// the mandatory numbers can not be matched in another way
+			return has(PLATFORM) ? ScanResult.UNDECIDED : ScanResult.NO_MATCH;
+
+		// the optional part
+		p = receiverToken(p, VOLTAGE, false, "V");
+		p = receiverToken(p, AMPERAGE, false, "A");
+		p = cpuTemperatureToken(p);
+		p = sendersToken(p);
+		p = rfToken(p);
+
+		return p == to ? ScanResult.MATCH : ScanResult.UNDECIDED;
+	}
+
+	/**
+	 * takes the fields over from a regex matcher which matched the comment
+	 *
+	 * @param matcher
+	 *            matcher of <code>PATTERN_AIRCRAFT_BEACON</code> or <code>PATTERN_RECEIVER_BEACON</code>
+	 * @param s
+	 *            a sequence containing the comment
+	 * @param from
+	 *            index of the comment's first char
+	 * @param aircraft
+	 *            true for the aircraft pattern, false for the receiver pattern
+	 */
+	void load(Matcher matcher, CharSequence s, int from, boolean aircraft) {
+		reset(s, s.length());
+
+		final int first = aircraft ? DETAILS : VERSION;
+		final int last = aircraft ? PROXIMITY : GOOD_AND_BAD_SENDERS;
+		for (int field = first; field <= last; field++) {
+			loadGroup(matcher, from, field);
+		}
+		if (!aircraft)
+			loadGroup(matcher, from, SIGNAL_QUALITY);
+	}
+
+	private void loadGroup(Matcher matcher, int from, int field) {
+		final int start = matcher.start(GROUPS[field]);
+		if (start >= 0)
+			set(field, from + start, from + matcher.end(GROUPS[field]));
+	}
+
+	/**
+	 * (?:prefix(?<field>[+-]?class+)suffix\s?)?
+	 */
+	private int token(int p, int field, String prefix, boolean signed, int charClass, String suffix) {
+		int q = p;
+		if (prefix != null) {
+			if (!startsWith(q, prefix))
+				return p;
+			q += prefix.length();
+		}
+		final int start = q;
+		if (signed) {
+			if (!isSign(q))
+				return p;
+			q++;
+		}
+		final int end = run(q, charClass);
+		if (end == q)
+			return p;
+		if (suffix != null && !startsWith(end, suffix))
+			return p;
+
+		set(field, start, end);
+		return skipWhitespace(suffix == null ? end : end + suffix.length());
+	}
+
+	/**
+	 * (?:gps(?<gpsAccuracy>\d+x\d+)\s?)?
+	 */
+	private int gpsToken(int p) {
+		if (!startsWith(p, "gps"))
+			return p;
+		final int start = p + 3;
+		final int x = run(start, DIGIT);
+		if (x == start || x >= to || s.charAt(x) != 'x')
+			return p;
+		final int end = run(x + 1, DIGIT);
+		if (end == x + 1)
+			return p;
+
+		set(GPS_ACCURACY, start, end);
+		return skipWhitespace(end);
+	}
+
+	/**
+	 * (?:h(?<flarmHardwareVersion>[\dA-F]{2})\s?)?
+	 */
+	private int hardwareVersionToken(int p) {
+		if (p + 3 > to || s.charAt(p) != 'h' || !isUpperHexDigit(s.charAt(p + 1)) || !isUpperHexDigit(s.charAt(p + 2)))
+			return p;
+
+		set(FLARM_HARDWARE_VERSION, p + 1, p + 3);
+		return skipWhitespace(p + 3);
+	}
+
+	/**
+	 * (?:(?<proximity>(hear[\dA-F]{4}\s?)+))?
+	 */
+	private int proximityToken(int p) {
+		final int start = p;
+		int q = p;
+		while (q + HEAR_TOKEN_LENGTH <= to && startsWith(q, HEAR) && isUpperHexDigit(s.charAt(q + 4))
+				&& isUpperHexDigit(s.charAt(q + 5)) && isUpperHexDigit(s.charAt(q + 6))
+				&& isUpperHexDigit(s.charAt(q + 7))) {
+			q += HEAR_TOKEN_LENGTH;
+			if (q < to && isWhitespace(s.charAt(q)))
+				q++;
+		}
+		if (q == start)
+			return p;
+
+		set(PROXIMITY, start, q);
+		return q;
+	}
+
+	/**
+	 * (?:v(?<version>\d+\.\d+\.\d+)(?:\.(?<platform>.+?))?\s)?
+	 *
+	 * @return index after the token or NONE if the single pass can not decide
+	 */
+	private int versionToken(int p) {
+		final int start = p + 1;
+		int q = start;
+		for (int i = 0; i < 3; i++) {
+			final int end = run(q, DIGIT);
+			if (end == q)
+				return NONE;
+			q = end;
+			if (i < 2) {
+				if (q >= to || s.charAt(q) != '.')
+					return NONE;
+				q++;
+			}
+		}
+		set(VERSION, start, q);
+
+		if (q < to && s.charAt(q) == '.') {
+			// lazy: up to the first whitespace
+			int w = q + 2;
+			while (w < to && !isWhitespace(s.charAt(w)))
+				w++;
+			if (w >= to)
+				return NONE;
+			set(PLATFORM, q + 1, w);
+			return w + 1;
+		}
+
+		if (q >= to || !isWhitespace(s.charAt(q)))
+			return NONE;
+		return q + 1;
+	}
+
+	/**
+	 * (?:(?<field>[+-]?[\d.]+)suffix\s)?
+	 */
+	private int receiverToken(int p, int field, boolean signed, String suffix) {
+		final int q = requiredWhitespace(requiredNumber(p, field, signed, suffix));
+		if (q == NONE) {
+			clear(field);
+			return p;
+		}
+		return q;
+	}
+
+	/**
+	 * (?:(?<cpuTemperature>[+-][\d.]+)C\s*)?
+	 */
+	private int cpuTemperatureToken(int p) {
+		final int q = requiredNumber(p, CPU_TEMPERATURE, true, "C");
+		if (q == NONE) {
+			clear(CPU_TEMPERATURE);
+			return p;
+		}
+		return skipAllWhitespace(q);
+	}
+
+	/**
+	 * (?:(?<visibleSenders>\d+)/(?<senders>\d+)Acfts\[1h\]\s*)?
+	 */
+	private int sendersToken(int p) {
+		final int slash = run(p, DIGIT);
+		if (slash == p || slash >= to || s.charAt(slash) != '/')
+			return p;
+		final int end = run(slash + 1, DIGIT);
+		if (end == slash + 1 || !startsWith(end, "Acfts[1h]"))
+			return p;
+
+		set(VISIBLE_SENDERS, p, slash);
+		set(SENDERS, slash + 1, end);
+		return skipAllWhitespace(end + 9);
+	}
+
+	/**
+	 * (?:RF:(?:(?<rfCorrectionManual>[+-][\d]+)(?<rfCorrectionAutomatic>[+-][\d.]+)ppm/)?
+	 * (?<signalQuality>[+-][\d.]+)dB(?:/...dB@10km\[...\])?(?:/...dB@10km\[.../...\])?)?
+	 */
+	private int rfToken(int p) {
+		if (!startsWith(p, "RF:"))
+			return p;
+		int q = p + 3;
+
+		// manual and automatic correction
+		if (isSign(q)) {
+			final int manualEnd = run(q + 1, DIGIT);
+			if (manualEnd > q + 1 && isSign(manualEnd)) {
+				final int automaticEnd = run(manualEnd + 1, DECIMAL);
+				if (automaticEnd > manualEnd + 1 && startsWith(automaticEnd, "ppm/")) {
+					set(RF_CORRECTION_MANUAL, q, manualEnd);
+					set(RF_CORRECTION_AUTOMATIC, manualEnd, automaticEnd);
+					q = automaticEnd + 4;
+				}
+			}
+		}
+
+		q = requiredNumber(q, SIGNAL_QUALITY, true, "dB");
+		if (q == NONE) {
+			clear(RF_CORRECTION_MANUAL);
+			clear(RF_CORRECTION_AUTOMATIC);
+			clear(SIGNAL_QUALITY);
+			return p;
+		}
+
+		// /+12.7dB@10km[28932]
+		int r = qualityAt10km(q, SENDERS_SIGNAL_QUALITY);
+		if (r != NONE) {
+			final int end = run(r, DIGIT);
+			if (end > r && end < to && s.charAt(end) == ']') {
+				set(SENDERS_MESSAGES, r, end);
+				q = end + 1;
+			} else {
+				clear(SENDERS_SIGNAL_QUALITY);
+			}
+		}
+
+		// /+22.2dB@10km[7/14]
+		r = qualityAt10km(q, GOOD_SENDERS_SIGNAL_QUALITY);
+		if (r != NONE) {
+			final int slash = run(r, DIGIT);
+			final int end = slash < to && s.charAt(slash) == '/' ? run(slash + 1, DIGIT) : NONE;
+			if (slash > r && end > slash + 1 && end < to && s.charAt(end) == ']') {
+				set(GOOD_SENDERS, r, slash);
+				set(GOOD_AND_BAD_SENDERS, slash + 1, end);
+				q = end + 1;
+			} else {
+				clear(GOOD_SENDERS_SIGNAL_QUALITY);
+			}
+		}
+
+		return q;
+	}
+
+	/**
+	 * /[+-][\d.]+dB@10km\[
+	 *
+	 * @return index after the '[' or NONE
+	 */
+	private int qualityAt10km(int p, int field) {
+		if (p >= to || s.charAt(p) != '/')
+			return NONE;
+		return requiredNumber(p + 1, field, true, "dB@10km[");
+	}
+
+	/**
+	 * [+-]?[\d.]+suffix
+	 *
+	 * @return index after the suffix or NONE
+	 */
+	private int requiredNumber(int p, int field, boolean signed, String suffix) {
+		if (p == NONE)
+			return NONE;
+		int q = p;
+		if (signed) {
+			if (!isSign(q))
+				return NONE;
+			q++;
+		}
+		final int end = run(q, DECIMAL);
+		if (end == q || !startsWith(end, suffix))
+			return NONE;
+
+		set(field, p, end);
+		return end + suffix.length();
+	}
+
+	private int requiredLiteral(int p, String literal) {
+		return p == NONE || !startsWith(p, literal) ? NONE : p + literal.length();
+	}
+
+	private int requiredWhitespace(int p) {
+		return p == NONE || p >= to || !isWhitespace(s.charAt(p)) ? NONE : p + 1;
+	}
+
+	private int skipWhitespace(int p) {
+		return p < to && isWhitespace(s.charAt(p)) ? p + 1 : p;
+	}
+
+	private int skipAllWhitespace(int p) {
+		while (p < to && isWhitespace(s.charAt(p)))
+			p++;
+		return p;
+	}
+
+	private int run(int p, int charClass) {
+		while (p < to && isOfClass(s.charAt(p), charClass))
+			p++;
+		return p;
+	}
+
+	private static boolean isOfClass(char c, int charClass) {
+		switch (charClass) {
+		case DIGIT:
+			return AprsEnvelope.isDigit(c);
+		case DECIMAL:
+			return AprsEnvelope.isDigit(c) || c == '.';
+		default:
+			return isUpperHexDigit(c);
+		}
+	}
+
+	private boolean startsWith(int p, String literal) {
+		if (p < 0 || p + literal.length() > to)
+			return false;
+		for (int i = 0; i < literal.length(); i++) {
+			if (s.charAt(p + i) != literal.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean isSign(int p) {
+		return p < to && (s.charAt(p) == '+' || s.charAt(p) == '-');
+	}
+
+	private static boolean isWhitespace(char c) {
+		return AprsEnvelope.isWhitespace(c);
+	}
+
+	private static boolean isWordChar(char c) {
+		return AprsEnvelope.isAlphanumeric(c) || c == '_';
+	}
+
+	private static boolean isUpperHexDigit(char c) {
+		return AprsEnvelope.isDigit(c) || c >= 'A' && c <= 'F';
+	}
+
+	private void set(int field, int start, int end) {
+		starts[field] = start;
+		ends[field] = end;
+	}
+
+	private void clear(int field) {
+		starts[field] = NONE;
+	}
+
+	/**
+	 * replaces the scanned line by an equal one (typically the detached copy), the offsets stay valid
+	 */
+	void rebind(CharSequence s) {
+		this.s = s;
+	}
+
+	/**
+	 * @return true if the field is present in the scanned comment
+	 */
+	public boolean has(int field) {
+		return starts[field] != NONE;
+	}
+
+	public String getString(int field) {
+		return has(field) ? s.subSequence(starts[field], ends[field]).toString() : null;
+	}
+
+	/**
+	 * @return the value of the field as a pooled string (for the values which repeat, like addresses or versions)
+	 */
+	public String getInternedString(int field) {
+		return has(field) ? AprsStringPool.getDefault().intern(s, starts[field], ends[field]) : null;
+	}
+
+	public float getFloat(int field) {
+		return AprsNumbers.parseFloat(s, starts[field], ends[field]);
+	}
+
+	public int getInt(int field) {
+		return AprsNumbers.parseInt(s, starts[field], ends[field]);
+	}
+
+	public int getHex(int field) {
+		return AprsNumbers.parseHex(s, starts[field], ends[field]);
+	}
+
+	/**
+	 * @return the 24-bit value of an aircraft address field or -1 if the field does not hold 6 hex digits
+	 */
+	public int getAddress(int field) {
+		return AprsUtils.parseAddress(s, starts[field], ends[field]);
+	}
+
+	/**
+	 * @return ids of the "heard" aircraft (16 bit, ascending, without duplicates)
+	 */
+	public int[] getHeardAircraftIds() {
+		return !has(PROXIMITY) ? NO_IDS : heardAircraftIds(s, starts[PROXIMITY], ends[PROXIMITY]);
+	}
+
+	int start(int field) {
+		return starts[field];
+	}
+
+	int end(int field) {
+		return ends[field];
+	}
+
+	/**
+	 * @return the maximal number of ids in a proximity field at the given range
+	 */
+	static int maxHeardAircraftIds(int start, int end) {
+		return (end - start) / HEAR_TOKEN_LENGTH;
+	}
+
+	/**
+	 * decodes the proximity field (hearXXXX hearYYYY ...)
+	 *
+	 * @return the ids, sorted and without duplicates
+	 */
+	static int[] heardAircraftIds(CharSequence s, int start, int end) {
+		final int[] ids = new int[maxHeardAircraftIds(start, end)];
+		final int count = heardAircraftIds(s, start, end, ids);
+		return count == ids.length ? ids : Arrays.copyOf(ids, count);
+	}
+
+	/**
+	 * decodes the proximity field (hearXXXX hearYYYY ...) into the given array, sorted and without duplicates
+	 *
+	 * @return number of the decoded ids
+	 */
+	static int heardAircraftIds(CharSequence s, int start, int end, int[] target) {
+		int count = 0;
+		for (int p = start; p + HEAR_TOKEN_LENGTH <= end; p += HEAR_TOKEN_LENGTH) {
+			target[count++] = AprsNumbers.parseHex(s, p + 4, p + HEAR_TOKEN_LENGTH);
+			if (p + HEAR_TOKEN_LENGTH < end && isWhitespace(s.charAt(p + HEAR_TOKEN_LENGTH)))
+				p++;
+		}
+
+		// a few ids at most, insertion sort dropping the duplicates
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			final int id = target[i];
+			int j = n - 1;
+			while (j >= 0 && target[j] > id)
+				j--;
+			if (j >= 0 && target[j] == id)
+				continue;
+			System.arraycopy(target, j + 1, target, j + 2, n - j - 1);
+			target[j + 1] = id;
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * @return the id of a heard aircraft in the APRS (4 hex digits) format
+	 */
+	static String formatHeardAircraftId(int id) {
+		final char[] chars = new char[4];
+		for (int i = 3; i >= 0; i--) {
+			chars[i] = HEX_DIGITS[id & 0xF];
+			id >>>= 4;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @return the ids of heard aircraft in the APRS format
+	 */
+	static String[] formatHeardAircraftIds(int[] ids, int count) {
+		final String[] result = new String[count];
+		for (int i = 0; i < count; i++)
+			result[i] = formatHeardAircraftId(ids[i]);
+		return result;
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import java.util.Arrays;
+
+/**
+ * Table of beacon decoders keyed by the dstcall (OGFLR, OGNTRK, OGADSB, OGNSDR, ...). The lookup works directly on
+ * the chars of the scanned line (open addressing, no substring is created) and is lock-free; registrations replace
+ * the whole table (copy-on-write), so they are meant to happen rarely, typically at start-up. Lines with a dstcall
+ * which is not registered go to the fallback decoder.
+ * <p>
+ * This is an extension point only: the default registry has no registrations and sends every line to the generic
+ * decoder (the dstcall is not even looked at while the table is empty). A consumer which wants a specialized decoder
+ * (e.g. <code>AprsDecoders.LAZY_AIRCRAFT</code>) registers it for the dstcalls it cares about in a registry of its
+ * own and creates its parser with it (<code>AprsLineParser.create(..., registry)</code>), so the other parsers are
+ * not affected.
+ */
+public class AprsDecoderRegistry {
+
+	private static final int MIN_CAPACITY = 32;
+
+	private static class Table {
+		final String[] keys;
+		final AprsBeaconDecoder[] decoders;
+		final int size;
+
+		Table(int capacity, int size) {
+			this.keys = new String[capacity];
+			this.decoders = new AprsBeaconDecoder[capacity];
+			this.size = size;
+		}
+	}
+
+	private static class AprsDecoderRegistryHolder {
+		private static final AprsDecoderRegistry theInstance = new AprsDecoderRegistry(AprsDecoders.GENERIC);
+
+		private AprsDecoderRegistryHolder() {
+		}
+	}
+
+	private volatile Table table = new Table(MIN_CAPACITY, 0);
+
+	private volatile AprsBeaconDecoder fallback;
+
+	/**
+	 * @param fallback
+	 *            decoder for the dstcalls which are not registered
+	 */
+	public AprsDecoderRegistry(AprsBeaconDecoder fallback) {
+		this.fallback = fallback;
+	}
+
+	/**
+	 * @return the registry of the parsers created without one, empty with the generic decoder as the fallback; it is
+	 *         shared by all those parsers, so the decoders are better registered in a registry of one's own
+	 */
+	public static AprsDecoderRegistry getDefault() {
+		return AprsDecoderRegistryHolder.theInstance;
+	}
+
+	/**
+	 * registers (or replaces) the decoder of a dstcall
+	 */
+	public synchronized void register(String dstcall, AprsBeaconDecoder decoder) {
+		if (dstcall == null || dstcall.isEmpty() || decoder == null)
+			throw new IllegalArgumentException("dstcall and decoder must be given");
+
+		final Table current = table;
+		final boolean replace = find(current, dstcall, 0, dstcall.length()) >= 0;
+		final int size = replace ? current.size : current.size + 1;
+
+		// keep the load factor under 1/2
+		int capacity = current.keys.length;
+		while (size * 2 > capacity)
+			capacity *= 2;
+
+		final Table next = new Table(capacity, size);
+		for (int i = 0; i < current.keys.length; i++) {
+			if (current.keys[i] != null && !current.keys[i].equals(dstcall))
+				put(next, current.keys[i], current.decoders[i]);
+		}
+		put(next, dstcall, decoder);
+		table = next;
+	}
+
+	/**
+	 * removes the decoder of a dstcall (its lines will go to the fallback decoder)
+	 */
+	public synchronized void unregister(String dstcall) {
+		final Table current = table;
+		if (find(current, dstcall, 0, dstcall.length()) < 0)
+			return;
+
+		final Table next = new Table(current.keys.length, current.size - 1);
+		for (int i = 0; i < current.keys.length; i++) {
+			if (current.keys[i] != null && !current.keys[i].equals(dstcall))
+				put(next, current.keys[i], current.decoders[i]);
+		}
+		table = next;
+	}
+
+	public void setFallback(AprsBeaconDecoder fallback) {
+		this.fallback = fallback;
+	}
+
+	public AprsBeaconDecoder getFallback() {
+		return fallback;
+	}
+
+	/**
+	 * @return the registered dstcalls, sorted
+	 */
+	public String[] getDstcalls() {
+		final Table current = table;
+		final String[] result = new String[current.size];
+		int n = 0;
+		for (final String key : current.keys) {
+			if (key != null)
+				result[n++] = key;
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * @return the decoder registered for the dstcall found in the given range of chars or the fallback decoder
+	 */
+	public AprsBeaconDecoder lookup(CharSequence s, int start, int end) {
+		final Table current = table;
+		if (current.size == 0)
+			return fallback;
+		final int i = find(current, s, start, end);
+		return i < 0 ? fallback : current.decoders[i];
+	}
+
+	/**
+	 * @return the decoder for the dstcall of a scanned line
+	 */
+	public AprsBeaconDecoder lookup(AprsEnvelope envelope) {
+		return lookup(envelope.getLine(), envelope.getDstcallStart(), envelope.getDstcallEnd());
+	}
+
+	private static void put(Table table, String key, AprsBeaconDecoder decoder) {
+		final int mask = table.keys.length - 1;
+		int i = hash(key, 0, key.length()) & mask;
+		while (table.keys[i] != null)
+			i = (i + 1) & mask;
+		table.keys[i] = key;
+		table.decoders[i] = decoder;
+	}
+
+	private static int find(Table table, CharSequence s, int start, int end) {
+		final int mask = table.keys.length - 1;
+		for (int i = hash(s, start, end) & mask;; i = (i + 1) & mask) {
+			final String key = table.keys[i];
+			if (key == null)
+				return -1;
+			if (equals(key, s, start, end))
+				return i;
+		}
+	}
+
+	private static int hash(CharSequence s, int start, int end) {
+		// the same as String.hashCode(), spread a bit as the table is small
+		int h = 0;
+		for (int i = start; i < end; i++)
+			h = 31 * h + s.charAt(i);
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean equals(String key, CharSequence s, int start, int end) {
+		if (key.length() != end - start)
+			return false;
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) != s.charAt(start + i))
+				return false;
+		}
+		return true;
+	}
+}
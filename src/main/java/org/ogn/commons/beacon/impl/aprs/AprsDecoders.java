@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.ReceiverBeaconType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The built-in decoders. The specialized ones hand anything but the format they are made for (e.g. a receiver comment
+ * under an aircraft dstcall) over to the generic decoder, so registering them never makes a line unparsable.
+ */
+public final class AprsDecoders {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AprsDecoders.class);
+
+	/**
+	 * the dstcalls of the aircraft beacons: APRS (still sent by most of the receivers) and the OGN ones of the
+	 * individual source types
+	 */
+	public static final List<String> AIRCRAFT_DSTCALLS = Collections.unmodifiableList(Arrays.asList("APRS", "OGFLR",
+			"OGNTRK", "OGADSB", "OGNFNT", "OGSKYL", "OGSPOT", "OGPAW", "OGLT24", "OGSPID", "OGNAVI", "OGCAPT", "OGFLYM"));
+
+	/**
+	 * tries both the aircraft and the receiver format (APRS and unknown dstcalls)
+	 */
+	public static final AprsBeaconDecoder GENERIC = AprsDecoders::decodeGeneric;
+
+	/**
+	 * aircraft position beacons decoded on demand (<code>LazyAprsAircraftBeacon</code>), to be registered for the
+	 * <code>AIRCRAFT_DSTCALLS</code> by the consumers which read only a few fields
+	 */
+	public static final AprsBeaconDecoder LAZY_AIRCRAFT = AprsDecoders::decodeLazyAircraft;
+
+	private AprsDecoders() {
+
+	}
+
+	private static AprsComment.Type classify(AprsEnvelope envelope) {
+		return envelope.hasComment() ? AprsComment.classify(envelope.getLine(), envelope.getCommentStart())
+				: AprsComment.Type.UNKNOWN;
+	}
+
+	private static OgnBeacon decodeGeneric(AprsEnvelope envelope, AprsComment comment) {
+		switch (classify(envelope)) {
+		case AIRCRAFT:
+			return envelope.isStatus() ? null : aircraft(envelope, comment);
+		case RECEIVER:
+			return receiver(envelope, comment);
+		default:
+			return envelope.isStatus() || envelope.hasComment() ? null : receiver(envelope, comment);
+		}
+	}
+
+	private static OgnBeacon decodeLazyAircraft(AprsEnvelope envelope, AprsComment comment) {
+		if (envelope.isStatus() || classify(envelope) != AprsComment.Type.AIRCRAFT)
+			return decodeGeneric(envelope, comment);
+		if (!AprsLineParser.scanComment(envelope, comment, true))
+			return null;
+
+		LOG.trace("Aircraft position beacon (lazy): {}", envelope.getLine());
+		return new LazyAprsAircraftBeacon(envelope, comment);
+	}
+
+	private static OgnBeacon aircraft(AprsEnvelope envelope, AprsComment comment) {
+		if (!AprsLineParser.scanComment(envelope, comment, true))
+			return null;
+
+		LOG.trace("Aircraft position beacon: {}", envelope.getLine());
+		return new AprsAircraftBeacon(envelope).update(comment);
+	}
+
+	private static OgnBeacon receiver(AprsEnvelope envelope, AprsComment comment) {
+		if (envelope.isStatus()) {
+			if (!AprsLineParser.scanComment(envelope, comment, false))
+				return null;
+			LOG.trace("Receiver status beacon: {}", envelope.getLine());
+			return new AprsReceiverBeacon(envelope, ReceiverBeaconType.RECEIVER_STATUS).update(comment);
+		}
+
+		if (!envelope.hasComment()) {
+			LOG.trace("Receiver position beacon without comment: {}", envelope.getLine());
+			return new AprsReceiverBeacon(envelope, ReceiverBeaconType.RECEIVER_POSITION);
+		}
+
+		if (!AprsLineParser.scanComment(envelope, comment, false))
+			return null;
+		LOG.trace("Receiver position beacon: {}", envelope.getLine());
+		return new AprsReceiverBeacon(envelope, ReceiverBeaconType.RECEIVER_POSITION).update(comment);
+	}
+}
@@ -0,0 +1,667 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.ogn.commons.utils.AprsUtils.aprsToMicroDegrees;
+import static org.ogn.commons.utils.AprsUtils.feetsToMetres;
+import static org.ogn.commons.utils.AprsUtils.kntToKmh;
+import static org.ogn.commons.utils.AprsUtils.microDegreesToDeg;
+
+import org.ogn.commons.utils.UtcTimestampResolver;
+
+/**
+ * Hand-written, regex-free scanner of the APRS "envelope" (everything before the OGN comment) of a single line. It
+ * accepts exactly the same lines as <code>AprsPatternConstants.PATTERN_APRS_STATUS</code> and
+ * <code>AprsPatternConstants.PATTERN_APRS_POSITION</code> and locates the same groups, but does it by walking the
+ * characters. The envelope only records offsets into the scanned line - strings are created when a field is asked
+ * for. An instance is not thread-safe, but can be re-used for scanning subsequent lines.
+ */
+public class AprsEnvelope {
+
+	static final int NONE = -1;
+
+	private CharSequence line;
+	private int length;
+
+	// indexes of the first and the last char the "." of a regex does not match
+	private int firstTerminator;
+	private int lastTerminator;
+
+	private boolean status;
+
+	private int callsignEnd;
+	private int dstcallStart;
+	private int dstcallEnd;
+	private int relayStart;
+	private int relayEnd;
+	private int receiverStart;
+	private int receiverEnd;
+	private int timeStart;
+
+	// position beacons only
+	private int latStart;
+	private int lonStart;
+	private int courseStart;
+	private int altStart;
+	private int enhancementStart;
+
+	private int commentStart;
+
+	// furthest index at which a scan attempt failed
+	private int rejectOffset;
+
+	private UtcTimestampResolver resolver;
+
+	public AprsEnvelope() {
+		this(UtcTimestampResolver.getDefault());
+	}
+
+	/**
+	 * @param resolver
+	 *            dates the hhmmss time of the scanned lines
+	 */
+	public AprsEnvelope(UtcTimestampResolver resolver) {
+		this.resolver = resolver;
+	}
+
+	void setResolver(UtcTimestampResolver resolver) {
+		this.resolver = resolver;
+	}
+
+	/**
+	 * scans the given line
+	 *
+	 * @param line
+	 *            single APRS line (without the line terminator)
+	 * @return true if the line is an APRS status or APRS position line, false otherwise
+	 */
+	public boolean scan(CharSequence line) {
+		this.line = line;
+		this.length = line.length();
+		clearFields();
+		rejectOffset = 0;
+
+		// a single pass locates the line terminators and tells whether the line may be a status and/or a position
+		boolean maybeStatus = false;
+		boolean maybePosition = false;
+		firstTerminator = length;
+		lastTerminator = NONE;
+		for (int i = 0; i < length; i++) {
+			final char c = line.charAt(i);
+			if (c == ':' && i + 1 < length) {
+				maybeStatus |= line.charAt(i + 1) == '>';
+				maybePosition |= line.charAt(i + 1) == '/';
+			} else if (isLineTerminator(c)) {
+				if (lastTerminator == NONE)
+					firstTerminator = i;
+				lastTerminator = i;
+			}
+		}
+
+		// the regex path checks for a status first, so must we
+		return maybeStatus && scanStatus() || maybePosition && scanPosition();
+	}
+
+	private void clearFields() {
+		status = false;
+		callsignEnd = dstcallStart = dstcallEnd = NONE;
+		relayStart = relayEnd = NONE;
+		receiverStart = receiverEnd = timeStart = NONE;
+		latStart = lonStart = courseStart = altStart = enhancementStart = NONE;
+		commentStart = NONE;
+	}
+
+	private boolean scanStatus() {
+		for (int gt = indexOf('>', 1); gt >= 0 && gt <= firstTerminator; gt = indexOf('>', gt + 1)) {
+			final int pathStart = scanDstcall(gt);
+			if (pathStart == NONE)
+				continue;
+
+			// ".+," - greedy, so the right-most comma goes first
+			for (int comma = lastIndexOf(',', firstTerminator - 1); comma > pathStart; comma = lastIndexOf(',',
+					comma - 1)) {
+				for (int sep = indexOf(":>", comma + 2); sep >= 0 && sep <= firstTerminator; sep = indexOf(":>",
+						sep + 1)) {
+					if (scanStatusTail(sep + 2)) {
+						status = true;
+						receiverStart = comma + 1;
+						receiverEnd = sep;
+						return true;
+					}
+				}
+			}
+		}
+		clearFields();
+		return false;
+	}
+
+	private boolean scanPosition() {
+		for (int gt = indexOf('>', 1); gt >= 0 && gt <= firstTerminator; gt = indexOf('>', gt + 1)) {
+			final int pathStart = scanDstcall(gt);
+			if (pathStart == NONE)
+				continue;
+
+			// optional "relay*" right after the dstcall
+			int p = pathStart;
+			while (p < length && isAlphanumeric(line.charAt(p)))
+				p++;
+			if (p > pathStart && p < length && line.charAt(p) == '*') {
+				relayStart = pathStart;
+				relayEnd = p;
+			} else {
+				relayStart = relayEnd = NONE;
+			}
+			final int anyStart = relayEnd == NONE ? pathStart : relayEnd + 1;
+
+			// ".*," - greedy, so the right-most comma goes first
+			for (int comma = lastIndexOf(',', firstTerminator - 1); comma >= anyStart; comma = lastIndexOf(',',
+					comma - 1)) {
+				for (int sep = indexOf(":/", comma + 2); sep >= 0 && sep <= firstTerminator; sep = indexOf(":/",
+						sep + 1)) {
+					if (scanPositionTail(sep + 2)) {
+						receiverStart = comma + 1;
+						receiverEnd = sep;
+						return true;
+					}
+				}
+			}
+		}
+		clearFields();
+		return false;
+	}
+
+	/**
+	 * @return index of the first char after "dstcall," or NONE
+	 */
+	private int scanDstcall(int gt) {
+		int p = gt + 1;
+		while (p < length && isUpperCaseOrDigit(line.charAt(p)))
+			p++;
+		if (p == gt + 1 || p >= length || line.charAt(p) != ',') {
+			reject(p);
+			return NONE;
+		}
+
+		callsignEnd = gt;
+		dstcallStart = gt + 1;
+		dstcallEnd = p;
+		return p + 1;
+	}
+
+	/**
+	 * "(\d{6})+h" - at least six digits (a multiple of six) followed by 'h'. The last six digits are the time.
+	 *
+	 * @return index of the char after 'h' or NONE
+	 */
+	private int scanTime(int p) {
+		int d = p;
+		while (d < length && isDigit(line.charAt(d)))
+			d++;
+		final int digits = d - p;
+		if (digits < 6 || digits % 6 != 0 || d >= length || line.charAt(d) != 'h') {
+			reject(d);
+			return NONE;
+		}
+		timeStart = d - 6;
+		return d + 1;
+	}
+
+	private boolean scanStatusTail(int p) {
+		p = scanTime(p);
+		if (p == NONE)
+			return false;
+		if (p >= length || !isWhitespace(line.charAt(p)))
+			return reject(p);
+		if (lastTerminator > p)
+			return reject(lastTerminator);
+
+		commentStart = p + 1;
+		return true;
+	}
+
+	private boolean scanPositionTail(int p) {
+		p = scanTime(p);
+		if (p == NONE)
+			return false;
+		if (p + 19 > length)
+			return reject(p);
+
+		// DDMM.mm[NS] symbol-table DDDMM.mm[EW] symbol
+		if (!isDecimal(p, 4, 2) || !isOneOf(p + 7, 'N', 'S') || !isDot(p + 8))
+			return reject(p);
+		if (!isDecimal(p + 9, 5, 2) || !isOneOf(p + 17, 'E', 'W') || !isDot(p + 18))
+			return reject(p + 9);
+		latStart = p;
+		lonStart = p + 9;
+		p += 19;
+
+		// optional ddd/ddd
+		if (p + 7 <= length && isDigits(p, 3) && line.charAt(p + 3) == '/' && isDigits(p + 4, 3)) {
+			courseStart = p;
+			p += 7;
+		} else {
+			courseStart = NONE;
+		}
+
+		// /A=dddddd
+		if (p + 9 > length || line.charAt(p) != '/' || line.charAt(p + 1) != 'A' || line.charAt(p + 2) != '='
+				|| !isDigits(p + 3, 6))
+			return reject(p);
+		altStart = p + 3;
+		p += 9;
+
+		// optional " !Wdd!", taken only if the rest of the line can still match
+		if (p + 6 <= length && isWhitespace(line.charAt(p)) && line.charAt(p + 1) == '!'
+				&& line.charAt(p + 2) == 'W' && isDigits(p + 3, 2) && line.charAt(p + 5) == '!'
+				&& (p + 6 == length || isWhitespace(line.charAt(p + 6)))) {
+			enhancementStart = p + 3;
+			p += 6;
+		} else {
+			enhancementStart = NONE;
+		}
+
+		// optional " comment"
+		if (p == length) {
+			commentStart = NONE;
+			return true;
+		}
+		if (!isWhitespace(line.charAt(p)))
+			return reject(p);
+		if (lastTerminator > p)
+			return reject(lastTerminator);
+
+		commentStart = p + 1;
+		return true;
+	}
+
+	private boolean reject(int offset) {
+		if (offset > rejectOffset)
+			rejectOffset = offset;
+		return false;
+	}
+
+	/**
+	 * @return index of the char at which the scan of a line which is not an APRS status or position got the
+	 *         furthest (best effort: the scanner tries several ways to split the line)
+	 */
+	public int getRejectOffset() {
+		return rejectOffset;
+	}
+
+	/**
+	 * @return true if the six digits at the given index are a valid hhmmss time
+	 */
+	static boolean isValidTime(CharSequence s, int start) {
+		return digits(s, start, 2) < 24 && digits(s, start + 2, 2) < 60 && digits(s, start + 4, 2) < 60;
+	}
+
+	/**
+	 * @return true if the DDMM.mm (or DDDMM.mm) coordinate at the given index has less than 60 minutes
+	 */
+	static boolean isValidCoordinate(CharSequence s, int start, int degreeDigits) {
+		// the degrees are not bounded: relayed (and some test) beacons carry latitudes beyond 90 degrees
+		return digits(s, start + degreeDigits, 2) < 60;
+	}
+
+	private static int digits(CharSequence s, int start, int count) {
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			value = value * 10 + (s.charAt(i) - '0');
+		}
+		return value;
+	}
+
+	private boolean isDot(int i) {
+		return !isLineTerminator(line.charAt(i));
+	}
+
+	private boolean isOneOf(int i, char c1, char c2) {
+		final char c = line.charAt(i);
+		return c == c1 || c == c2;
+	}
+
+	private boolean isDigits(int from, int count) {
+		for (int i = from; i < from + count; i++) {
+			if (!isDigit(line.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean isDecimal(int from, int intDigits, int fractionDigits) {
+		return isDigits(from, intDigits) && line.charAt(from + intDigits) == '.'
+				&& isDigits(from + intDigits + 1, fractionDigits);
+	}
+
+	private int indexOf(char c, int from) {
+		for (int i = from; i < length; i++) {
+			if (line.charAt(i) == c)
+				return i;
+		}
+		return NONE;
+	}
+
+	private int indexOf(String s, int from) {
+		final int last = length - s.length();
+		outer: for (int i = from; i <= last; i++) {
+			for (int j = 0; j < s.length(); j++) {
+				if (line.charAt(i + j) != s.charAt(j))
+					continue outer;
+			}
+			return i;
+		}
+		return NONE;
+	}
+
+	private int lastIndexOf(char c, int from) {
+		for (int i = Math.min(from, length - 1); i >= 0; i--) {
+			if (line.charAt(i) == c)
+				return i;
+		}
+		return NONE;
+	}
+
+	static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	static boolean isUpperCaseOrDigit(char c) {
+		return c >= 'A' && c <= 'Z' || isDigit(c);
+	}
+
+	static boolean isAlphanumeric(char c) {
+		return c >= 'a' && c <= 'z' || isUpperCaseOrDigit(c);
+	}
+
+	/**
+	 * the "\s" class of java.util.regex
+	 */
+	static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * chars which the "." of java.util.regex does not match
+	 */
+	static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	/**
+	 * @return latitude in degrees (including the !Wab! enhancement, negative on the southern hemisphere)
+	 */
+	public double decodeLat() {
+		return microDegreesToDeg(decodeLatMicroDegrees());
+	}
+
+	/**
+	 * @return latitude in micro-degrees (decoded from the chars, without floating point arithmetic)
+	 */
+	public int decodeLatMicroDegrees() {
+		final int lat = aprsToMicroDegrees(line, latStart, 2, !hasEnhancement() ? 0 : getLatitudeEnhancementValue());
+		return getLatitudeSign() == 'S' ? -lat : lat;
+	}
+
+	/**
+	 * @return longitude in degrees (including the !Wab! enhancement, negative on the western hemisphere)
+	 */
+	public double decodeLon() {
+		return microDegreesToDeg(decodeLonMicroDegrees());
+	}
+
+	/**
+	 * @return longitude in micro-degrees (decoded from the chars, without floating point arithmetic)
+	 */
+	public int decodeLonMicroDegrees() {
+		final int lon = aprsToMicroDegrees(line, lonStart, 3, !hasEnhancement() ? 0 : getLongitudeEnhancementValue());
+		return getLongitudeSign() == 'W' ? -lon : lon;
+	}
+
+	/**
+	 * @return course in deg, 0 if not present
+	 */
+	public int decodeTrack() {
+		return !hasCourse() ? 0 : getCourseValue();
+	}
+
+	/**
+	 * @return ground speed in km/h, 0 if not present
+	 */
+	public float decodeGroundSpeed() {
+		return !hasCourse() ? 0 : kntToKmh(getGroundSpeedValue());
+	}
+
+	/**
+	 * @return altitude in m
+	 */
+	public float decodeAlt() {
+		return feetsToMetres(getAltitudeValue());
+	}
+
+	int getCallsignEnd() {
+		return callsignEnd;
+	}
+
+	int getDstcallStart() {
+		return dstcallStart;
+	}
+
+	int getDstcallEnd() {
+		return dstcallEnd;
+	}
+
+	int getReceiverStart() {
+		return receiverStart;
+	}
+
+	int getReceiverEnd() {
+		return receiverEnd;
+	}
+
+	int getTimeStart() {
+		return timeStart;
+	}
+
+	int getLatitudeStart() {
+		return latStart;
+	}
+
+	int getLongitudeStart() {
+		return lonStart;
+	}
+
+	/**
+	 * decodes already validated decimal digits
+	 */
+	private int digits(int start, int count) {
+		return digits(line, start, count);
+	}
+
+	private String field(int start, int end) {
+		return start == NONE ? null : line.subSequence(start, end).toString();
+	}
+
+	private String internedField(int start, int end) {
+		return start == NONE ? null : AprsStringPool.getDefault().intern(line, start, end);
+	}
+
+	public CharSequence getLine() {
+		return line;
+	}
+
+	/**
+	 * @return the scanned line in a form which stays valid after the scanned buffer is re-used (the line itself if
+	 *         it is a String)
+	 */
+	public CharSequence detachLine() {
+		if (line instanceof String)
+			return line;
+		return line instanceof AsciiCharSequence ? ((AsciiCharSequence) line).copy() : line.toString();
+	}
+
+	/**
+	 * replaces the scanned line by an equal one (typically the detached copy), the offsets stay valid
+	 */
+	void rebind(CharSequence line) {
+		this.line = line;
+	}
+
+	/**
+	 * @return true for an APRS status line, false for an APRS position line
+	 */
+	public boolean isStatus() {
+		return status;
+	}
+
+	public String getCallsign() {
+		return internedField(0, callsignEnd);
+	}
+
+	public String getDstcall() {
+		return internedField(dstcallStart, dstcallEnd);
+	}
+
+	/**
+	 * @return name of the relaying station or null if the beacon was not relayed (position lines only)
+	 */
+	public String getRelay() {
+		return internedField(relayStart, relayEnd);
+	}
+
+	public boolean isRelayed() {
+		return relayStart != NONE;
+	}
+
+	public String getReceiver() {
+		return internedField(receiverStart, receiverEnd);
+	}
+
+	/**
+	 * @return time in 6 digit (hhmmss) format
+	 */
+	public String getTime() {
+		return field(timeStart, timeStart + 6);
+	}
+
+	/**
+	 * @return the time as unix timestamp, dated by the resolver of this envelope
+	 */
+	public long getTimestamp() {
+		return resolver.resolve(digits(timeStart, 2), digits(timeStart + 2, 2), digits(timeStart + 4, 2));
+	}
+
+	/**
+	 * @return latitude in DDMM.mm format
+	 */
+	public String getLatitude() {
+		return field(latStart, latStart + 7);
+	}
+
+	/**
+	 * @return the value of the DDMM.mm latitude
+	 */
+	public double getLatitudeValue() {
+		return AprsNumbers.parseDouble(line, latStart, latStart + 7);
+	}
+
+	public char getLatitudeSign() {
+		return line.charAt(latStart + 7);
+	}
+
+	public char getSymbolTable() {
+		return line.charAt(latStart + 8);
+	}
+
+	/**
+	 * @return longitude in DDDMM.mm format
+	 */
+	public String getLongitude() {
+		return field(lonStart, lonStart + 8);
+	}
+
+	/**
+	 * @return the value of the DDDMM.mm longitude
+	 */
+	public double getLongitudeValue() {
+		return AprsNumbers.parseDouble(line, lonStart, lonStart + 8);
+	}
+
+	public char getLongitudeSign() {
+		return line.charAt(lonStart + 8);
+	}
+
+	public char getSymbol() {
+		return line.charAt(lonStart + 9);
+	}
+
+	public boolean hasCourse() {
+		return courseStart != NONE;
+	}
+
+	public String getCourse() {
+		return field(courseStart, courseStart + 3);
+	}
+
+	public String getGroundSpeed() {
+		return courseStart == NONE ? null : field(courseStart + 4, courseStart + 7);
+	}
+
+	public int getCourseValue() {
+		return digits(courseStart, 3);
+	}
+
+	public int getGroundSpeedValue() {
+		return digits(courseStart + 4, 3);
+	}
+
+	public String getAltitude() {
+		return field(altStart, altStart + 6);
+	}
+
+	public int getAltitudeValue() {
+		return digits(altStart, 6);
+	}
+
+	/**
+	 * @return true if the !Wab! position enhancement is present
+	 */
+	public boolean hasEnhancement() {
+		return enhancementStart != NONE;
+	}
+
+	public String getLatitudeEnhancement() {
+		return field(enhancementStart, enhancementStart + 1);
+	}
+
+	public String getLongitudeEnhancement() {
+		return enhancementStart == NONE ? null : field(enhancementStart + 1, enhancementStart + 2);
+	}
+
+	public int getLatitudeEnhancementValue() {
+		return digits(enhancementStart, 1);
+	}
+
+	public int getLongitudeEnhancementValue() {
+		return digits(enhancementStart + 1, 1);
+	}
+
+	public boolean hasComment() {
+		return commentStart != NONE;
+	}
+
+	/**
+	 * @return index of the comment's first char in the line or NONE
+	 */
+	public int getCommentStart() {
+		return commentStart;
+	}
+
+	/**
+	 * @return the comment or null if the (position) line has none
+	 */
+	public String getComment() {
+		return commentStart == NONE ? null : line.subSequence(commentStart, length).toString();
+	}
+}
@@ -4,8 +4,19 @@
 
 package org.ogn.commons.beacon.impl.aprs;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
 import org.ogn.commons.beacon.OgnBeacon;
 import org.ogn.commons.beacon.ReceiverBeaconType;
+import org.ogn.commons.beacon.impl.aprs.AprsComment.ScanResult;
+import org.ogn.commons.utils.UtcTimestampResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +24,15 @@ import com.google.code.regexp.Matcher;
 import com.google.code.regexp.Pattern;
 
 public class AprsLineParser {
+
+	/**
+	 * SCANNER - the APRS envelope is decoded by the hand-written <code>AprsEnvelope</code> scanner (default), REGEX -
+	 * the APRS envelope is decoded by the <code>AprsPatternConstants</code> regular expressions
+	 */
+	public enum Mode {
+		SCANNER, REGEX
+	}
+
 	private static Pattern aprsPositionPattern = Pattern.compile(AprsPatternConstants.PATTERN_APRS_POSITION,
 			Pattern.MULTILINE);
 	private static Pattern aprsStatusPattern = Pattern.compile(AprsPatternConstants.PATTERN_APRS_STATUS,
@@ -22,56 +42,693 @@ public class AprsLineParser {
 
 	private static final Logger LOG = LoggerFactory.getLogger(AprsLineParser.class);
 
+	// lines parsed by one fork-join task
+	private static final int BATCH_THRESHOLD = 512;
+
+	// lines read from a stream before they are parsed
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final Mode mode;
+
+	private final AprsParseCache cache;
+
+	private final AprsRejectSink rejectSink;
+
+	private final AprsParserStats stats;
+
+	private final UtcTimestampResolver resolver;
+
+	private final AprsDecoderRegistry registry;
+
 	private static class AprsLineParserHolder {
-		private static AprsLineParser theInstance = new AprsLineParser();
+		private static AprsLineParser theInstance = new AprsLineParser(Mode.SCANNER);
+		private static AprsLineParser theRegexInstance = new AprsLineParser(Mode.REGEX);
 
 		private AprsLineParserHolder() {
 		}
 	}
 
+	private AprsLineParser(Mode mode) {
+		this(mode, null, null, null, UtcTimestampResolver.getDefault(), AprsDecoderRegistry.getDefault());
+	}
+
+	private AprsLineParser(Mode mode, AprsParseCache cache, AprsRejectSink rejectSink, AprsParserStats stats,
+			UtcTimestampResolver resolver, AprsDecoderRegistry registry) {
+		this.mode = mode;
+		this.cache = cache;
+		this.rejectSink = rejectSink;
+		this.stats = stats;
+		this.resolver = resolver;
+		this.registry = registry;
+	}
+
 	public static AprsLineParser get() {
 		return AprsLineParserHolder.theInstance;
 	}
 
+	public static AprsLineParser get(Mode mode) {
+		return mode == Mode.REGEX ? AprsLineParserHolder.theRegexInstance : AprsLineParserHolder.theInstance;
+	}
+
+	/**
+	 * creates a parser which looks the lines up in the given cache before parsing them, for the feeds in which the
+	 * same lines repeat (e.g. when connected to several APRS-IS servers). The cache may be shared by several parsers.
+	 */
+	public static AprsLineParser withCache(Mode mode, AprsParseCache cache) {
+		if (cache == null)
+			throw new IllegalArgumentException("cache must not be null");
+		return new AprsLineParser(mode, cache, null, null, UtcTimestampResolver.getDefault(),
+				AprsDecoderRegistry.getDefault());
+	}
+
+	/**
+	 * creates a parser with an optional cache of the parsed lines and an optional sink of the rejected lines
+	 *
+	 * @param cache
+	 *            cache of the parsed lines (may be null)
+	 * @param rejectSink
+	 *            receives the rejected lines (may be null)
+	 */
+	public static AprsLineParser create(Mode mode, AprsParseCache cache, AprsRejectSink rejectSink) {
+		return new AprsLineParser(mode, cache, rejectSink, null, UtcTimestampResolver.getDefault(),
+				AprsDecoderRegistry.getDefault());
+	}
+
+	/**
+	 * creates a parser with an optional cache of the parsed lines, an optional sink of the rejected lines and
+	 * optional stats
+	 *
+	 * @param cache
+	 *            cache of the parsed lines (may be null)
+	 * @param rejectSink
+	 *            receives the rejected lines (may be null)
+	 * @param stats
+	 *            counts the lines and times the stages of their parsing (may be null, may be shared by several
+	 *            parsers)
+	 */
+	public static AprsLineParser create(Mode mode, AprsParseCache cache, AprsRejectSink rejectSink,
+			AprsParserStats stats) {
+		return new AprsLineParser(mode, cache, rejectSink, stats, UtcTimestampResolver.getDefault(),
+				AprsDecoderRegistry.getDefault());
+	}
+
+	/**
+	 * the same as <code>create(mode, cache, rejectSink, stats)</code>, with the beacons dated by the given resolver
+	 * instead of the system UTC clock (e.g. by one with a clock following a replayed log)
+	 *
+	 * @param resolver
+	 *            dates the hhmmss time of the lines; a cache shared by several parsers should only be shared by
+	 *            parsers with the same resolver
+	 */
+	public static AprsLineParser create(Mode mode, AprsParseCache cache, AprsRejectSink rejectSink,
+			AprsParserStats stats, UtcTimestampResolver resolver) {
+		return create(mode, cache, rejectSink, stats, resolver, AprsDecoderRegistry.getDefault());
+	}
+
+	/**
+	 * the same as <code>create(mode, cache, rejectSink, stats, resolver)</code>, with the lines decoded by the
+	 * decoders of the given registry (scanner mode only, the regex mode has no decoders), e.g. a private registry
+	 * with <code>AprsDecoders.LAZY_AIRCRAFT</code> for the aircraft dstcalls
+	 *
+	 * @param registry
+	 *            decoders by dstcall; a cache shared by several parsers should only be shared by parsers with the
+	 *            same registry
+	 */
+	public static AprsLineParser create(Mode mode, AprsParseCache cache, AprsRejectSink rejectSink,
+			AprsParserStats stats, UtcTimestampResolver resolver, AprsDecoderRegistry registry) {
+		if (resolver == null)
+			throw new IllegalArgumentException("resolver must not be null");
+		if (registry == null)
+			throw new IllegalArgumentException("registry must not be null");
+		return new AprsLineParser(mode, cache, rejectSink, stats, resolver, registry);
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * @return the cache of the parsed lines or null if this parser does not cache
+	 */
+	public AprsParseCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * @return the sink of the rejected lines or null if this parser has none
+	 */
+	public AprsRejectSink getRejectSink() {
+		return rejectSink;
+	}
+
+	/**
+	 * @return the decoders of this parser
+	 */
+	public AprsDecoderRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * @return the resolver dating the beacons of this parser
+	 */
+	public UtcTimestampResolver getResolver() {
+		return resolver;
+	}
+
+	/**
+	 * @return the metrics of this parser or null if it does not keep them
+	 */
+	public AprsParserMetrics getMetrics() {
+		return stats;
+	}
+
+	/**
+	 * @return the beacon or null if the line is not recognized or malformed
+	 */
 	public OgnBeacon parse(String aprsLine) {
 		LOG.trace(aprsLine);
-		OgnBeacon result = null;
-
-		final Matcher statusMatcher = aprsStatusPattern.matcher(aprsLine);
-		final Matcher positionMatcher = aprsPositionPattern.matcher(aprsLine);
-
-		// Check if we have a APRS status
-		if (statusMatcher.matches()) {
-			final String comment = statusMatcher.group("comment");
-			final Matcher receiverMatcher = ognReceiverPattern.matcher(comment);
-			if (receiverMatcher.matches()) {
-				LOG.trace("Receiver status beacon: {}", aprsLine);
-				result = new AprsReceiverBeacon(statusMatcher, ReceiverBeaconType.RECEIVER_STATUS)
-						.update(receiverMatcher);
+		return parseBeacon(aprsLine);
+	}
+
+	/**
+	 * parses a single APRS line; bad lines are reported in the result, not by exceptions
+	 *
+	 * @return the beacon or the reason why the line was rejected
+	 */
+	public AprsParseResult tryParse(String aprsLine) {
+		LOG.trace(aprsLine);
+		return parseLine(aprsLine);
+	}
+
+	private OgnBeacon parseBeacon(CharSequence aprsLine) {
+		// the result is only needed to be counted, cached or offered to the sink, a plain parse goes without it
+		if (stats != null || cache != null || rejectSink != null)
+			return parseLine(aprsLine).getBeacon();
+		return isServerComment(aprsLine) ? null : decode(aprsLine, null);
+	}
+
+	private AprsParseResult parseLine(CharSequence aprsLine) {
+		if (stats == null)
+			return parseLineUncounted(aprsLine);
+
+		stats.recordLine(aprsLine);
+		final AprsParseResult result = parseLineUncounted(aprsLine);
+		stats.recordResult(result);
+		return result;
+	}
+
+	private AprsParseResult parseLineUncounted(CharSequence aprsLine) {
+		if (isServerComment(aprsLine))
+			return AprsParseResult.rejected(AprsRejectReason.SERVER_COMMENT, 0, aprsLine);
+		if (cache == null)
+			return parseUncached(aprsLine);
+
+		final int hash = AprsParseCache.hash(aprsLine);
+		final AprsParseCache.Entry cached = cache.lookup(aprsLine, hash);
+		if (cached != null)
+			return cached.result;
+
+		final AprsParseResult result = parseUncached(aprsLine);
+		cache.put(aprsLine.toString(), hash, result);
+		return result;
+	}
+
+	private AprsParseResult parseUncached(CharSequence aprsLine) {
+		final Reject reject = new Reject();
+		final OgnBeacon beacon = decode(aprsLine, reject);
+		if (beacon != null)
+			return AprsParseResult.accepted(beacon);
+
+		final AprsParseResult result = AprsParseResult.rejected(reject.reason, reject.offset, aprsLine);
+		if (rejectSink != null)
+			rejectSink.offer(result);
+		return result;
+	}
+
+	/**
+	 * @param reject
+	 *            receives the reason of the reject, may be null if it is not needed
+	 * @return the beacon or null if the line is rejected
+	 */
+	private OgnBeacon decode(CharSequence aprsLine, Reject reject) {
+		return mode == Mode.REGEX ? parseWithRegex(aprsLine.toString(), reject) : parseWithScanner(aprsLine, reject);
+	}
+
+	/**
+	 * @return true for the comment lines (# ...) sent by APRS-IS servers
+	 */
+	private static boolean isServerComment(CharSequence aprsLine) {
+		return aprsLine.length() > 0 && aprsLine.charAt(0) == '#';
+	}
+
+	/**
+	 * parses a batch of lines in parallel (in the common fork-join pool)
+	 *
+	 * @return the beacons and the rejected lines, both in input order
+	 */
+	public AprsBatchResult parseAll(List<String> aprsLines) {
+		final List<OgnBeacon> beacons = new ArrayList<>(aprsLines.size());
+		final List<String> rejected = new ArrayList<>();
+		parseChunk(aprsLines.toArray(new String[0]), ForkJoinPool.commonPool(), beacons::add, rejected::add);
+		return new AprsBatchResult(beacons, rejected);
+	}
+
+	/**
+	 * parses a (possibly huge) stream of lines in parallel
+	 *
+	 * @param parallelism
+	 *            number of worker threads
+	 * @return the beacons and the rejected lines, both in input order
+	 */
+	public AprsBatchResult parseAll(Stream<String> aprsLines, int parallelism) {
+		final List<OgnBeacon> beacons = new ArrayList<>();
+		final List<String> rejected = new ArrayList<>();
+		parseAll(aprsLines, parallelism, beacons::add, rejected::add);
+		return new AprsBatchResult(beacons, rejected);
+	}
+
+	/**
+	 * parses a (possibly huge) stream of lines in parallel, without keeping the results. The stream is consumed in
+	 * chunks, each chunk is parsed by a fork-join pool and its results are handed over in input order, in the calling
+	 * thread.
+	 *
+	 * @param parallelism
+	 *            number of worker threads
+	 * @param beaconConsumer
+	 *            receives the beacons
+	 * @param rejectConsumer
+	 *            receives the lines which are not recognized or malformed
+	 */
+	public void parseAll(Stream<String> aprsLines, int parallelism, Consumer<? super OgnBeacon> beaconConsumer,
+			Consumer<? super String> rejectConsumer) {
+		final ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			final List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+			final Iterator<String> it = aprsLines.iterator();
+			while (it.hasNext()) {
+				chunk.add(it.next());
+				if (chunk.size() == CHUNK_SIZE || !it.hasNext()) {
+					parseChunk(chunk.toArray(new String[0]), pool, beaconConsumer, rejectConsumer);
+					chunk.clear();
+				}
 			}
-			// Check if we have a APRS position
-		} else if (positionMatcher.matches()) {
-			final String comment = positionMatcher.group("comment");
-			if (comment == null) {
-				LOG.trace("Receiver position beacon without comment: {}", aprsLine);
-				result = new AprsReceiverBeacon(positionMatcher, ReceiverBeaconType.RECEIVER_POSITION);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void parseChunk(String[] aprsLines, ForkJoinPool pool, Consumer<? super OgnBeacon> beaconConsumer,
+			Consumer<? super String> rejectConsumer) {
+		final OgnBeacon[] beacons = new OgnBeacon[aprsLines.length];
+		pool.invoke(new ParseTask(aprsLines, beacons, 0, aprsLines.length));
+
+		for (int i = 0; i < aprsLines.length; i++) {
+			if (beacons[i] != null) {
+				beaconConsumer.accept(beacons[i]);
 			} else {
-				final Matcher aircraftMatcher = ognAircraftPattern.matcher(comment);
-				if (aircraftMatcher.matches()) {
-					LOG.trace("Aircraft position beacon: {}", aprsLine);
-					final boolean isRelayed = false;
-					result = new AprsAircraftBeacon(positionMatcher, isRelayed).update(aircraftMatcher);
-				}
+				rejectConsumer.accept(aprsLines[i]);
+			}
+		}
+	}
+
+	/**
+	 * parses a range of lines, splitting it as long as it is larger than the threshold
+	 */
+	private class ParseTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
 
-				final Matcher receiverMatcher = ognReceiverPattern.matcher(comment);
-				if (receiverMatcher.matches()) {
-					LOG.trace("Receiver position beacon: {}", aprsLine);
-					result = new AprsReceiverBeacon(positionMatcher, ReceiverBeaconType.RECEIVER_POSITION)
-							.update(receiverMatcher);
+		private final String[] aprsLines;
+		private final OgnBeacon[] beacons;
+		private final int from;
+		private final int to;
+
+		ParseTask(String[] aprsLines, OgnBeacon[] beacons, int from, int to) {
+			this.aprsLines = aprsLines;
+			this.beacons = beacons;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH_THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					beacons[i] = parseQuietly(aprsLines[i]);
 				}
+				return;
 			}
+
+			final int mid = (from + to) >>> 1;
+			invokeAll(new ParseTask(aprsLines, beacons, from, mid), new ParseTask(aprsLines, beacons, mid, to));
+		}
+	}
+
+	/**
+	 * @return the beacon or null if the line is not recognized or malformed
+	 */
+	private OgnBeacon parseQuietly(String aprsLine) {
+		try {
+			return parse(aprsLine);
+		} catch (final RuntimeException ex) {
+			LOG.debug("Malformed line: {}", aprsLine, ex);
+			return null;
+		}
+	}
+
+	/**
+	 * parses a single APRS line held as ASCII bytes in an array. The fields are decoded straight from the bytes, the
+	 * array is not referenced by the returned beacon.
+	 *
+	 * @param buf
+	 *            the bytes
+	 * @param off
+	 *            index of the line's first byte
+	 * @param len
+	 *            length of the line (without the line terminator)
+	 */
+	public OgnBeacon parse(byte[] buf, int off, int len) {
+		return parse(new AsciiCharSequence(buf, off, len));
+	}
+
+	/**
+	 * the same as <code>parse(byte[], int, int)</code>, with the reason of the reject if the line is bad
+	 */
+	public AprsParseResult tryParse(byte[] buf, int off, int len) {
+		return tryParse(new AsciiCharSequence(buf, off, len));
+	}
+
+	/**
+	 * parses a single APRS line held as ASCII bytes in a (heap or direct) buffer. The fields are decoded straight from
+	 * the buffer, its position and limit are not changed and it is not referenced by the returned beacon.
+	 *
+	 * @param buf
+	 *            the buffer
+	 * @param off
+	 *            absolute index of the line's first byte
+	 * @param len
+	 *            length of the line (without the line terminator)
+	 */
+	public OgnBeacon parse(ByteBuffer buf, int off, int len) {
+		return parse(new AsciiCharSequence(buf, off, len));
+	}
+
+	/**
+	 * the same as <code>parse(ByteBuffer, int, int)</code>, with the reason of the reject if the line is bad
+	 */
+	public AprsParseResult tryParse(ByteBuffer buf, int off, int len) {
+		return tryParse(new AsciiCharSequence(buf, off, len));
+	}
+
+	/**
+	 * parses an aircraft beacon into a caller-owned, re-usable instance (always with the scanner, whatever the mode
+	 * of this parser). Nothing is allocated per beacon except when the comment has to be decided by the regex.
+	 *
+	 * @param aprsLine
+	 *            single APRS line, e.g. a String or an <code>AsciiCharSequence</code> over a byte buffer
+	 * @param target
+	 *            the beacon to overwrite
+	 * @return true if the line is an aircraft beacon and the target was overwritten, false otherwise (the target is
+	 *         then left in an unspecified state)
+	 */
+	public boolean parseInto(CharSequence aprsLine, MutableAircraftBeacon target) {
+		final AprsEnvelope envelope = target.envelope;
+		envelope.setResolver(resolver);
+		if (isServerComment(aprsLine) || !envelope.scan(aprsLine) || envelope.isStatus() || !envelope.hasComment()
+				|| !checkTimeAndPosition(aprsLine, envelope, null))
+			return false;
+
+		if (AprsComment.classify(aprsLine, envelope.getCommentStart()) != AprsComment.Type.AIRCRAFT
+				|| !scanComment(envelope, target.comment, true))
+			return false;
+
+		try {
+			target.load(envelope, target.comment);
+		} catch (final NumberFormatException ex) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * parses a receiver (status or position) beacon into a caller-owned, re-usable instance (always with the scanner,
+	 * whatever the mode of this parser)
+	 *
+	 * @param aprsLine
+	 *            single APRS line, e.g. a String or an <code>AsciiCharSequence</code> over a byte buffer
+	 * @param target
+	 *            the beacon to overwrite
+	 * @return true if the line is a receiver beacon and the target was overwritten, false otherwise (the target is
+	 *         then left in an unspecified state)
+	 */
+	public boolean parseInto(CharSequence aprsLine, MutableReceiverBeacon target) {
+		final AprsEnvelope envelope = target.envelope;
+		envelope.setResolver(resolver);
+		if (isServerComment(aprsLine) || !envelope.scan(aprsLine) || !checkTimeAndPosition(aprsLine, envelope, null))
+			return false;
+
+		if (!envelope.isStatus() && !envelope.hasComment()) {
+			target.load(envelope, null, ReceiverBeaconType.RECEIVER_POSITION);
+			return true;
+		}
+
+		if (AprsComment.classify(aprsLine, envelope.getCommentStart()) != AprsComment.Type.RECEIVER
+				|| !scanComment(envelope, target.comment, false))
+			return false;
+
+		try {
+			target.load(envelope, target.comment, envelope.isStatus() ? ReceiverBeaconType.RECEIVER_STATUS
+					: ReceiverBeaconType.RECEIVER_POSITION);
+		} catch (final NumberFormatException ex) {
+			return false;
+		}
+		return true;
+	}
+
+	AprsParseResult tryParse(AsciiCharSequence aprsLine) {
+		if (LOG.isTraceEnabled())
+			LOG.trace(aprsLine.toString());
+		return parseLine(aprsLine);
+	}
+
+	private OgnBeacon parse(AsciiCharSequence aprsLine) {
+		if (LOG.isTraceEnabled())
+			LOG.trace(aprsLine.toString());
+		return parseBeacon(aprsLine);
+	}
+
+	/**
+	 * the reason of a reject and the index of the offending char
+	 */
+	private static final class Reject {
+		private AprsRejectReason reason;
+		private int offset;
+	}
+
+	/**
+	 * records the reject if it is asked for
+	 *
+	 * @return null, the beacon of the rejected line
+	 */
+	private static OgnBeacon reject(Reject reject, AprsRejectReason reason, int offset) {
+		if (reject != null) {
+			reject.reason = reason;
+			reject.offset = offset;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the current time (ns) if the stages are timed, 0 otherwise
+	 */
+	private long startTime() {
+		return stats == null ? 0 : System.nanoTime();
+	}
+
+	/**
+	 * records the time of the stage started at the given time
+	 *
+	 * @return the current time (ns) if the stages are timed, 0 otherwise
+	 */
+	private long recordTime(AprsParserMetrics.Stage stage, long start) {
+		if (stats == null)
+			return 0;
+		final long now = System.nanoTime();
+		stats.recordLatency(stage, now - start);
+		return now;
+	}
+
+	private OgnBeacon parseWithScanner(CharSequence aprsLine, Reject reject) {
+		final long start = startTime();
+		final AprsEnvelope envelope = new AprsEnvelope(resolver);
+		if (!envelope.scan(aprsLine)) {
+			return reject(reject, AprsRejectReason.UNKNOWN_FORMAT, envelope.getRejectOffset());
+		}
+		final long commentTime = recordTime(
+				envelope.isStatus() ? AprsParserMetrics.Stage.STATUS : AprsParserMetrics.Stage.POSITION, start);
+
+		if (!checkTimeAndPosition(aprsLine, envelope, reject)) {
+			return null;
+		}
+
+		// the decoder is chosen by the dstcall
+		final AprsBeaconDecoder decoder = registry.lookup(envelope);
+		final int commentStart = envelope.hasComment() ? envelope.getCommentStart() : aprsLine.length();
+		final OgnBeacon result;
+		try {
+			result = decoder.decode(envelope, new AprsComment());
+		} catch (final NumberFormatException ex) {
+			// the formats let a malformed number through in rare cases only (e.g. non-hex details)
+			LOG.trace("Malformed number in: {}", aprsLine);
+			return reject(reject, AprsRejectReason.BAD_NUMBER, commentStart);
+		} finally {
+			if (envelope.hasComment())
+				recordTime(AprsParserMetrics.Stage.COMMENT, commentTime);
+		}
+
+		if (result == null) {
+			LOG.trace("Unrecognized beacon: {}", aprsLine);
+			return reject(reject, AprsRejectReason.UNKNOWN_COMMENT, commentStart);
 		}
 
 		return result;
 	}
+
+	/**
+	 * checks the fields which would throw when decoded (time) or decode to nonsense (coordinates)
+	 *
+	 * @return true if the time and the position are valid, false (and the reject recorded) otherwise
+	 */
+	private static boolean checkTimeAndPosition(CharSequence aprsLine, int timeStart, int latStart, int lonStart,
+			Reject reject) {
+		if (!AprsEnvelope.isValidTime(aprsLine, timeStart)) {
+			reject(reject, AprsRejectReason.BAD_TIME, timeStart);
+			return false;
+		}
+		if (latStart != AprsEnvelope.NONE && !AprsEnvelope.isValidCoordinate(aprsLine, latStart, 2)) {
+			reject(reject, AprsRejectReason.BAD_COORDINATE, latStart);
+			return false;
+		}
+		if (lonStart != AprsEnvelope.NONE && !AprsEnvelope.isValidCoordinate(aprsLine, lonStart, 3)) {
+			reject(reject, AprsRejectReason.BAD_COORDINATE, lonStart);
+			return false;
+		}
+		return true;
+	}
+
+	private static boolean checkTimeAndPosition(CharSequence aprsLine, AprsEnvelope envelope, Reject reject) {
+		return checkTimeAndPosition(aprsLine, envelope.getTimeStart(), envelope.getLatitudeStart(),
+				envelope.getLongitudeStart(), reject);
+	}
+
+	/**
+	 * matches the comment of a scanned line against the aircraft or the receiver pattern. The tokenizer decides most
+	 * of the comments in a single pass, the regex is only needed if it can not.
+	 *
+	 * @return true if the comment matches, its fields are then available in ognComment
+	 */
+	static boolean scanComment(AprsEnvelope envelope, AprsComment ognComment, boolean aircraft) {
+		final CharSequence line = envelope.getLine();
+		final int from = envelope.getCommentStart();
+		final ScanResult scan = aircraft ? ognComment.scanAircraft(line, from, line.length())
+				: ognComment.scanReceiver(line, from, line.length());
+		if (scan != ScanResult.UNDECIDED)
+			return scan == ScanResult.MATCH;
+
+		final Matcher matcher = (aircraft ? ognAircraftPattern : ognReceiverPattern).matcher(envelope.getComment());
+		if (!matcher.matches())
+			return false;
+		ognComment.load(matcher, line, from, aircraft);
+		return true;
+	}
+
+	private OgnBeacon parseWithRegex(String aprsLine, Reject reject) {
+		final long start = startTime();
+		// neither a status nor a position can match without its separator
+		final boolean maybeStatus = aprsLine.contains(":>");
+		final boolean maybePosition = aprsLine.contains(":/");
+		if (!maybeStatus && !maybePosition) {
+			return reject(reject, AprsRejectReason.UNKNOWN_FORMAT, 0);
+		}
+
+		final Matcher statusMatcher = maybeStatus ? aprsStatusPattern.matcher(aprsLine) : null;
+
+		int commentStart = aprsLine.length();
+		AprsParserMetrics.Stage stage = null;
+		long stageStart = start;
+		try {
+			// Check if we have a APRS status
+			if (statusMatcher != null && statusMatcher.matches()) {
+				stageStart = recordTime(AprsParserMetrics.Stage.STATUS, stageStart);
+				if (!checkTimeAndPosition(aprsLine, statusMatcher.start("time"), AprsEnvelope.NONE,
+						AprsEnvelope.NONE, reject)) {
+					return null;
+				}
+				stage = AprsParserMetrics.Stage.COMMENT;
+
+				final String comment = statusMatcher.group("comment");
+				commentStart = statusMatcher.start("comment");
+				if (AprsComment.classify(comment, 0) == AprsComment.Type.RECEIVER) {
+					final Matcher receiverMatcher = ognReceiverPattern.matcher(comment);
+					if (receiverMatcher.matches()) {
+						LOG.trace("Receiver status beacon: {}", aprsLine);
+						return new AprsReceiverBeacon(statusMatcher, ReceiverBeaconType.RECEIVER_STATUS, resolver)
+								.update(receiverMatcher);
+					}
+				}
+				// Check if we have a APRS position
+			} else if (maybePosition) {
+				final Matcher positionMatcher = aprsPositionPattern.matcher(aprsLine);
+				if (!positionMatcher.matches()) {
+					return reject(reject, AprsRejectReason.UNKNOWN_FORMAT, 0);
+				}
+				stageStart = recordTime(AprsParserMetrics.Stage.POSITION, stageStart);
+
+				if (!checkTimeAndPosition(aprsLine, positionMatcher.start("time"), positionMatcher.start("latitude"),
+						positionMatcher.start("longitude"), reject)) {
+					return null;
+				}
+
+				final String comment = positionMatcher.group("comment");
+				if (comment == null) {
+					LOG.trace("Receiver position beacon without comment: {}", aprsLine);
+					return new AprsReceiverBeacon(positionMatcher, ReceiverBeaconType.RECEIVER_POSITION, resolver);
+				}
+
+				commentStart = positionMatcher.start("comment");
+				stage = AprsParserMetrics.Stage.COMMENT;
+				// only the one applicable comment pattern is tried
+				switch (AprsComment.classify(comment, 0)) {
+				case AIRCRAFT:
+					final Matcher aircraftMatcher = ognAircraftPattern.matcher(comment);
+					if (aircraftMatcher.matches()) {
+						LOG.trace("Aircraft position beacon: {}", aprsLine);
+						final boolean isRelayed = false;
+						return new AprsAircraftBeacon(positionMatcher, isRelayed, resolver).update(aircraftMatcher);
+					}
+					break;
+				case RECEIVER:
+					final Matcher receiverMatcher = ognReceiverPattern.matcher(comment);
+					if (receiverMatcher.matches()) {
+						LOG.trace("Receiver position beacon: {}", aprsLine);
+						return new AprsReceiverBeacon(positionMatcher, ReceiverBeaconType.RECEIVER_POSITION, resolver)
+								.update(receiverMatcher);
+					}
+					break;
+				default:
+					LOG.trace("Unrecognized position beacon: {}", aprsLine);
+				}
+			} else {
+				return reject(reject, AprsRejectReason.UNKNOWN_FORMAT, 0);
+			}
+		} catch (final NumberFormatException ex) {
+			LOG.trace("Malformed number in: {}", aprsLine);
+			return reject(reject, AprsRejectReason.BAD_NUMBER, commentStart);
+		} finally {
+			if (stage != null)
+				recordTime(stage, stageStart);
+		}
+
+		return reject(reject, AprsRejectReason.UNKNOWN_COMMENT, commentStart);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+/**
+ * Allocation-free decoding of ASCII numbers directly from a <code>CharSequence</code>. The results are bit-exact with
+ * <code>Float.parseFloat</code> / <code>Integer.parseInt</code>; anything outside of the fast path (too many digits,
+ * malformed input) is delegated to the JDK methods, so malformed numbers still throw
+ * <code>NumberFormatException</code>.
+ */
+final class AprsNumbers {
+
+	// all of them are exactly representable as float
+	private static final float[] FLOAT_POW10 = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+
+	// up to 7 digits fit into the 24 bits of the float's mantissa
+	private static final int MAX_FLOAT_DIGITS = 7;
+
+	// all of them are exactly representable as double
+	private static final double[] DOUBLE_POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+			1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// up to 15 digits fit into the 53 bits of the double's mantissa
+	private static final int MAX_DOUBLE_DIGITS = 15;
+
+	private AprsNumbers() {
+
+	}
+
+	/**
+	 * parses [+-]ddd.ddd
+	 */
+	static float parseFloat(CharSequence s, int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+			negative = s.charAt(i) == '-';
+			i++;
+		}
+
+		int mantissa = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		for (; i < to; i++) {
+			final char c = s.charAt(i);
+			if (c == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+			} else if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if (fractionDigits >= 0)
+					fractionDigits++;
+				if (digits > MAX_FLOAT_DIGITS)
+					return Float.parseFloat(s.subSequence(from, to).toString());
+			} else {
+				return Float.parseFloat(s.subSequence(from, to).toString());
+			}
+		}
+
+		if (digits == 0 || fractionDigits >= FLOAT_POW10.length)
+			return Float.parseFloat(s.subSequence(from, to).toString());
+
+		// the same fast path as the JDK: both operands are exact, so the division is correctly rounded
+		final float value = fractionDigits <= 0 ? (float) mantissa : (float) mantissa / FLOAT_POW10[fractionDigits];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * parses [+-]ddd.ddd
+	 */
+	static double parseDouble(CharSequence s, int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+			negative = s.charAt(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		for (; i < to; i++) {
+			final char c = s.charAt(i);
+			if (c == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+			} else if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if (fractionDigits >= 0)
+					fractionDigits++;
+				if (digits > MAX_DOUBLE_DIGITS)
+					return Double.parseDouble(s.subSequence(from, to).toString());
+			} else {
+				return Double.parseDouble(s.subSequence(from, to).toString());
+			}
+		}
+
+		if (digits == 0 || fractionDigits >= DOUBLE_POW10.length)
+			return Double.parseDouble(s.subSequence(from, to).toString());
+
+		final double value = fractionDigits <= 0 ? (double) mantissa : (double) mantissa / DOUBLE_POW10[fractionDigits];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * parses [+-]ddd (decimal)
+	 */
+	static int parseInt(CharSequence s, int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+			negative = s.charAt(i) == '-';
+			i++;
+		}
+
+		// up to 9 digits can not overflow
+		if (i == to || to - i > 9)
+			return Integer.parseInt(s.subSequence(from, to).toString());
+
+		int value = 0;
+		for (; i < to; i++) {
+			final char c = s.charAt(i);
+			if (c < '0' || c > '9')
+				return Integer.parseInt(s.subSequence(from, to).toString());
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * parses an unsigned hexadecimal number
+	 */
+	static int parseHex(CharSequence s, int from, int to) {
+		// up to 7 digits can not overflow
+		if (from == to || to - from > 7)
+			return Integer.parseInt(s.subSequence(from, to).toString(), 16);
+
+		int value = 0;
+		for (int i = from; i < to; i++) {
+			final int digit = hexDigit(s.charAt(i));
+			if (digit < 0)
+				return Integer.parseInt(s.subSequence(from, to).toString(), 16);
+			value = (value << 4) | digit;
+		}
+		return value;
+	}
+
+	static int hexDigit(char c) {
+		if (c >= '0' && c <= '9')
+			return c - '0';
+		if (c >= 'A' && c <= 'F')
+			return c - 'A' + 10;
+		if (c >= 'a' && c <= 'f')
+			return c - 'a' + 10;
+		return -1;
+	}
+}
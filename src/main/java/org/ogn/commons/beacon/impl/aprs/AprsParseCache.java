@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the recently parsed lines and their results, for the clients connected to several APRS-IS servers
+ * (for redundancy), which receive every line two or three times, byte-for-byte identical. A repeated line costs one
+ * hash and one lookup (verified by comparing the whole line) instead of a full parse, and yields the very same beacon
+ * instance (or reject). The rejected lines are remembered as well.
+ * <p>
+ * Like the <code>AprsStringPool</code>, the cache is 2-way set-associative and read and written without locks: the
+ * entries are immutable, so a racing thread sees either a valid entry or misses and parses the line itself. The cached
+ * beacons are shared by all the callers and must not be modified.
+ * <p>
+ * The cache is used by the parsers created with <code>AprsLineParser.withCache</code>.
+ */
+public final class AprsParseCache {
+
+	/**
+	 * a parsed line and its result
+	 */
+	static final class Entry {
+		final int hash;
+		final String line;
+		final AprsParseResult result;
+
+		Entry(int hash, String line, AprsParseResult result) {
+			this.hash = hash;
+			this.line = line;
+			this.result = result;
+		}
+	}
+
+	private final Entry[] slots;
+	private final int mask;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param capacity
+	 *            maximal number of cached lines (rounded up to a power of two); a few seconds of the feed are enough
+	 *            to catch the copies sent by the other servers
+	 */
+	public AprsParseCache(int capacity) {
+		if (capacity < 2)
+			throw new IllegalArgumentException("capacity must be at least 2");
+		final int size = Integer.highestOneBit(capacity - 1) << 1;
+		this.slots = new Entry[size];
+		this.mask = size - 2;
+	}
+
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	/**
+	 * @return the number of lines found in the cache
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of lines which had to be parsed
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * empties the cache
+	 */
+	public void clear() {
+		for (int i = 0; i < slots.length; i++)
+			slots[i] = null;
+	}
+
+	/**
+	 * @return the hash of the line, the same as <code>String.hashCode()</code> of the equal string
+	 */
+	static int hash(CharSequence line) {
+		if (line instanceof String)
+			return line.hashCode();
+
+		int h = 0;
+		final int length = line.length();
+		for (int i = 0; i < length; i++)
+			h = 31 * h + line.charAt(i);
+		return h;
+	}
+
+	private int set(int h) {
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * @return the entry of the line or null if the line is not cached
+	 */
+	Entry lookup(CharSequence line, int h) {
+		final Entry[] slots = this.slots;
+		final int i = set(h);
+
+		final Entry first = slots[i];
+		if (first != null && first.hash == h && first.line.contentEquals(line)) {
+			hits.increment();
+			return first;
+		}
+
+		final Entry second = slots[i + 1];
+		if (second != null && second.hash == h && second.line.contentEquals(line)) {
+			// keep the recently used one in the first slot
+			slots[i + 1] = first;
+			slots[i] = second;
+			hits.increment();
+			return second;
+		}
+
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * caches the parsed line, evicting the least recently used entry of its set
+	 */
+	void put(String line, int h, AprsParseResult result) {
+		final Entry[] slots = this.slots;
+		final int i = set(h);
+		slots[i + 1] = slots[i];
+		slots[i] = new Entry(h, line, result);
+	}
+}
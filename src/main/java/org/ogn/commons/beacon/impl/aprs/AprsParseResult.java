@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import org.ogn.commons.beacon.OgnBeacon;
+
+/**
+ * Outcome of the parsing of a single line: either the beacon, or the reason why the line was rejected together with
+ * the index of the offending char. Returned by <code>AprsLineParser.tryParse</code>, which does not throw on bad lines.
+ */
+public final class AprsParseResult {
+
+	private final OgnBeacon beacon;
+	private final AprsRejectReason reason;
+	private final int offset;
+	private final String line;
+
+	private AprsParseResult(OgnBeacon beacon, AprsRejectReason reason, int offset, String line) {
+		this.beacon = beacon;
+		this.reason = reason;
+		this.offset = offset;
+		this.line = line;
+	}
+
+	static AprsParseResult accepted(OgnBeacon beacon) {
+		return new AprsParseResult(beacon, null, -1, null);
+	}
+
+	static AprsParseResult rejected(AprsRejectReason reason, int offset, CharSequence line) {
+		return new AprsParseResult(null, reason, offset, line.toString());
+	}
+
+	/**
+	 * @return true if the line yielded a beacon
+	 */
+	public boolean isAccepted() {
+		return beacon != null;
+	}
+
+	/**
+	 * @return the beacon or null if the line was rejected
+	 */
+	public OgnBeacon getBeacon() {
+		return beacon;
+	}
+
+	/**
+	 * @return why the line was rejected, null if it was accepted
+	 */
+	public AprsRejectReason getReason() {
+		return reason;
+	}
+
+	/**
+	 * @return index of the char at which the line was found to be bad (for UNKNOWN_FORMAT the furthest the scanner
+	 *         got, for UNKNOWN_COMMENT and BAD_NUMBER the start of the comment), -1 if the line was accepted
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the rejected line, null if the line was accepted
+	 */
+	public String getLine() {
+		return line;
+	}
+
+	@Override
+	public String toString() {
+		return isAccepted() ? beacon.toString() : reason + " at " + offset + ": " + line;
+	}
+}
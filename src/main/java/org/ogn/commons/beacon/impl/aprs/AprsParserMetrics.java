@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import org.ogn.commons.utils.LatencyHistogram;
+
+/**
+ * What an <code>AprsLineParser</code> has been doing: the lines and beacons it has seen, the lines it rejected and
+ * how long the stages of the parsing took. All the values are cumulative since the start (or the last reset).
+ */
+public interface AprsParserMetrics {
+
+	/**
+	 * the timed stages of the parsing of a line
+	 */
+	enum Stage {
+		/**
+		 * decoding of the APRS status envelope (up to the comment)
+		 */
+		STATUS,
+		/**
+		 * decoding of the APRS position envelope (up to the comment)
+		 */
+		POSITION,
+		/**
+		 * decoding of the OGN comment and creation of the beacon
+		 */
+		COMMENT
+	}
+
+	/**
+	 * @return the number of lines seen (including the server comments and the lines found in the cache)
+	 */
+	long getLines();
+
+	/**
+	 * @return the total length of the lines seen (the lines are ASCII, the chars are bytes)
+	 */
+	long getBytes();
+
+	long getAircraftBeacons();
+
+	long getReceiverStatusBeacons();
+
+	long getReceiverPositionBeacons();
+
+	/**
+	 * @return the number of lines rejected for the given reason
+	 */
+	long getRejects(AprsRejectReason reason);
+
+	/**
+	 * @return the number of lines rejected for any reason except the server comments, which are not bad lines
+	 */
+	long getRejects();
+
+	/**
+	 * @return the latencies (ns) of the given stage; only the lines actually parsed (not found in the cache) are timed
+	 */
+	LatencyHistogram getLatency(Stage stage);
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.ReceiverBeacon;
+import org.ogn.commons.beacon.ReceiverBeaconType;
+import org.ogn.commons.utils.LatencyHistogram;
+
+/**
+ * Counters and latency histograms of the parsers created with <code>AprsLineParser.create(..., stats)</code>. The
+ * counters are <code>LongAdder</code>s, which do not contend when many threads parse at once, and the histograms are
+ * lock-free, so the stats may be shared by several parsers and read at any time, also through JMX (see
+ * <code>register</code>).
+ * <p>
+ * The lines parsed by <code>parseInto</code> are not counted.
+ */
+public class AprsParserStats implements AprsParserMetrics, AprsParserStatsMXBean {
+
+	private static final AprsRejectReason[] REASONS = AprsRejectReason.values();
+	private static final Stage[] STAGES = Stage.values();
+
+	private final LongAdder lines = new LongAdder();
+	private final LongAdder bytes = new LongAdder();
+	private final LongAdder aircraftBeacons = new LongAdder();
+	private final LongAdder receiverStatusBeacons = new LongAdder();
+	private final LongAdder receiverPositionBeacons = new LongAdder();
+	private final LongAdder[] rejects = new LongAdder[REASONS.length];
+	private final LatencyHistogram[] latencies = new LatencyHistogram[STAGES.length];
+
+	public AprsParserStats() {
+		for (int i = 0; i < rejects.length; i++)
+			rejects[i] = new LongAdder();
+		for (int i = 0; i < latencies.length; i++)
+			latencies[i] = new LatencyHistogram();
+	}
+
+	void recordLine(CharSequence aprsLine) {
+		lines.increment();
+		bytes.add(aprsLine.length());
+	}
+
+	void recordResult(AprsParseResult result) {
+		if (!result.isAccepted()) {
+			rejects[result.getReason().ordinal()].increment();
+			return;
+		}
+
+		final OgnBeacon beacon = result.getBeacon();
+		if (beacon instanceof AircraftBeacon)
+			aircraftBeacons.increment();
+		else if (beacon instanceof ReceiverBeacon
+				&& ((ReceiverBeacon) beacon).getReceiverBeaconType() == ReceiverBeaconType.RECEIVER_STATUS)
+			receiverStatusBeacons.increment();
+		else
+			receiverPositionBeacons.increment();
+	}
+
+	void recordLatency(Stage stage, long nanos) {
+		latencies[stage.ordinal()].record(nanos);
+	}
+
+	/**
+	 * registers the stats with the platform MBean server, as
+	 * <code>org.ogn.commons:type=AprsLineParser,name=&lt;name&gt;</code>
+	 *
+	 * @return the name of the MBean, e.g. to unregister it
+	 */
+	public ObjectName register(String name) throws JMException {
+		final ObjectName objectName = new ObjectName(
+				"org.ogn.commons:type=AprsLineParser,name=" + ObjectName.quote(name));
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(this, objectName);
+		return objectName;
+	}
+
+	@Override
+	public long getLines() {
+		return lines.sum();
+	}
+
+	@Override
+	public long getBytes() {
+		return bytes.sum();
+	}
+
+	@Override
+	public long getAircraftBeacons() {
+		return aircraftBeacons.sum();
+	}
+
+	@Override
+	public long getReceiverStatusBeacons() {
+		return receiverStatusBeacons.sum();
+	}
+
+	@Override
+	public long getReceiverPositionBeacons() {
+		return receiverPositionBeacons.sum();
+	}
+
+	@Override
+	public long getRejects(AprsRejectReason reason) {
+		return rejects[reason.ordinal()].sum();
+	}
+
+	@Override
+	public long getRejects() {
+		long result = 0;
+		for (final AprsRejectReason reason : REASONS) {
+			if (reason != AprsRejectReason.SERVER_COMMENT)
+				result += getRejects(reason);
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getRejectsByReason() {
+		final Map<String, Long> result = new LinkedHashMap<>();
+		for (final AprsRejectReason reason : REASONS)
+			result.put(reason.name(), getRejects(reason));
+		return result;
+	}
+
+	@Override
+	public LatencyHistogram getLatency(Stage stage) {
+		return latencies[stage.ordinal()];
+	}
+
+	@Override
+	public LatencyHistogram.Summary getStatusLatency() {
+		return getLatency(Stage.STATUS).getSummary();
+	}
+
+	@Override
+	public LatencyHistogram.Summary getPositionLatency() {
+		return getLatency(Stage.POSITION).getSummary();
+	}
+
+	@Override
+	public LatencyHistogram.Summary getCommentLatency() {
+		return getLatency(Stage.COMMENT).getSummary();
+	}
+
+	@Override
+	public void reset() {
+		lines.reset();
+		bytes.reset();
+		aircraftBeacons.reset();
+		receiverStatusBeacons.reset();
+		receiverPositionBeacons.reset();
+		for (final LongAdder adder : rejects)
+			adder.reset();
+		for (final LatencyHistogram histogram : latencies)
+			histogram.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "lines=" + getLines() + " bytes=" + getBytes() + " aircraft=" + getAircraftBeacons() + " status="
+				+ getReceiverStatusBeacons() + " position=" + getReceiverPositionBeacons() + " rejects="
+				+ getRejectsByReason();
+	}
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import java.util.Map;
+
+import org.ogn.commons.utils.LatencyHistogram;
+
+/**
+ * JMX view of the <code>AprsParserStats</code>; the latencies are in ns.
+ */
+public interface AprsParserStatsMXBean {
+
+	long getLines();
+
+	long getBytes();
+
+	long getAircraftBeacons();
+
+	long getReceiverStatusBeacons();
+
+	long getReceiverPositionBeacons();
+
+	long getRejects();
+
+	/**
+	 * @return the number of rejects by the name of the reason
+	 */
+	Map<String, Long> getRejectsByReason();
+
+	LatencyHistogram.Summary getStatusLatency();
+
+	LatencyHistogram.Summary getPositionLatency();
+
+	LatencyHistogram.Summary getCommentLatency();
+
+	/**
+	 * zeroes all the counters and histograms
+	 */
+	void reset();
+}
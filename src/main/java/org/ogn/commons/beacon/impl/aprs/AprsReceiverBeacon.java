@@ -10,6 +10,7 @@ import org.ogn.commons.beacon.OgnBeacon;
 import org.ogn.commons.beacon.ReceiverBeacon;
 import org.ogn.commons.beacon.ReceiverBeaconType;
 import org.ogn.commons.beacon.impl.OgnBeaconImpl;
+import org.ogn.commons.utils.UtcTimestampResolver;
 import org.ogn.commons.utils.Version;
 
 import com.google.code.regexp.Matcher;
@@ -158,11 +159,41 @@ public class AprsReceiverBeacon extends OgnBeaconImpl implements ReceiverBeacon,
 	}
 
 	public AprsReceiverBeacon(Matcher matcher, ReceiverBeaconType type) {
-		super(matcher);
-		this.srvName = matcher.group("receiver");
+		this(matcher, type, UtcTimestampResolver.getDefault());
+	}
+
+	public AprsReceiverBeacon(Matcher matcher, ReceiverBeaconType type, UtcTimestampResolver resolver) {
+		super(matcher, resolver);
+		this.srvName = AprsStringPool.getDefault().intern(matcher.group("receiver"));
+		this.type = type;
+	}
+
+	public AprsReceiverBeacon(AprsEnvelope envelope, ReceiverBeaconType type) {
+		super(envelope);
+		this.srvName = envelope.getReceiver();
 		this.type = type;
 	}
 
+	/**
+	 * copies the fields of the given beacon
+	 */
+	public AprsReceiverBeacon(ReceiverBeacon beacon) {
+		super(beacon);
+		this.type = beacon.getReceiverBeaconType();
+		this.srvName = beacon.getServerName();
+		this.version = beacon.getVersion();
+		this.platform = beacon.getPlatform();
+		this.cpuLoad = beacon.getCpuLoad();
+		this.cpuTemp = beacon.getCpuTemp();
+		this.totalRam = beacon.getTotalRam();
+		this.freeRam = beacon.getFreeRam();
+		this.ntpError = beacon.getNtpError();
+		this.rtCrystalCorrection = beacon.getRtCrystalCorrection();
+		this.recCrystalCorrection = beacon.getRecCrystalCorrection();
+		this.recCrystalCorrectionFine = beacon.getRecCrystalCorrectionFine();
+		this.recInputNoise = beacon.getRecInputNoise();
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -221,8 +252,8 @@ public class AprsReceiverBeacon extends OgnBeaconImpl implements ReceiverBeacon,
 	}
 
 	public OgnBeacon update(Matcher receiverMatcher) {
-		this.version = receiverMatcher.group("version");
-		this.platform = receiverMatcher.group("platform");
+		this.version = AprsStringPool.getDefault().intern(receiverMatcher.group("version"));
+		this.platform = AprsStringPool.getDefault().intern(receiverMatcher.group("platform"));
 		this.cpuLoad = Float.parseFloat(receiverMatcher.group("cpuLoad"));
 		this.freeRam = Float.parseFloat(receiverMatcher.group("ramFree"));
 		this.totalRam = Float.parseFloat(receiverMatcher.group("ramTotal"));
@@ -251,4 +282,24 @@ public class AprsReceiverBeacon extends OgnBeaconImpl implements ReceiverBeacon,
 		return this;
 	}
 
+	public OgnBeacon update(AprsComment comment) {
+		this.version = comment.getInternedString(AprsComment.VERSION);
+		this.platform = comment.getInternedString(AprsComment.PLATFORM);
+		this.cpuLoad = comment.getFloat(AprsComment.CPU_LOAD);
+		this.freeRam = comment.getFloat(AprsComment.RAM_FREE);
+		this.totalRam = comment.getFloat(AprsComment.RAM_TOTAL);
+
+		this.ntpError = comment.getFloat(AprsComment.NTP_OFFSET);
+		this.rtCrystalCorrection = comment.getFloat(AprsComment.NTP_CORRECTION);
+		this.cpuTemp = !comment.has(AprsComment.CPU_TEMPERATURE) ? 0
+				: comment.getFloat(AprsComment.CPU_TEMPERATURE);
+		this.recCrystalCorrection = !comment.has(AprsComment.RF_CORRECTION_MANUAL) ? 0
+				: comment.getInt(AprsComment.RF_CORRECTION_MANUAL);
+		this.recCrystalCorrectionFine = !comment.has(AprsComment.RF_CORRECTION_AUTOMATIC) ? 0
+				: comment.getFloat(AprsComment.RF_CORRECTION_AUTOMATIC);
+		this.recInputNoise = !comment.has(AprsComment.SIGNAL_QUALITY) ? 0
+				: comment.getFloat(AprsComment.SIGNAL_QUALITY);
+		return this;
+	}
+
 }
\ No newline at end of file
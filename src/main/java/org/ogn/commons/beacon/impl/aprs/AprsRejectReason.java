@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+/**
+ * Why a line did not yield a beacon
+ */
+public enum AprsRejectReason {
+	/**
+	 * comment line (# ...) of the APRS-IS server; not an error, such lines are never put into the reject sink
+	 */
+	SERVER_COMMENT,
+	/**
+	 * neither an APRS status nor an APRS position line
+	 */
+	UNKNOWN_FORMAT,
+	/**
+	 * the hhmmss time is not a valid time of day
+	 */
+	BAD_TIME,
+	/**
+	 * the latitude or the longitude is not valid (60 minutes or more)
+	 */
+	BAD_COORDINATE,
+	/**
+	 * an APRS line, but its comment is not in any of the OGN formats
+	 */
+	UNKNOWN_COMMENT,
+	/**
+	 * a number in the comment can not be decoded (e.g. non-hex details)
+	 */
+	BAD_NUMBER
+}
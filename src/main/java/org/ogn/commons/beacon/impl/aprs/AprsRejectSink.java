@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe store of the rejected lines (with their reasons and offsets) for offline inspection. The
+ * parsers created with a sink put every rejected line into it; when the sink is full the new rejects are dropped (and
+ * counted), so a burst of garbage can never use up the memory. The sink is emptied by draining it.
+ */
+public class AprsRejectSink {
+
+	private final BlockingQueue<AprsParseResult> rejects;
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            max. number of rejects kept until drained
+	 */
+	public AprsRejectSink(int capacity) {
+		this.rejects = new ArrayBlockingQueue<>(capacity);
+	}
+
+	/**
+	 * keeps the rejected line if there is room left
+	 *
+	 * @return false if the sink was full and the reject was dropped
+	 */
+	public boolean offer(AprsParseResult reject) {
+		if (reject.isAccepted() || reject.getReason() == AprsRejectReason.SERVER_COMMENT)
+			return true;
+		if (rejects.offer(reject))
+			return true;
+		dropped.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * @return the rejects kept so far, in the order of arrival; they are removed from the sink
+	 */
+	public List<AprsParseResult> drain() {
+		final List<AprsParseResult> result = new ArrayList<>(rejects.size());
+		rejects.drainTo(result);
+		return result;
+	}
+
+	/**
+	 * @return the number of rejects currently kept
+	 */
+	public int size() {
+		return rejects.size();
+	}
+
+	/**
+	 * @return the number of rejects dropped because the sink was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+}
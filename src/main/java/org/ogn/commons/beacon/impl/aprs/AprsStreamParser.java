@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.ReceiverBeacon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Turns a raw byte stream of APRS lines (a file, a gzip stream, an APRS-IS socket...) into beacons. The bytes are read
+ * into a re-used direct buffer, split into lines (a partial line is carried over to the next read) and every line is
+ * parsed in place, without creating a String for it. The beacons are handed over to the aircraft / receiver consumer
+ * either synchronously (by the reading thread) or, if a queue capacity is given, by a dispatcher thread through a
+ * bounded queue. When the queue is full the reading stops until the consumers catch up, which pushes the backpressure
+ * back to the source (e.g. TCP flow control).
+ * <p>
+ * An instance parses one stream at a time; the counters may be read from any thread. Only blocking channels are
+ * supported (a non-blocking one would make the reading spin).
+ */
+public class AprsStreamParser {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AprsStreamParser.class);
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+
+	// marks the end of the stream in the dispatch queue
+	private static final Object END_OF_STREAM = new Object();
+
+	private final AprsLineParser parser;
+	private final Consumer<? super AircraftBeacon> aircraftConsumer;
+	private final Consumer<? super ReceiverBeacon> receiverConsumer;
+	private final int bufferSize;
+	private final int queueCapacity;
+
+	private final AsciiCharSequence line = new AsciiCharSequence();
+
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong lines = new AtomicLong();
+	private final AtomicLong rejects = new AtomicLong();
+
+	private volatile boolean stopped;
+
+	/**
+	 * creates a parser delivering the beacons synchronously
+	 */
+	public AprsStreamParser(Consumer<? super AircraftBeacon> aircraftConsumer,
+			Consumer<? super ReceiverBeacon> receiverConsumer) {
+		this(AprsLineParser.get(), aircraftConsumer, receiverConsumer, DEFAULT_BUFFER_SIZE, 0);
+	}
+
+	/**
+	 * @param parser
+	 *            parser of the single lines
+	 * @param aircraftConsumer
+	 *            receives the aircraft beacons
+	 * @param receiverConsumer
+	 *            receives the receiver beacons
+	 * @param bufferSize
+	 *            size of the read buffer (longer lines are rejected)
+	 * @param queueCapacity
+	 *            capacity of the queue between the reading and the dispatching thread, 0 to deliver the beacons
+	 *            synchronously by the reading thread
+	 */
+	public AprsStreamParser(AprsLineParser parser, Consumer<? super AircraftBeacon> aircraftConsumer,
+			Consumer<? super ReceiverBeacon> receiverConsumer, int bufferSize, int queueCapacity) {
+		if (bufferSize <= 0 || queueCapacity < 0)
+			throw new IllegalArgumentException("buffer size must be positive and queue capacity non-negative");
+		this.parser = parser;
+		this.aircraftConsumer = aircraftConsumer;
+		this.receiverConsumer = receiverConsumer;
+		this.bufferSize = bufferSize;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * reads and parses the stream until its end (or until <code>stop()</code> is called)
+	 */
+	public void parse(InputStream in) throws IOException {
+		parse(Channels.newChannel(in));
+	}
+
+	/**
+	 * reads and parses the channel until its end (or until <code>stop()</code> is called). The channel is not closed.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the channel is in non-blocking mode
+	 */
+	public void parse(ReadableByteChannel channel) throws IOException {
+		if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking())
+			throw new IllegalArgumentException("only blocking channels are supported");
+		if (queueCapacity == 0) {
+			read(channel, this::dispatch);
+			return;
+		}
+
+		final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final Future<?> dispatcher = executor.submit(() -> {
+			try {
+				for (Object beacon = queue.take(); beacon != END_OF_STREAM; beacon = queue.take()) {
+					dispatch((OgnBeacon) beacon);
+				}
+			} catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		try {
+			read(channel, beacon -> put(queue, beacon));
+			put(queue, END_OF_STREAM);
+			dispatcher.get();
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			dispatcher.cancel(true);
+		} catch (final Exception ex) {
+			dispatcher.cancel(true);
+			if (ex instanceof IOException)
+				throw (IOException) ex;
+			throw new IOException(ex);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void put(BlockingQueue<Object> queue, Object element) {
+		try {
+			queue.put(element);
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while waiting for the consumers", ex);
+		}
+	}
+
+	private void read(ReadableByteChannel channel, Consumer<OgnBeacon> sink) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+
+		// true while the rest of a line longer than the buffer is being skipped
+		boolean skipping = false;
+
+		while (!stopped && !Thread.currentThread().isInterrupted()) {
+			final int n = channel.read(buffer);
+			if (n < 0)
+				break;
+			bytes.addAndGet(n);
+
+			buffer.flip();
+			int lineStart = 0;
+			for (int i = buffer.position(); i < buffer.limit(); i++) {
+				if (buffer.get(i) != LF)
+					continue;
+
+				if (skipping) {
+					skipping = false;
+				} else {
+					processLine(buffer, lineStart, i, sink);
+				}
+				lineStart = i + 1;
+			}
+
+			if (lineStart == 0 && buffer.limit() == buffer.capacity()) {
+				// no line terminator in a full buffer: the line is too long
+				if (!skipping) {
+					LOG.warn("line longer than {} bytes skipped", bufferSize);
+					lines.incrementAndGet();
+					rejects.incrementAndGet();
+				}
+				skipping = true;
+				buffer.clear();
+				continue;
+			}
+
+			// carry the partial line over
+			buffer.position(lineStart);
+			buffer.compact();
+		}
+
+		// the last line may come without a terminator
+		buffer.flip();
+		if (!stopped && buffer.hasRemaining() && !skipping) {
+			processLine(buffer, 0, buffer.limit(), sink);
+		}
+	}
+
+	private void processLine(ByteBuffer buffer, int start, int end, Consumer<OgnBeacon> sink) {
+		if (end > start && buffer.get(end - 1) == CR)
+			end--;
+		if (end == start)
+			return;
+
+		lines.incrementAndGet();
+		line.wrap(buffer, start, end - start);
+
+		AprsParseResult result;
+		try {
+			result = parser.tryParse(line);
+		} catch (final RuntimeException ex) {
+			LOG.debug("Malformed line: {}", line, ex);
+			result = null;
+		}
+
+		if (result != null && result.isAccepted()) {
+			sink.accept(result.getBeacon());
+		} else if (result == null || result.getReason() != AprsRejectReason.SERVER_COMMENT) {
+			// comments of the APRS-IS server are not beacons, but no rejects either
+			rejects.incrementAndGet();
+		}
+	}
+
+	private void dispatch(OgnBeacon beacon) {
+		try {
+			if (beacon instanceof AircraftBeacon) {
+				if (aircraftConsumer != null)
+					aircraftConsumer.accept((AircraftBeacon) beacon);
+			} else if (beacon instanceof ReceiverBeacon && receiverConsumer != null) {
+				receiverConsumer.accept((ReceiverBeacon) beacon);
+			}
+		} catch (final Exception ex) {
+			LOG.error("Consumer failed on beacon: {}", beacon.getRawPacket(), ex);
+		}
+	}
+
+	/**
+	 * makes <code>parse()</code> return after the current read. The parser stays stopped: a <code>parse()</code>
+	 * started after the stop returns at once.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * @return number of bytes read so far
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * @return number of (non-empty) lines read so far
+	 */
+	public long getLines() {
+		return lines.get();
+	}
+
+	/**
+	 * @return number of lines which were not recognized as beacons (or malformed, or too long)
+	 */
+	public long getRejects() {
+		return rejects.get();
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+/**
+ * Bounded pool of canonical strings for the values which repeat over and over in the APRS stream: callsigns, receiver
+ * names, aircraft addresses, gps status, receiver versions and platforms. The strings are looked up directly in the
+ * chars of the scanned line, so a value which is already pooled costs no allocation at all, and all the beacons of the
+ * same aircraft / receiver share the same instances.
+ * <p>
+ * The pool is a 2-way set-associative cache: every string can sit in one of two slots picked by its hash, a hit moves
+ * it to the first slot and a miss evicts the entry of the second one (least recently used of the two). The slots are
+ * read and written without locks; as strings are immutable a racing thread sees either a valid string or misses, in
+ * which case it just creates a new instance. The pool is therefore a best effort: equal strings are very likely, but
+ * not guaranteed, to be the same instance.
+ */
+public final class AprsStringPool {
+
+	/**
+	 * default number of slots; enough for the receivers and aircraft seen by the whole network during a day
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 17;
+
+	/**
+	 * longer values are not pooled (they are not likely to repeat)
+	 */
+	private static final int MAX_LENGTH = 32;
+
+	private static class AprsStringPoolHolder {
+		private static final AprsStringPool theInstance = new AprsStringPool(DEFAULT_CAPACITY);
+
+		private AprsStringPoolHolder() {
+		}
+	}
+
+	private final String[] slots;
+	private final int mask;
+
+	/**
+	 * @param capacity
+	 *            maximal number of pooled strings (rounded up to a power of two)
+	 */
+	public AprsStringPool(int capacity) {
+		if (capacity < 2)
+			throw new IllegalArgumentException("capacity must be at least 2");
+		final int size = Integer.highestOneBit(capacity - 1) << 1;
+		this.slots = new String[size];
+		this.mask = size - 2;
+	}
+
+	/**
+	 * @return the pool shared by the APRS parsers
+	 */
+	public static AprsStringPool getDefault() {
+		return AprsStringPoolHolder.theInstance;
+	}
+
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	/**
+	 * @return the canonical instance of the given string (or the string itself if not pooled)
+	 */
+	public String intern(String s) {
+		if (s == null || s.length() > MAX_LENGTH)
+			return s;
+		final String result = lookup(s, 0, s.length(), s.hashCode());
+		return result != null ? result : insert(s, s.hashCode());
+	}
+
+	/**
+	 * @return the canonical instance of the string found in the given range of chars
+	 */
+	public String intern(CharSequence s, int start, int end) {
+		if (end - start > MAX_LENGTH)
+			return s.subSequence(start, end).toString();
+
+		// the same as String.hashCode()
+		int h = 0;
+		for (int i = start; i < end; i++)
+			h = 31 * h + s.charAt(i);
+
+		final String result = lookup(s, start, end, h);
+		return result != null ? result : insert(s.subSequence(start, end).toString(), h);
+	}
+
+	/**
+	 * empties the pool
+	 */
+	public void clear() {
+		for (int i = 0; i < slots.length; i++)
+			slots[i] = null;
+	}
+
+	private int set(int h) {
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private String lookup(CharSequence s, int start, int end, int h) {
+		final String[] slots = this.slots;
+		final int i = set(h);
+
+		final String first = slots[i];
+		if (first != null && first.hashCode() == h && equals(first, s, start, end))
+			return first;
+
+		final String second = slots[i + 1];
+		if (second != null && second.hashCode() == h && equals(second, s, start, end)) {
+			// keep the recently used one in the first slot
+			slots[i + 1] = first;
+			slots[i] = second;
+			return second;
+		}
+		return null;
+	}
+
+	private String insert(String s, int h) {
+		final String[] slots = this.slots;
+		final int i = set(h);
+		slots[i + 1] = slots[i];
+		slots[i] = s;
+		return s;
+	}
+
+	private static boolean equals(String value, CharSequence s, int start, int end) {
+		final int length = value.length();
+		if (length != end - start)
+			return false;
+		for (int i = 0; i < length; i++) {
+			if (value.charAt(i) != s.charAt(start + i))
+				return false;
+		}
+		return true;
+	}
+}
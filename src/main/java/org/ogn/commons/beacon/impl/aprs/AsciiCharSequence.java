@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A <code>CharSequence</code> view of ASCII bytes, held either in a <code>byte[]</code> or in a (heap or direct)
+ * <code>ByteBuffer</code>. Every byte is one char (ISO-8859-1), nothing is copied or decoded up-front - a
+ * <code>String</code> is only created when <code>toString()</code> is called. The view does not own the bytes: if the
+ * caller re-uses its buffer, it must <code>copy()</code> the sequence first. An instance can be re-pointed to another
+ * slice with one of the <code>wrap</code> methods.
+ */
+public final class AsciiCharSequence implements CharSequence {
+
+	private byte[] array;
+	private ByteBuffer buffer;
+	private int offset;
+	private int length;
+
+	public AsciiCharSequence() {
+		this(new byte[0], 0, 0);
+	}
+
+	public AsciiCharSequence(byte[] array, int offset, int length) {
+		wrap(array, offset, length);
+	}
+
+	public AsciiCharSequence(ByteBuffer buffer, int offset, int length) {
+		wrap(buffer, offset, length);
+	}
+
+	/**
+	 * points this sequence to the given slice of an array
+	 */
+	public AsciiCharSequence wrap(byte[] array, int offset, int length) {
+		checkBounds(array.length, offset, length);
+		this.array = array;
+		this.buffer = null;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	/**
+	 * points this sequence to the given slice of a buffer (absolute indexes, the buffer's position and limit are not
+	 * touched)
+	 */
+	public AsciiCharSequence wrap(ByteBuffer buffer, int offset, int length) {
+		checkBounds(buffer.capacity(), offset, length);
+		if (buffer.hasArray()) {
+			return wrap(buffer.array(), buffer.arrayOffset() + offset, length);
+		}
+		this.array = null;
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	private static void checkBounds(int capacity, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > capacity)
+			throw new IndexOutOfBoundsException(
+					String.format("offset: %d, length: %d, capacity: %d", offset, length, capacity));
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException(String.format("index: %d, length: %d", index, length));
+		return (char) ((array != null ? array[offset + index] : buffer.get(offset + index)) & 0xff);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end)
+			throw new IndexOutOfBoundsException(String.format("start: %d, end: %d, length: %d", start, end, length));
+		final AsciiCharSequence result = new AsciiCharSequence();
+		result.array = array;
+		result.buffer = buffer;
+		result.offset = offset + start;
+		result.length = end - start;
+		return result;
+	}
+
+	/**
+	 * @return a sequence holding its own copy of the bytes
+	 */
+	public AsciiCharSequence copy() {
+		final byte[] bytes = new byte[length];
+		if (array != null) {
+			System.arraycopy(array, offset, bytes, 0, length);
+		} else {
+			for (int i = 0; i < length; i++) {
+				bytes[i] = buffer.get(offset + i);
+			}
+		}
+		return new AsciiCharSequence(bytes, 0, length);
+	}
+
+	@Override
+	public String toString() {
+		if (array != null)
+			return new String(array, offset, length, StandardCharsets.ISO_8859_1);
+
+		final byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(offset + i);
+		}
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+}
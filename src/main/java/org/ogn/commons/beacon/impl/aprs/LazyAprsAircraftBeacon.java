@@ -0,0 +1,399 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.ogn.commons.utils.AprsUtils.feetsToMetres;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.ogn.commons.beacon.AddressType;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.AircraftType;
+
+/**
+ * Aircraft beacon which keeps the validated line together with the offsets of its fields and decodes a field only
+ * when its getter is called for the first time (the value is then memoized). It is meant for the consumers which
+ * look at a few fields (address, position, timestamp) and drop most of the beacons: they pay only for what they read.
+ * The timestamp is the only field decoded up-front, as it depends on the date of the parsing.
+ * <p>
+ * Instances are immutable from the outside and may be shared between threads; two threads decoding the same field at
+ * the same time just do the work twice. When serialized, the beacon is replaced by an (eagerly decoded)
+ * <code>AprsAircraftBeacon</code>.
+ * <p>
+ * The lazy beacons are produced by the <code>AprsDecoders.LAZY_AIRCRAFT</code> decoder, which the default
+ * <code>AprsDecoderRegistry</code> does not use; it is registered for the aircraft dstcalls (including APRS, which
+ * most of the live traffic still uses) in a registry of the parser:
+ *
+ * <pre>
+ * AprsDecoderRegistry registry = new AprsDecoderRegistry(AprsDecoders.GENERIC);
+ * for (String dstcall : AprsDecoders.AIRCRAFT_DSTCALLS)
+ * 	registry.register(dstcall, AprsDecoders.LAZY_AIRCRAFT);
+ * AprsLineParser parser = AprsLineParser.create(Mode.SCANNER, null, null, null, UtcTimestampResolver.getDefault(),
+ * 		registry);
+ * </pre>
+ */
+public class LazyAprsAircraftBeacon implements AircraftBeacon, Serializable {
+
+	private static final long serialVersionUID = -2634318475628593447L;
+
+	// bits of the memoized primitive (and array) fields
+	private static final int LAT = 1;
+	private static final int LON = 1 << 1;
+	private static final int ALT = 1 << 2;
+	private static final int GROUND_SPEED = 1 << 3;
+	private static final int CLIMB_RATE = 1 << 4;
+	private static final int TURN_RATE = 1 << 5;
+	private static final int SIGNAL_STRENGTH = 1 << 6;
+	private static final int FREQUENCY_OFFSET = 1 << 7;
+	private static final int ERROR_COUNT = 1 << 8;
+	private static final int FIRMWARE_VERSION = 1 << 9;
+	private static final int HARDWARE_VERSION = 1 << 10;
+	private static final int ERP = 1 << 11;
+	private static final int FLIGHT_LEVEL = 1 << 12;
+	private static final int DETAILS = 1 << 13;
+	private static final int HEARD_AIRCRAFT_IDS = 1 << 14;
+	private static final int ADDRESS_INT = 1 << 15;
+
+	private final transient AprsEnvelope envelope;
+	private final transient AprsComment comment;
+	private final long timestamp;
+
+	/**
+	 * set bits mark the decoded primitive (and array) fields; the write of the mask publishes the values written before it
+	 */
+	private volatile int decoded;
+
+	private double lat;
+	private double lon;
+	private float alt;
+	private float groundSpeed;
+	private float climbRate;
+	private float turnRate;
+	private float signalStrength;
+	private float frequencyOffset;
+	private int errorCount;
+	private float firmwareVersion;
+	private int hardwareVersion;
+	private float erp;
+	private float flightLevel;
+	private int details;
+	private int addressInt;
+	private int[] heardAircraftIds;
+
+	// strings are immutable, a racing thread sees either null or the complete value
+	private String rawPacket;
+	private String id;
+	private String receiverName;
+	private String address;
+	private String originalAddress;
+	private String gpsStatus;
+
+	/**
+	 * takes over the scanned envelope and (aircraft) comment, which must not be re-used by the caller
+	 */
+	LazyAprsAircraftBeacon(AprsEnvelope envelope, AprsComment comment) {
+		final CharSequence line = envelope.detachLine();
+		envelope.rebind(line);
+		comment.rebind(line);
+		if (line instanceof String)
+			this.rawPacket = (String) line;
+
+		this.envelope = envelope;
+		this.comment = comment;
+		this.timestamp = envelope.getTimestamp();
+	}
+
+	private boolean isDecoded(int field) {
+		return (decoded & field) != 0;
+	}
+
+	private void setDecoded(int field) {
+		decoded |= field;
+	}
+
+	/**
+	 * @return an eagerly decoded copy of this beacon
+	 */
+	public AprsAircraftBeacon copy() {
+		return new AprsAircraftBeacon(this);
+	}
+
+	private Object writeReplace() {
+		return copy();
+	}
+
+	@Override
+	public String getId() {
+		if (id == null)
+			id = envelope.getCallsign();
+		return id;
+	}
+
+	@Override
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public double getLat() {
+		if (!isDecoded(LAT)) {
+			lat = envelope.decodeLat();
+			setDecoded(LAT);
+		}
+		return lat;
+	}
+
+	@Override
+	public double getLon() {
+		if (!isDecoded(LON)) {
+			lon = envelope.decodeLon();
+			setDecoded(LON);
+		}
+		return lon;
+	}
+
+	@Override
+	public int getLatMicroDegrees() {
+		return envelope.decodeLatMicroDegrees();
+	}
+
+	@Override
+	public int getLonMicroDegrees() {
+		return envelope.decodeLonMicroDegrees();
+	}
+
+	@Override
+	public float getAlt() {
+		if (!isDecoded(ALT)) {
+			alt = envelope.decodeAlt();
+			setDecoded(ALT);
+		}
+		return alt;
+	}
+
+	@Override
+	public int getTrack() {
+		// three digits, nothing to memoize
+		return envelope.decodeTrack();
+	}
+
+	@Override
+	public float getGroundSpeed() {
+		if (!isDecoded(GROUND_SPEED)) {
+			groundSpeed = envelope.decodeGroundSpeed();
+			setDecoded(GROUND_SPEED);
+		}
+		return groundSpeed;
+	}
+
+	@Override
+	public String getRawPacket() {
+		if (rawPacket == null)
+			rawPacket = envelope.getLine().toString();
+		return rawPacket;
+	}
+
+	@Override
+	public String getReceiverName() {
+		if (receiverName == null)
+			receiverName = envelope.getReceiver();
+		return receiverName;
+	}
+
+	private int getDetails() {
+		if (!isDecoded(DETAILS)) {
+			details = comment.getHex(AprsComment.DETAILS);
+			setDecoded(DETAILS);
+		}
+		return details;
+	}
+
+	@Override
+	public AddressType getAddressType() {
+		return AddressType.forValue(getDetails() & 0b00000011);
+	}
+
+	@Override
+	public String getAddress() {
+		if (address == null)
+			address = comment.getInternedString(AprsComment.ID);
+		return address;
+	}
+
+	@Override
+	public int getAddressInt() {
+		if (!isDecoded(ADDRESS_INT)) {
+			addressInt = comment.getAddress(AprsComment.ID);
+			setDecoded(ADDRESS_INT);
+		}
+		return addressInt;
+	}
+
+	@Override
+	public String getOriginalAddress() {
+		if (originalAddress == null)
+			originalAddress = !comment.has(AprsComment.FLARM_ID) ? ""
+					: comment.getInternedString(AprsComment.FLARM_ID);
+		return originalAddress;
+	}
+
+	@Override
+	public AircraftType getAircraftType() {
+		return AircraftType.forValue((getDetails() & 0b01111100) >>> 2);
+	}
+
+	@Override
+	public boolean isStealth() {
+		return ((getDetails() & 0b10000000) >>> 7) == 1;
+	}
+
+	@Override
+	public boolean isRelayed() {
+		return envelope.isRelayed();
+	}
+
+	@Override
+	public float getClimbRate() {
+		if (!isDecoded(CLIMB_RATE)) {
+			climbRate = !comment.has(AprsComment.CLIMB_RATE) ? 0
+					: feetsToMetres(comment.getFloat(AprsComment.CLIMB_RATE)) / 60.0f;
+			setDecoded(CLIMB_RATE);
+		}
+		return climbRate;
+	}
+
+	@Override
+	public float getTurnRate() {
+		if (!isDecoded(TURN_RATE)) {
+			turnRate = !comment.has(AprsComment.TURN_RATE) ? 0 : comment.getFloat(AprsComment.TURN_RATE);
+			setDecoded(TURN_RATE);
+		}
+		return turnRate;
+	}
+
+	@Override
+	public float getSignalStrength() {
+		if (!isDecoded(SIGNAL_STRENGTH)) {
+			signalStrength = !comment.has(AprsComment.SIGNAL_QUALITY) ? 0
+					: comment.getFloat(AprsComment.SIGNAL_QUALITY);
+			setDecoded(SIGNAL_STRENGTH);
+		}
+		return signalStrength;
+	}
+
+	@Override
+	public float getFrequencyOffset() {
+		if (!isDecoded(FREQUENCY_OFFSET)) {
+			frequencyOffset = !comment.has(AprsComment.FREQUENCY_OFFSET) ? 0
+					: comment.getFloat(AprsComment.FREQUENCY_OFFSET);
+			setDecoded(FREQUENCY_OFFSET);
+		}
+		return frequencyOffset;
+	}
+
+	@Override
+	public String getGpsStatus() {
+		if (gpsStatus == null)
+			gpsStatus = !comment.has(AprsComment.GPS_ACCURACY) ? ""
+					: comment.getInternedString(AprsComment.GPS_ACCURACY);
+		return gpsStatus;
+	}
+
+	@Override
+	public int getErrorCount() {
+		if (!isDecoded(ERROR_COUNT)) {
+			errorCount = !comment.has(AprsComment.ERRORS) ? 0 : comment.getInt(AprsComment.ERRORS);
+			setDecoded(ERROR_COUNT);
+		}
+		return errorCount;
+	}
+
+	@Override
+	public String[] getHeardAircraftIds() {
+		final int[] ids = heardAircraftIds();
+		return AprsComment.formatHeardAircraftIds(ids, ids.length);
+	}
+
+	private int[] heardAircraftIds() {
+		if (!isDecoded(HEARD_AIRCRAFT_IDS)) {
+			heardAircraftIds = comment.getHeardAircraftIds();
+			setDecoded(HEARD_AIRCRAFT_IDS);
+		}
+		return heardAircraftIds;
+	}
+
+	@Override
+	public int getHeardAircraftIdCount() {
+		return heardAircraftIds().length;
+	}
+
+	@Override
+	public int getHeardAircraftId(int index) {
+		return heardAircraftIds()[index];
+	}
+
+	@Override
+	public boolean containsHeardAircraftId(int id) {
+		return Arrays.binarySearch(heardAircraftIds(), id) >= 0;
+	}
+
+	@Override
+	public float getFirmwareVersion() {
+		if (!isDecoded(FIRMWARE_VERSION)) {
+			firmwareVersion = !comment.has(AprsComment.FLARM_SOFTWARE_VERSION) ? 0
+					: comment.getFloat(AprsComment.FLARM_SOFTWARE_VERSION);
+			setDecoded(FIRMWARE_VERSION);
+		}
+		return firmwareVersion;
+	}
+
+	@Override
+	public int getHardwareVersion() {
+		if (!isDecoded(HARDWARE_VERSION)) {
+			hardwareVersion = !comment.has(AprsComment.FLARM_HARDWARE_VERSION) ? 0
+					: comment.getHex(AprsComment.FLARM_HARDWARE_VERSION);
+			setDecoded(HARDWARE_VERSION);
+		}
+		return hardwareVersion;
+	}
+
+	@Override
+	public float getERP() {
+		if (!isDecoded(ERP)) {
+			erp = !comment.has(AprsComment.SIGNAL_POWER) ? 0 : comment.getFloat(AprsComment.SIGNAL_POWER);
+			setDecoded(ERP);
+		}
+		return erp;
+	}
+
+	@Override
+	public float getFlightLevel() {
+		if (!isDecoded(FLIGHT_LEVEL)) {
+			flightLevel = !comment.has(AprsComment.FLIGHT_LEVEL) ? 0 : comment.getFloat(AprsComment.FLIGHT_LEVEL);
+			setDecoded(FLIGHT_LEVEL);
+		}
+		return flightLevel;
+	}
+
+	@Override
+	public int hashCode() {
+		return getRawPacket().hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		return getRawPacket().equals(((LazyAprsAircraftBeacon) obj).getRawPacket());
+	}
+
+	@Override
+	public String toString() {
+		return getRawPacket();
+	}
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.ogn.commons.utils.AprsUtils.feetsToMetres;
+
+import java.util.Arrays;
+
+import org.ogn.commons.beacon.AddressType;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.AircraftType;
+
+/**
+ * Re-usable (flyweight) aircraft beacon, filled by <code>AprsLineParser.parseInto</code>. Every successful parse
+ * overwrites the previous content, so an instance must not be shared between threads nor kept by the consumer - use
+ * <code>copy()</code> to get an independent beacon.
+ */
+public class MutableAircraftBeacon extends MutableOgnBeacon implements AircraftBeacon {
+
+	private int receiverStart;
+	private int receiverEnd;
+	private int addressStart;
+	private int address;
+	private int originalAddressStart;
+	private int originalAddressEnd;
+	private int gpsStatusStart;
+	private int gpsStatusEnd;
+	// grows once and is then re-used
+	private int[] heardAircraftIds = new int[8];
+	private int heardAircraftIdCount;
+
+	private AddressType addressType;
+	private AircraftType aircraftType;
+	private boolean stealth;
+	private boolean relayed;
+	private float climbRate;
+	private float turnRate;
+	private float signalStrength;
+	private float erp;
+	private float frequencyOffset;
+	private int errorCount;
+	private int hardwareVersion;
+	private float firmwareVersion;
+	private float flightLevel;
+
+	/**
+	 * takes over the fields of the last scanned line and its (aircraft) comment
+	 */
+	void load(AprsEnvelope envelope, AprsComment comment) {
+		load(envelope);
+		receiverStart = envelope.getReceiverStart();
+		receiverEnd = envelope.getReceiverEnd();
+		relayed = envelope.isRelayed();
+
+		final int details = comment.getHex(AprsComment.DETAILS);
+		addressType = AddressType.forValue(details & 0b00000011);
+		aircraftType = AircraftType.forValue((details & 0b01111100) >>> 2);
+		stealth = ((details & 0b10000000) >>> 7) == 1;
+
+		addressStart = comment.start(AprsComment.ID);
+		address = comment.getAddress(AprsComment.ID);
+		climbRate = !comment.has(AprsComment.CLIMB_RATE) ? 0
+				: feetsToMetres(comment.getFloat(AprsComment.CLIMB_RATE)) / 60.0f;
+		turnRate = !comment.has(AprsComment.TURN_RATE) ? 0 : comment.getFloat(AprsComment.TURN_RATE);
+		flightLevel = !comment.has(AprsComment.FLIGHT_LEVEL) ? 0 : comment.getFloat(AprsComment.FLIGHT_LEVEL);
+		signalStrength = !comment.has(AprsComment.SIGNAL_QUALITY) ? 0 : comment.getFloat(AprsComment.SIGNAL_QUALITY);
+		errorCount = !comment.has(AprsComment.ERRORS) ? 0 : comment.getInt(AprsComment.ERRORS);
+		frequencyOffset = !comment.has(AprsComment.FREQUENCY_OFFSET) ? 0
+				: comment.getFloat(AprsComment.FREQUENCY_OFFSET);
+		gpsStatusStart = comment.start(AprsComment.GPS_ACCURACY);
+		gpsStatusEnd = comment.end(AprsComment.GPS_ACCURACY);
+		firmwareVersion = !comment.has(AprsComment.FLARM_SOFTWARE_VERSION) ? 0
+				: comment.getFloat(AprsComment.FLARM_SOFTWARE_VERSION);
+		hardwareVersion = !comment.has(AprsComment.FLARM_HARDWARE_VERSION) ? 0
+				: comment.getHex(AprsComment.FLARM_HARDWARE_VERSION);
+		originalAddressStart = comment.start(AprsComment.FLARM_ID);
+		originalAddressEnd = comment.end(AprsComment.FLARM_ID);
+		erp = !comment.has(AprsComment.SIGNAL_POWER) ? 0 : comment.getFloat(AprsComment.SIGNAL_POWER);
+		heardAircraftIdCount = 0;
+		if (comment.has(AprsComment.PROXIMITY)) {
+			final int start = comment.start(AprsComment.PROXIMITY);
+			final int end = comment.end(AprsComment.PROXIMITY);
+			if (heardAircraftIds.length < AprsComment.maxHeardAircraftIds(start, end))
+				heardAircraftIds = new int[AprsComment.maxHeardAircraftIds(start, end)];
+			heardAircraftIdCount = AprsComment.heardAircraftIds(text(), start, end, heardAircraftIds);
+		}
+	}
+
+	/**
+	 * @return an independent (immutable) copy of this beacon
+	 */
+	public AprsAircraftBeacon copy() {
+		return new AprsAircraftBeacon(this);
+	}
+
+	@Override
+	public String getReceiverName() {
+		return text(receiverStart, receiverEnd);
+	}
+
+	@Override
+	public AddressType getAddressType() {
+		return addressType;
+	}
+
+	@Override
+	public String getAddress() {
+		return text(addressStart, addressStart + 6);
+	}
+
+	@Override
+	public int getAddressInt() {
+		return address;
+	}
+
+	@Override
+	public String getOriginalAddress() {
+		return originalAddressStart == NONE ? "" : text(originalAddressStart, originalAddressEnd);
+	}
+
+	@Override
+	public AircraftType getAircraftType() {
+		return aircraftType;
+	}
+
+	@Override
+	public boolean isStealth() {
+		return stealth;
+	}
+
+	@Override
+	public boolean isRelayed() {
+		return relayed;
+	}
+
+	@Override
+	public float getClimbRate() {
+		return climbRate;
+	}
+
+	@Override
+	public float getTurnRate() {
+		return turnRate;
+	}
+
+	@Override
+	public float getSignalStrength() {
+		return signalStrength;
+	}
+
+	@Override
+	public float getFrequencyOffset() {
+		return frequencyOffset;
+	}
+
+	@Override
+	public String getGpsStatus() {
+		return gpsStatusStart == NONE ? "" : text(gpsStatusStart, gpsStatusEnd);
+	}
+
+	@Override
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	@Override
+	public String[] getHeardAircraftIds() {
+		return AprsComment.formatHeardAircraftIds(heardAircraftIds, heardAircraftIdCount);
+	}
+
+	@Override
+	public int getHeardAircraftIdCount() {
+		return heardAircraftIdCount;
+	}
+
+	@Override
+	public int getHeardAircraftId(int index) {
+		if (index >= heardAircraftIdCount)
+			throw new IndexOutOfBoundsException("index: " + index + ", count: " + heardAircraftIdCount);
+		return heardAircraftIds[index];
+	}
+
+	@Override
+	public boolean containsHeardAircraftId(int id) {
+		return Arrays.binarySearch(heardAircraftIds, 0, heardAircraftIdCount, id) >= 0;
+	}
+
+	@Override
+	public float getFirmwareVersion() {
+		return firmwareVersion;
+	}
+
+	@Override
+	public int getHardwareVersion() {
+		return hardwareVersion;
+	}
+
+	@Override
+	public float getERP() {
+		return erp;
+	}
+
+	@Override
+	public float getFlightLevel() {
+		return flightLevel;
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.ogn.commons.utils.AprsUtils.microDegreesToDeg;
+
+import org.ogn.commons.beacon.OgnBeacon;
+
+/**
+ * Common part of the re-usable beacons. The parsed line is copied into an internal buffer (which grows once and is
+ * then re-used), the numeric fields are kept as primitives and the text fields as offsets into the buffer - a
+ * <code>String</code> is only created when a text getter is called.
+ */
+abstract class MutableOgnBeacon implements OgnBeacon {
+
+	static final int NONE = AprsEnvelope.NONE;
+
+	// scanner state, re-used for every line parsed into this beacon
+	final AprsEnvelope envelope = new AprsEnvelope();
+	final AprsComment comment = new AprsComment();
+
+	private final StringBuilder text = new StringBuilder(256);
+
+	private int idEnd;
+	private long timestamp;
+	private int latE6;
+	private int lonE6;
+	private float alt;
+	private int track;
+	private float groundSpeed;
+
+	/**
+	 * takes over the envelope fields of the last scanned line
+	 */
+	void load(AprsEnvelope envelope) {
+		text.setLength(0);
+		text.append(envelope.getLine());
+
+		idEnd = envelope.getCallsignEnd();
+		timestamp = envelope.getTimestamp();
+		if (envelope.isStatus()) {
+			latE6 = lonE6 = 0;
+			alt = 0;
+			track = 0;
+			groundSpeed = 0;
+			return;
+		}
+
+		latE6 = envelope.decodeLatMicroDegrees();
+		lonE6 = envelope.decodeLonMicroDegrees();
+		track = envelope.decodeTrack();
+		groundSpeed = envelope.decodeGroundSpeed();
+		alt = envelope.decodeAlt();
+	}
+
+	CharSequence text() {
+		return text;
+	}
+
+	String text(int start, int end) {
+		return start == NONE ? null : text.substring(start, end);
+	}
+
+	@Override
+	public String getId() {
+		return text(0, idEnd);
+	}
+
+	@Override
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public double getLat() {
+		return microDegreesToDeg(latE6);
+	}
+
+	@Override
+	public double getLon() {
+		return microDegreesToDeg(lonE6);
+	}
+
+	@Override
+	public int getLatMicroDegrees() {
+		return latE6;
+	}
+
+	@Override
+	public int getLonMicroDegrees() {
+		return lonE6;
+	}
+
+	@Override
+	public float getAlt() {
+		return alt;
+	}
+
+	@Override
+	public int getTrack() {
+		return track;
+	}
+
+	@Override
+	public float getGroundSpeed() {
+		return groundSpeed;
+	}
+
+	@Override
+	public String getRawPacket() {
+		return text.toString();
+	}
+
+	@Override
+	public String toString() {
+		return text.toString();
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import org.ogn.commons.beacon.ReceiverBeacon;
+import org.ogn.commons.beacon.ReceiverBeaconType;
+import org.ogn.commons.utils.Version;
+
+/**
+ * Re-usable (flyweight) receiver beacon, filled by <code>AprsLineParser.parseInto</code>. Every successful parse
+ * overwrites the previous content, so an instance must not be shared between threads nor kept by the consumer - use
+ * <code>copy()</code> to get an independent beacon.
+ */
+public class MutableReceiverBeacon extends MutableOgnBeacon implements ReceiverBeacon {
+
+	private ReceiverBeaconType type;
+
+	private int srvNameStart;
+	private int srvNameEnd;
+	private int versionStart;
+	private int versionEnd;
+	private int platformStart;
+	private int platformEnd;
+
+	private float cpuLoad;
+	private float cpuTemp;
+	private float totalRam;
+	private float freeRam;
+	private float ntpError;
+	private float rtCrystalCorrection;
+	private int recCrystalCorrection;
+	private float recCrystalCorrectionFine;
+	private float recInputNoise;
+
+	/**
+	 * takes over the fields of the last scanned line and its (receiver) comment
+	 *
+	 * @param comment
+	 *            the scanned comment or null if the (position) line has none
+	 */
+	void load(AprsEnvelope envelope, AprsComment comment, ReceiverBeaconType type) {
+		load(envelope);
+		this.type = type;
+		srvNameStart = envelope.getReceiverStart();
+		srvNameEnd = envelope.getReceiverEnd();
+
+		if (comment == null) {
+			versionStart = platformStart = NONE;
+			cpuLoad = totalRam = freeRam = ntpError = rtCrystalCorrection = 0;
+			cpuTemp = Float.NaN;
+			recCrystalCorrection = 0;
+			recCrystalCorrectionFine = recInputNoise = 0;
+			return;
+		}
+
+		versionStart = comment.start(AprsComment.VERSION);
+		versionEnd = comment.end(AprsComment.VERSION);
+		platformStart = comment.start(AprsComment.PLATFORM);
+		platformEnd = comment.end(AprsComment.PLATFORM);
+		cpuLoad = comment.getFloat(AprsComment.CPU_LOAD);
+		freeRam = comment.getFloat(AprsComment.RAM_FREE);
+		totalRam = comment.getFloat(AprsComment.RAM_TOTAL);
+
+		ntpError = comment.getFloat(AprsComment.NTP_OFFSET);
+		rtCrystalCorrection = comment.getFloat(AprsComment.NTP_CORRECTION);
+		cpuTemp = !comment.has(AprsComment.CPU_TEMPERATURE) ? 0 : comment.getFloat(AprsComment.CPU_TEMPERATURE);
+		recCrystalCorrection = !comment.has(AprsComment.RF_CORRECTION_MANUAL) ? 0
+				: comment.getInt(AprsComment.RF_CORRECTION_MANUAL);
+		recCrystalCorrectionFine = !comment.has(AprsComment.RF_CORRECTION_AUTOMATIC) ? 0
+				: comment.getFloat(AprsComment.RF_CORRECTION_AUTOMATIC);
+		recInputNoise = !comment.has(AprsComment.SIGNAL_QUALITY) ? 0 : comment.getFloat(AprsComment.SIGNAL_QUALITY);
+	}
+
+	/**
+	 * @return an independent (immutable) copy of this beacon
+	 */
+	public AprsReceiverBeacon copy() {
+		return new AprsReceiverBeacon(this);
+	}
+
+	@Override
+	public ReceiverBeaconType getReceiverBeaconType() {
+		return type;
+	}
+
+	@Override
+	public float getCpuLoad() {
+		return cpuLoad;
+	}
+
+	@Override
+	public float getCpuTemp() {
+		return cpuTemp;
+	}
+
+	@Override
+	public float getFreeRam() {
+		return freeRam;
+	}
+
+	@Override
+	public float getTotalRam() {
+		return totalRam;
+	}
+
+	@Override
+	public float getNtpError() {
+		return ntpError;
+	}
+
+	@Override
+	public float getRtCrystalCorrection() {
+		return rtCrystalCorrection;
+	}
+
+	@Override
+	public int getRecCrystalCorrection() {
+		return recCrystalCorrection;
+	}
+
+	@Override
+	public float getRecCrystalCorrectionFine() {
+		return recCrystalCorrectionFine;
+	}
+
+	@Override
+	public float getRecAbsCorrection() {
+		return recCrystalCorrection + recCrystalCorrectionFine;
+	}
+
+	@Override
+	public float getRecInputNoise() {
+		return recInputNoise;
+	}
+
+	@Override
+	public String getServerName() {
+		return text(srvNameStart, srvNameEnd);
+	}
+
+	@Override
+	public String getVersion() {
+		return text(versionStart, versionEnd);
+	}
+
+	@Override
+	public String getPlatform() {
+		return text(platformStart, platformEnd);
+	}
+
+	@Override
+	public int getNumericVersion() {
+		return versionStart == NONE ? 0 : Version.fromString(getVersion());
+	}
+}
@@ -0,0 +1,470 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.collections;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.utils.AprsUtils;
+
+/**
+ * Index of the last known positions of the aircraft, for the bounding box, radius and nearest-neighbour queries of
+ * e.g. a map backend. The globe is divided into a grid of cells (of the given size in degrees); every aircraft is
+ * kept in the cell of its last position and a query looks only at the cells which may hold the aircraft it is after,
+ * instead of at all of them.
+ * <p>
+ * The index is updated from the beacon stream (it is a <code>Consumer</code>): a beacon moves its aircraft to the new
+ * cell only if it is newer than the position known. The updates of one aircraft are serialized, those of different
+ * aircraft run in parallel, and the queries run concurrently with the updates without locking. A query returns each
+ * aircraft at most once; an aircraft moving to another cell while a query runs is returned at its old or its new
+ * position, or may be missed by that query.
+ * <p>
+ * The aircraft which have not been heard of for longer than the max. age are not returned by the queries; they are
+ * removed by <code>expire()</code>, which should be called periodically. The beacons of aircraft whose address is not
+ * 6 hex digits are ignored.
+ */
+public class AircraftSpatialIndex implements Consumer<AircraftBeacon> {
+
+	public static final long DEFAULT_MAX_AGE = TimeUnit.MINUTES.toMillis(5);
+	public static final double DEFAULT_CELL_SIZE = 0.25;
+
+	/**
+	 * an aircraft at its last known position
+	 */
+	public static final class Position {
+		private final int address;
+		private final int lat;
+		private final int lon;
+		private final float alt;
+		private final long timestamp;
+		private final long seen;
+		private final long cell;
+
+		// set when the aircraft moved on (or was removed), the queries skip it from then on
+		private volatile boolean superseded;
+
+		Position(int address, AircraftBeacon beacon, long seen, long cell) {
+			this.address = address;
+			this.lat = beacon.getLatMicroDegrees();
+			this.lon = beacon.getLonMicroDegrees();
+			this.alt = beacon.getAlt();
+			this.timestamp = beacon.getTimestamp();
+			this.seen = seen;
+			this.cell = cell;
+		}
+
+		public int getAddress() {
+			return address;
+		}
+
+		public double getLat() {
+			return lat / 1e6;
+		}
+
+		public double getLon() {
+			return lon / 1e6;
+		}
+
+		public float getAlt() {
+			return alt;
+		}
+
+		/**
+		 * @return the time of the beacon
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		@Override
+		public String toString() {
+			return AprsUtils.formatAddress(address) + " " + getLat() + " " + getLon() + " " + alt + "m "
+					+ timestamp;
+		}
+	}
+
+	private final int cellSize;
+	private final int rows;
+	private final int columns;
+	private final long maxAge;
+	private final Clock clock;
+
+	private final ConcurrentHashMap<Integer, Position> positions = new ConcurrentHashMap<>();
+	// non-empty cells only, by the row (high half) and column (low half)
+	private final ConcurrentHashMap<Long, Map<Integer, Position>> cells = new ConcurrentHashMap<>();
+	// moves between cells; a query which overlaps none can not have seen an aircraft twice
+	private final AtomicLong moves = new AtomicLong();
+
+	public AircraftSpatialIndex() {
+		this(DEFAULT_CELL_SIZE, DEFAULT_MAX_AGE);
+	}
+
+	/**
+	 * @param cellSize
+	 *            size (deg) of the grid cells; about the radius of the typical query
+	 * @param maxAge
+	 *            time (ms) after the last beacon of an aircraft until it expires
+	 */
+	public AircraftSpatialIndex(double cellSize, long maxAge) {
+		this(cellSize, maxAge, Clock.systemUTC());
+	}
+
+	AircraftSpatialIndex(double cellSize, long maxAge, Clock clock) {
+		if (cellSize < 0.001 || cellSize > 90)
+			throw new IllegalArgumentException("cell size must be within 0.001 - 90 deg");
+		if (maxAge <= 0)
+			throw new IllegalArgumentException("max. age must be positive");
+		// the columns are made as equal as possible, the last one is narrower by less than 1e-6 deg per column
+		final int size = AprsUtils.degToMicroDegrees(cellSize);
+		this.columns = (360_000_000 + size - 1) / size;
+		this.cellSize = (360_000_000 + columns - 1) / columns;
+		this.rows = (180_000_000 + this.cellSize - 1) / this.cellSize;
+		this.maxAge = maxAge;
+		this.clock = clock;
+	}
+
+	private int rowOf(int lat) {
+		return Math.max(0, Math.min(rows - 1, (lat + 90_000_000) / cellSize));
+	}
+
+	private int columnOf(int lon) {
+		return Math.floorMod(Math.floorDiv(lon + 180_000_000, cellSize), columns);
+	}
+
+	private static long cell(int row, int column) {
+		return (long) row << 32 | column;
+	}
+
+	/**
+	 * moves the aircraft of the beacon to its new position, if the beacon is newer
+	 */
+	@Override
+	public void accept(AircraftBeacon beacon) {
+		update(beacon);
+	}
+
+	/**
+	 * @return true if the position of the aircraft was updated, false if the beacon was not newer than the position
+	 *         known or the aircraft address is not 6 hex digits
+	 */
+	public boolean update(AircraftBeacon beacon) {
+		final int address = beacon.getAddressInt();
+		if (address < 0)
+			return false;
+
+		final Position position = new Position(address, beacon, clock.millis(),
+				cell(rowOf(beacon.getLatMicroDegrees()), columnOf(beacon.getLonMicroDegrees())));
+		// the cells are changed while the entry of the aircraft is locked
+		return positions.compute(address, (a, previous) -> {
+			if (previous != null && previous.timestamp >= position.timestamp)
+				return previous;
+			if (previous != null) {
+				// hidden before the new position shows up: a query can miss the aircraft, but not see it twice
+				previous.superseded = true;
+				if (previous.cell != position.cell) {
+					moves.incrementAndGet();
+					removeFromCell(previous);
+				}
+			}
+			cells.compute(position.cell, (c, entries) -> {
+				final Map<Integer, Position> result = entries != null ? entries : new ConcurrentHashMap<>();
+				result.put(a, position);
+				return result;
+			});
+			return position;
+		}) == position;
+	}
+
+	private void removeFromCell(Position position) {
+		cells.computeIfPresent(position.cell, (c, entries) -> {
+			entries.remove(position.address, position);
+			return entries.isEmpty() ? null : entries;
+		});
+	}
+
+	/**
+	 * removes the aircraft from the index
+	 *
+	 * @return true if it was in the index
+	 */
+	public boolean remove(int address) {
+		final boolean[] removed = new boolean[1];
+		positions.computeIfPresent(address, (a, position) -> {
+			position.superseded = true;
+			removeFromCell(position);
+			removed[0] = true;
+			return null;
+		});
+		return removed[0];
+	}
+
+	/**
+	 * removes the aircraft which have not been heard of for longer than the max. age
+	 *
+	 * @return the number of aircraft removed
+	 */
+	public int expire() {
+		final long now = clock.millis();
+		final int[] removed = new int[1];
+		for (final Position candidate : positions.values()) {
+			if (!isLive(candidate, now)) {
+				positions.computeIfPresent(candidate.address, (a, position) -> {
+					if (isLive(position, now))
+						return position;
+					position.superseded = true;
+					removeFromCell(position);
+					removed[0]++;
+					return null;
+				});
+			}
+		}
+		return removed[0];
+	}
+
+	private boolean isLive(Position position, long now) {
+		return now - position.seen < maxAge;
+	}
+
+	/**
+	 * @return the number of aircraft in the index (including the expired ones not removed yet)
+	 */
+	public int size() {
+		return positions.size();
+	}
+
+	/**
+	 * removes all the aircraft
+	 */
+	public void clear() {
+		for (final Integer address : positions.keySet())
+			remove(address);
+	}
+
+	/**
+	 * @return the position of the aircraft or null if it has not been seen recently
+	 */
+	public Position get(int address) {
+		final Position position = positions.get(address);
+		return position != null && isLive(position, clock.millis()) ? position : null;
+	}
+
+	/**
+	 * calls the visitor with the live aircraft of the cell
+	 */
+	private void visitCell(int row, int column, long now, Consumer<Position> visitor) {
+		final Map<Integer, Position> entries = cells.get(cell(row, column));
+		if (entries == null)
+			return;
+		for (final Position position : entries.values()) {
+			if (!position.superseded && isLive(position, now))
+				visitor.accept(position);
+		}
+	}
+
+	/**
+	 * @return the columns from the west one to the east one, across the antimeridian if west &gt; east
+	 */
+	private int[] columnRange(int west, int east) {
+		final int from = columnOf(west);
+		final int to = columnOf(east);
+		final int count = from <= to && west <= east ? to - from + 1 : to - from + columns + 1;
+		return new int[] { from, Math.min(count, columns) };
+	}
+
+	/**
+	 * finds the aircraft within the box; the box crosses the antimeridian if west &gt; east
+	 *
+	 * @return the aircraft found, in no particular order
+	 */
+	public List<Position> withinBox(double south, double west, double north, double east) {
+		final int s = AprsUtils.degToMicroDegrees(south);
+		final int n = AprsUtils.degToMicroDegrees(north);
+		final int w = AprsUtils.degToMicroDegrees(west);
+		final int e = AprsUtils.degToMicroDegrees(east);
+		final boolean wraps = w > e;
+		final long now = clock.millis();
+
+		final List<Position> result = new ArrayList<>();
+		final Consumer<Position> filter = position -> {
+			final boolean inLon = wraps ? position.lon >= w || position.lon <= e
+					: position.lon >= w && position.lon <= e;
+			if (inLon && position.lat >= s && position.lat <= n)
+				result.add(position);
+		};
+
+		final long movesBefore = moves.get();
+		final int[] range = columnRange(w, e);
+		for (int row = rowOf(s); row <= rowOf(n); row++) {
+			for (int i = 0; i < range[1]; i++)
+				visitCell(row, (range[0] + i) % columns, now, filter);
+		}
+		return moves.get() == movesBefore ? result : distinct(result);
+	}
+
+	/**
+	 * finds the aircraft within the given distance of the point
+	 *
+	 * @param radius
+	 *            distance (m)
+	 * @return the aircraft found, in no particular order
+	 */
+	public List<Position> withinRadius(double lat, double lon, double radius) {
+		final double angle = radius / AprsUtils.EARTH_RADIUS;
+		final double latRad = Math.toRadians(lat);
+		final int s = AprsUtils.degToMicroDegrees(Math.max(-90, lat - Math.toDegrees(angle)));
+		final int n = AprsUtils.degToMicroDegrees(Math.min(90, lat + Math.toDegrees(angle)));
+
+		// the widest longitude span of the circle, unless it contains a pole
+		final double sinLon = Math.sin(angle) / Math.cos(latRad);
+		final int[] range;
+		if (angle >= Math.PI / 2 || sinLon >= 1 || s <= -90_000_000 || n >= 90_000_000) {
+			range = new int[] { 0, columns };
+		} else {
+			final double dLon = Math.toDegrees(Math.asin(sinLon));
+			range = columnRange(AprsUtils.degToMicroDegrees(wrap(lon - dLon)),
+					AprsUtils.degToMicroDegrees(wrap(lon + dLon)));
+		}
+
+		final AprsUtils.ReferencePoint center = new AprsUtils.ReferencePoint(lat, lon);
+		final long now = clock.millis();
+		final List<Position> result = new ArrayList<>();
+		final Consumer<Position> filter = position -> {
+			if (center.distance(position.lat / 1e6, position.lon / 1e6) <= radius)
+				result.add(position);
+		};
+		final long movesBefore = moves.get();
+		for (int row = rowOf(s); row <= rowOf(n); row++) {
+			for (int i = 0; i < range[1]; i++)
+				visitCell(row, (range[0] + i) % columns, now, filter);
+		}
+		return moves.get() == movesBefore ? result : distinct(result);
+	}
+
+	/**
+	 * @return the positions without the older ones of the aircraft found more than once (the aircraft moved while
+	 *         the query ran), in the original order
+	 */
+	private static List<Position> distinct(List<Position> positions) {
+		final Map<Integer, Position> newest = new HashMap<>();
+		for (final Position position : positions)
+			newest.merge(position.address, position, (a, b) -> a.timestamp >= b.timestamp ? a : b);
+		if (newest.size() == positions.size())
+			return positions;
+
+		final List<Position> result = new ArrayList<>(newest.size());
+		for (final Position position : positions) {
+			if (newest.get(position.address) == position)
+				result.add(position);
+		}
+		return result;
+	}
+
+	private static double wrap(double lon) {
+		return lon > 180 ? lon - 360 : lon < -180 ? lon + 360 : lon;
+	}
+
+	private static final class Neighbour {
+		final Position position;
+		final double distance;
+
+		Neighbour(Position position, double distance) {
+			this.position = position;
+			this.distance = distance;
+		}
+	}
+
+	/**
+	 * finds the aircraft nearest to the point. The rings of cells around the point are searched outwards until the
+	 * next ring can not hold anything nearer than the k-th aircraft found.
+	 *
+	 * @param k
+	 *            max. number of aircraft to find
+	 * @return the nearest aircraft, the nearest first
+	 */
+	public List<Position> nearest(double lat, double lon, int k) {
+		if (k <= 0)
+			return Collections.emptyList();
+
+		final int row0 = rowOf(AprsUtils.degToMicroDegrees(lat));
+		final int column0 = columnOf(AprsUtils.degToMicroDegrees(lon));
+		final AprsUtils.ReferencePoint center = new AprsUtils.ReferencePoint(lat, lon);
+		final long now = clock.millis();
+
+		final PriorityQueue<Neighbour> nearest = new PriorityQueue<>(k + 1,
+				Comparator.comparingDouble((Neighbour neighbour) -> neighbour.distance).reversed());
+		final Consumer<Position> collector = position -> {
+			final double distance = center.distance(position.lat / 1e6, position.lon / 1e6);
+			if (nearest.size() < k || distance < nearest.peek().distance) {
+				nearest.add(new Neighbour(position, distance));
+				if (nearest.size() > k)
+					nearest.poll();
+			}
+		};
+
+		final long movesBefore = moves.get();
+		int visited = 0;
+		for (int ring = 0;; ring++) {
+			if (nearest.size() == k && ringDistance(lat, ring) > nearest.peek().distance)
+				break;
+			if (2 * ring + 1 >= columns || visited > cells.size()) {
+				// the rings would wrap around the globe, or it is cheaper to look at every (non-empty) cell
+				nearest.clear();
+				for (final Map<Integer, Position> entries : cells.values()) {
+					for (final Position position : entries.values()) {
+						if (!position.superseded && isLive(position, now))
+							collector.accept(position);
+					}
+				}
+				break;
+			}
+
+			for (int dr = -ring; dr <= ring; dr++) {
+				final int row = row0 + dr;
+				if (row < 0 || row >= rows)
+					continue;
+				final int step = dr == -ring || dr == ring ? 1 : 2 * ring;
+				for (int dc = -ring; dc <= ring; dc += Math.max(1, step)) {
+					visitCell(row, Math.floorMod(column0 + dc, columns), now, collector);
+					visited++;
+				}
+			}
+		}
+
+		final List<Position> result = new ArrayList<>(nearest.size());
+		while (!nearest.isEmpty())
+			result.add(nearest.poll().position);
+		Collections.reverse(result);
+		// if an aircraft was seen twice fewer than k are left, which is all right for a query racing the updates
+		return moves.get() == movesBefore ? result : distinct(result);
+	}
+
+	/**
+	 * @return a lower bound of the distance (m) between a point at the given latitude and any point in the cells of
+	 *         the given ring around the point's cell
+	 */
+	private double ringDistance(double lat, int ring) {
+		if (ring <= 1)
+			return 0;
+		// the last column may be a little narrower
+		final double gap = Math.toRadians(((ring - 1) * (double) cellSize - (columns * (long) cellSize - 360_000_000))
+				/ 1e6);
+		// meridian distance is exact, the parallels are shortest at the highest latitude the ring reaches
+		final double maxLat = Math.min(90, Math.abs(lat) + (ring + 1) * cellSize / 1e6);
+		final double alongParallel = 2 * AprsUtils.EARTH_RADIUS * Math.cos(Math.toRadians(maxLat))
+				* Math.sin(Math.min(Math.PI, gap) / 2);
+		return Math.min(AprsUtils.EARTH_RADIUS * gap, alongParallel);
+	}
+}
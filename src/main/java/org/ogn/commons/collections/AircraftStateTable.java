@@ -0,0 +1,627 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.collections;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.AircraftType;
+import org.ogn.commons.utils.AprsUtils;
+
+/**
+ * The last known state (position, altitude, track, speeds, time) of every aircraft seen recently, keyed by the 24-bit
+ * address. Instead of one beacon object per aircraft, the state is kept in primitive columns (one array per field),
+ * which are the slots of an open-addressing hash table: tens of thousands of aircraft cost a few arrays, not tens of
+ * thousands of objects and strings.
+ * <p>
+ * The table is split into independently locked stripes. A beacon replaces the state of its aircraft only if it is
+ * newer (the copies heard by other receivers and the late arrivals are ignored). Readers do not lock: they copy the
+ * rows optimistically and retry if a writer got in the way (falling back to a read lock after a few attempts), so
+ * every row they get is consistent, i.e. all its fields come from the same beacon. A snapshot is consistent per
+ * stripe, not across the whole table.
+ * <p>
+ * The aircraft which have not been heard of for longer than the max. age are not returned to the readers; they are
+ * removed by <code>expire()</code>, which should be called periodically. The beacons of aircraft whose address is not
+ * 6 hex digits are ignored.
+ */
+public class AircraftStateTable implements Consumer<AircraftBeacon> {
+
+	public static final long DEFAULT_MAX_AGE = TimeUnit.MINUTES.toMillis(5);
+
+	private static final int STRIPES = 16;
+	private static final int MIN_STRIPE_CAPACITY = 64;
+
+	// attempts at an optimistic read before taking the read lock
+	private static final int OPTIMISTIC_READS = 3;
+
+	// marks the free slots (the addresses are 24-bit)
+	private static final int FREE = -1;
+
+	private static final AircraftType[] AIRCRAFT_TYPES = AircraftType.values();
+
+	/**
+	 * the state of one aircraft, as of its last beacon
+	 */
+	public static final class State {
+		private final int address;
+		private final int lat;
+		private final int lon;
+		private final float alt;
+		private final int track;
+		private final float groundSpeed;
+		private final float climbRate;
+		private final AircraftType aircraftType;
+		private final long timestamp;
+
+		State(Columns columns, int slot) {
+			this.address = columns.addresses[slot];
+			this.lat = columns.lats[slot];
+			this.lon = columns.lons[slot];
+			this.alt = columns.alts[slot];
+			this.track = columns.tracks[slot];
+			this.groundSpeed = columns.groundSpeeds[slot];
+			this.climbRate = columns.climbRates[slot];
+			this.aircraftType = AIRCRAFT_TYPES[columns.aircraftTypes[slot]];
+			this.timestamp = columns.timestamps[slot];
+		}
+
+		public int getAddress() {
+			return address;
+		}
+
+		public int getLatMicroDegrees() {
+			return lat;
+		}
+
+		public int getLonMicroDegrees() {
+			return lon;
+		}
+
+		public double getLat() {
+			return lat / 1e6;
+		}
+
+		public double getLon() {
+			return lon / 1e6;
+		}
+
+		public float getAlt() {
+			return alt;
+		}
+
+		public int getTrack() {
+			return track;
+		}
+
+		public float getGroundSpeed() {
+			return groundSpeed;
+		}
+
+		public float getClimbRate() {
+			return climbRate;
+		}
+
+		public AircraftType getAircraftType() {
+			return aircraftType;
+		}
+
+		/**
+		 * @return the time of the beacon
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		@Override
+		public String toString() {
+			return AprsUtils.formatAddress(address) + " " + getLat() + " " + getLon() + " " + alt + "m "
+					+ timestamp;
+		}
+	}
+
+	/**
+	 * copy of the states of all the (live) aircraft, in no particular order; the rows are accessed by index
+	 */
+	public static final class Snapshot {
+		private final long time;
+		private int size;
+		private int[] addresses;
+		private int[] lats;
+		private int[] lons;
+		private float[] alts;
+		private int[] tracks;
+		private float[] groundSpeeds;
+		private float[] climbRates;
+		private byte[] aircraftTypes;
+		private long[] timestamps;
+
+		Snapshot(long time, int capacity) {
+			this.time = time;
+			addresses = new int[capacity];
+			lats = new int[capacity];
+			lons = new int[capacity];
+			alts = new float[capacity];
+			tracks = new int[capacity];
+			groundSpeeds = new float[capacity];
+			climbRates = new float[capacity];
+			aircraftTypes = new byte[capacity];
+			timestamps = new long[capacity];
+		}
+
+		void add(Columns columns, int slot) {
+			if (size == addresses.length) {
+				final int capacity = Math.max(16, size * 2);
+				addresses = Arrays.copyOf(addresses, capacity);
+				lats = Arrays.copyOf(lats, capacity);
+				lons = Arrays.copyOf(lons, capacity);
+				alts = Arrays.copyOf(alts, capacity);
+				tracks = Arrays.copyOf(tracks, capacity);
+				groundSpeeds = Arrays.copyOf(groundSpeeds, capacity);
+				climbRates = Arrays.copyOf(climbRates, capacity);
+				aircraftTypes = Arrays.copyOf(aircraftTypes, capacity);
+				timestamps = Arrays.copyOf(timestamps, capacity);
+			}
+			addresses[size] = columns.addresses[slot];
+			lats[size] = columns.lats[slot];
+			lons[size] = columns.lons[slot];
+			alts[size] = columns.alts[slot];
+			tracks[size] = columns.tracks[slot];
+			groundSpeeds[size] = columns.groundSpeeds[slot];
+			climbRates[size] = columns.climbRates[slot];
+			aircraftTypes[size] = columns.aircraftTypes[slot];
+			timestamps[size] = columns.timestamps[slot];
+			size++;
+		}
+
+		/**
+		 * drops the rows added after the given size (the rows of a stripe read while it was being written)
+		 */
+		void truncate(int newSize) {
+			size = newSize;
+		}
+
+		/**
+		 * @return the time (ms) at which the snapshot was taken
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		private int check(int index) {
+			if (index >= size)
+				throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+			return index;
+		}
+
+		public int getAddress(int index) {
+			return addresses[check(index)];
+		}
+
+		public int getLatMicroDegrees(int index) {
+			return lats[check(index)];
+		}
+
+		public int getLonMicroDegrees(int index) {
+			return lons[check(index)];
+		}
+
+		public double getLat(int index) {
+			return lats[check(index)] / 1e6;
+		}
+
+		public double getLon(int index) {
+			return lons[check(index)] / 1e6;
+		}
+
+		public float getAlt(int index) {
+			return alts[check(index)];
+		}
+
+		public int getTrack(int index) {
+			return tracks[check(index)];
+		}
+
+		public float getGroundSpeed(int index) {
+			return groundSpeeds[check(index)];
+		}
+
+		public float getClimbRate(int index) {
+			return climbRates[check(index)];
+		}
+
+		public AircraftType getAircraftType(int index) {
+			return AIRCRAFT_TYPES[aircraftTypes[check(index)]];
+		}
+
+		/**
+		 * @return the time of the last beacon of the aircraft
+		 */
+		public long getTimestamp(int index) {
+			return timestamps[check(index)];
+		}
+	}
+
+	/**
+	 * the slots of a stripe, one array per field. A stripe replaces its columns when it grows, so a reader which got
+	 * hold of the columns always sees arrays of the same length.
+	 */
+	static final class Columns {
+		final int mask;
+		final int[] addresses;
+		final int[] lats;
+		final int[] lons;
+		final float[] alts;
+		final int[] tracks;
+		final float[] groundSpeeds;
+		final float[] climbRates;
+		final byte[] aircraftTypes;
+		final long[] timestamps;
+		// arrival of the last beacon, for the expiry
+		final long[] seen;
+
+		Columns(int capacity) {
+			mask = capacity - 1;
+			addresses = new int[capacity];
+			Arrays.fill(addresses, FREE);
+			lats = new int[capacity];
+			lons = new int[capacity];
+			alts = new float[capacity];
+			tracks = new int[capacity];
+			groundSpeeds = new float[capacity];
+			climbRates = new float[capacity];
+			aircraftTypes = new byte[capacity];
+			timestamps = new long[capacity];
+			seen = new long[capacity];
+		}
+
+		int capacity() {
+			return mask + 1;
+		}
+
+		/**
+		 * @return the slot of the address or the free slot at which it would be inserted; -1 if neither was found (the
+		 *         columns were read while being written)
+		 */
+		int slot(int address) {
+			int i = hash(address) & mask;
+			for (int probes = 0; probes <= mask; probes++) {
+				final int a = addresses[i];
+				if (a == address || a == FREE)
+					return i;
+				i = (i + 1) & mask;
+			}
+			return -1;
+		}
+
+		void set(int slot, AircraftBeacon beacon, long now) {
+			lats[slot] = beacon.getLatMicroDegrees();
+			lons[slot] = beacon.getLonMicroDegrees();
+			alts[slot] = beacon.getAlt();
+			tracks[slot] = beacon.getTrack();
+			groundSpeeds[slot] = beacon.getGroundSpeed();
+			climbRates[slot] = beacon.getClimbRate();
+			aircraftTypes[slot] = (byte) beacon.getAircraftType().ordinal();
+			timestamps[slot] = beacon.getTimestamp();
+			seen[slot] = now;
+		}
+
+		void move(int from, int to) {
+			addresses[to] = addresses[from];
+			lats[to] = lats[from];
+			lons[to] = lons[from];
+			alts[to] = alts[from];
+			tracks[to] = tracks[from];
+			groundSpeeds[to] = groundSpeeds[from];
+			climbRates[to] = climbRates[from];
+			aircraftTypes[to] = aircraftTypes[from];
+			timestamps[to] = timestamps[from];
+			seen[to] = seen[from];
+		}
+	}
+
+	/**
+	 * a part of the table; the columns and the size are written under the write lock
+	 */
+	private static final class Stripe {
+		final StampedLock lock = new StampedLock();
+		Columns columns = new Columns(MIN_STRIPE_CAPACITY);
+		int size;
+
+		/**
+		 * @return true if the beacon was newer than the state of its aircraft
+		 */
+		boolean update(int address, AircraftBeacon beacon, long now) {
+			final long stamp = lock.writeLock();
+			try {
+				Columns c = columns;
+				int i = c.slot(address);
+				if (c.addresses[i] == address) {
+					if (beacon.getTimestamp() <= c.timestamps[i])
+						return false;
+				} else {
+					if ((size + 1) * 2 > c.capacity()) {
+						c = resize(c.capacity() * 2);
+						i = c.slot(address);
+					}
+					c.addresses[i] = address;
+					size++;
+				}
+				c.set(i, beacon, now);
+				return true;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		private Columns resize(int capacity) {
+			final Columns old = columns;
+			final Columns resized = new Columns(capacity);
+			for (int i = 0; i <= old.mask; i++) {
+				if (old.addresses[i] != FREE) {
+					final int j = resized.slot(old.addresses[i]);
+					resized.addresses[j] = old.addresses[i];
+					copy(old, i, resized, j);
+				}
+			}
+			columns = resized;
+			return resized;
+		}
+
+		private static void copy(Columns from, int i, Columns to, int j) {
+			to.lats[j] = from.lats[i];
+			to.lons[j] = from.lons[i];
+			to.alts[j] = from.alts[i];
+			to.tracks[j] = from.tracks[i];
+			to.groundSpeeds[j] = from.groundSpeeds[i];
+			to.climbRates[j] = from.climbRates[i];
+			to.aircraftTypes[j] = from.aircraftTypes[i];
+			to.timestamps[j] = from.timestamps[i];
+			to.seen[j] = from.seen[i];
+		}
+
+		/**
+		 * removes the row of the slot, shifting the following rows of its cluster back (there are no tombstones)
+		 */
+		private void remove(Columns c, int slot) {
+			int hole = slot;
+			int j = slot;
+			while (true) {
+				j = (j + 1) & c.mask;
+				final int address = c.addresses[j];
+				if (address == FREE)
+					break;
+				final int home = hash(address) & c.mask;
+				// the row may fill the hole unless its home slot lies cyclically in (hole, j]
+				if (((j - home) & c.mask) >= ((j - hole) & c.mask)) {
+					c.move(j, hole);
+					hole = j;
+				}
+			}
+			c.addresses[hole] = FREE;
+			size--;
+		}
+
+		/**
+		 * @return the number of aircraft removed
+		 */
+		int expire(long now, long maxAge) {
+			final long stamp = lock.writeLock();
+			try {
+				final Columns c = columns;
+				int removed = 0;
+				for (int i = 0; i <= c.mask; i++) {
+					// a removal may move another row into the slot, which then has to be checked as well
+					while (c.addresses[i] != FREE && now - c.seen[i] >= maxAge) {
+						remove(c, i);
+						removed++;
+					}
+				}
+				return removed;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		void clear() {
+			final long stamp = lock.writeLock();
+			try {
+				columns = new Columns(MIN_STRIPE_CAPACITY);
+				size = 0;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+	}
+
+	private final long maxAge;
+	private final Clock clock;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	private final AtomicLong updates = new AtomicLong();
+	private final AtomicLong ignored = new AtomicLong();
+
+	public AircraftStateTable() {
+		this(DEFAULT_MAX_AGE);
+	}
+
+	/**
+	 * @param maxAge
+	 *            time (ms) after the last beacon of an aircraft until it expires
+	 */
+	public AircraftStateTable(long maxAge) {
+		this(maxAge, Clock.systemUTC());
+	}
+
+	AircraftStateTable(long maxAge, Clock clock) {
+		if (maxAge <= 0)
+			throw new IllegalArgumentException("max. age must be positive");
+		this.maxAge = maxAge;
+		this.clock = clock;
+		for (int i = 0; i < STRIPES; i++)
+			stripes[i] = new Stripe();
+	}
+
+	private static int hash(int address) {
+		// the low bits of addresses are not random enough for a power-of-two table
+		final int h = address * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private Stripe stripe(int address) {
+		// the high bits choose the stripe, the low ones the slot
+		return stripes[hash(address) >>> 28];
+	}
+
+	/**
+	 * updates the state of the aircraft of the beacon, if the beacon is newer
+	 */
+	@Override
+	public void accept(AircraftBeacon beacon) {
+		update(beacon);
+	}
+
+	/**
+	 * @return true if the state of the aircraft was updated, false if the beacon was not newer than the state or the
+	 *         aircraft address is not 6 hex digits
+	 */
+	public boolean update(AircraftBeacon beacon) {
+		final int address = beacon.getAddressInt();
+		if (address >= 0 && stripe(address).update(address, beacon, clock.millis())) {
+			updates.incrementAndGet();
+			return true;
+		}
+		ignored.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * @return the state of the aircraft or null if it has not been seen recently
+	 */
+	public State get(int address) {
+		final Stripe stripe = stripe(address);
+		final long now = clock.millis();
+
+		for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+			final long stamp = stripe.lock.tryOptimisticRead();
+			if (stamp == 0)
+				continue;
+			final State state = find(stripe.columns, address, now);
+			if (stripe.lock.validate(stamp))
+				return state;
+		}
+
+		final long stamp = stripe.lock.readLock();
+		try {
+			return find(stripe.columns, address, now);
+		} finally {
+			stripe.lock.unlockRead(stamp);
+		}
+	}
+
+	private State find(Columns c, int address, long now) {
+		final int i = c.slot(address);
+		if (i < 0 || c.addresses[i] != address || now - c.seen[i] >= maxAge)
+			return null;
+		return new State(c, i);
+	}
+
+	/**
+	 * @return a copy of the states of all the aircraft seen recently
+	 */
+	public Snapshot snapshot() {
+		final long now = clock.millis();
+		final Snapshot snapshot = new Snapshot(now, size());
+		for (final Stripe stripe : stripes)
+			copy(stripe, snapshot, now);
+		return snapshot;
+	}
+
+	private void copy(Stripe stripe, Snapshot snapshot, long now) {
+		final int mark = snapshot.size();
+		for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+			final long stamp = stripe.lock.tryOptimisticRead();
+			if (stamp == 0)
+				continue;
+			copyLive(stripe.columns, snapshot, now);
+			if (stripe.lock.validate(stamp))
+				return;
+			snapshot.truncate(mark);
+		}
+
+		final long stamp = stripe.lock.readLock();
+		try {
+			copyLive(stripe.columns, snapshot, now);
+		} finally {
+			stripe.lock.unlockRead(stamp);
+		}
+	}
+
+	private void copyLive(Columns c, Snapshot snapshot, long now) {
+		for (int i = 0; i <= c.mask; i++) {
+			if (c.addresses[i] != FREE && now - c.seen[i] < maxAge)
+				snapshot.add(c, i);
+		}
+	}
+
+	/**
+	 * removes the aircraft which have not been heard of for longer than the max. age
+	 *
+	 * @return the number of aircraft removed
+	 */
+	public int expire() {
+		final long now = clock.millis();
+		int removed = 0;
+		for (final Stripe stripe : stripes)
+			removed += stripe.expire(now, maxAge);
+		return removed;
+	}
+
+	/**
+	 * @return the number of aircraft in the table (including the expired ones not removed yet)
+	 */
+	public int size() {
+		int result = 0;
+		for (final Stripe stripe : stripes) {
+			final long stamp = stripe.lock.readLock();
+			try {
+				result += stripe.size;
+			} finally {
+				stripe.lock.unlockRead(stamp);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * removes all the aircraft
+	 */
+	public void clear() {
+		for (final Stripe stripe : stripes)
+			stripe.clear();
+	}
+
+	/**
+	 * @return the number of beacons which updated the state of their aircraft
+	 */
+	public long getUpdates() {
+		return updates.get();
+	}
+
+	/**
+	 * @return the number of beacons ignored (not newer, or no hex address)
+	 */
+	public long getIgnored() {
+		return ignored.get();
+	}
+}
@@ -0,0 +1,452 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.collections;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.ogn.commons.beacon.AircraftBeacon;
+
+/**
+ * Track history (time, position and altitude of the fixes) of every aircraft, for replaying the flights on demand.
+ * Instead of beacon objects, the fixes of an aircraft are appended to byte chunks as the differences to the previous
+ * fix, in variable-length integers: the timestamp (in seconds when whole, else in ms), the latitude and longitude (in
+ * micro-degrees) and the altitude (in decimetres). A fix of an aircraft beaconing every few seconds takes about 6
+ * bytes; the coordinates and timestamps are decoded exactly, the altitudes to 0.1 m.
+ * <p>
+ * A chunk starts small and grows up to its max. size, after which a new one is started; the chunks are dropped as a
+ * whole when all their fixes are older than the max. age, by <code>expire()</code>, which should be called
+ * periodically. The fixes older than the max. age are not returned by the queries.
+ * <p>
+ * The beacons which are not newer than the last fix of their aircraft (the copies heard by other receivers and the
+ * late arrivals) are ignored, as are those of aircraft whose address is not 6 hex digits. The updates and queries of
+ * one aircraft are serialized, those of different aircraft run in parallel.
+ */
+public class AircraftTrackStore implements Consumer<AircraftBeacon> {
+
+	public static final long DEFAULT_MAX_AGE = TimeUnit.HOURS.toMillis(6);
+
+	private static final int MIN_CHUNK_SIZE = 64;
+	private static final int MAX_CHUNK_SIZE = 4096;
+
+	// the longest encoding of a fix: the time delta (10 bytes) and three int deltas (5 bytes each)
+	private static final int MAX_FIX_SIZE = 25;
+
+	/**
+	 * the fixes of an aircraft within a time range, the oldest first; the fixes are accessed by index
+	 */
+	public static final class Track {
+		private final int address;
+		private int size;
+		private long[] timestamps;
+		private int[] lats;
+		private int[] lons;
+		private int[] alts;
+
+		Track(int address, int capacity) {
+			this.address = address;
+			timestamps = new long[capacity];
+			lats = new int[capacity];
+			lons = new int[capacity];
+			alts = new int[capacity];
+		}
+
+		void add(long timestamp, int lat, int lon, int alt) {
+			if (size == timestamps.length) {
+				final int capacity = Math.max(16, size * 2);
+				timestamps = Arrays.copyOf(timestamps, capacity);
+				lats = Arrays.copyOf(lats, capacity);
+				lons = Arrays.copyOf(lons, capacity);
+				alts = Arrays.copyOf(alts, capacity);
+			}
+			timestamps[size] = timestamp;
+			lats[size] = lat;
+			lons[size] = lon;
+			alts[size] = alt;
+			size++;
+		}
+
+		public int getAddress() {
+			return address;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		private int check(int index) {
+			if (index >= size)
+				throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+			return index;
+		}
+
+		/**
+		 * @return the time of the beacon
+		 */
+		public long getTimestamp(int index) {
+			return timestamps[check(index)];
+		}
+
+		public int getLatMicroDegrees(int index) {
+			return lats[check(index)];
+		}
+
+		public int getLonMicroDegrees(int index) {
+			return lons[check(index)];
+		}
+
+		public double getLat(int index) {
+			return lats[check(index)] / 1e6;
+		}
+
+		public double getLon(int index) {
+			return lons[check(index)] / 1e6;
+		}
+
+		/**
+		 * @return the altitude (m), to 0.1 m
+		 */
+		public float getAlt(int index) {
+			return alts[check(index)] / 10f;
+		}
+	}
+
+	/**
+	 * fixes encoded as differences, the first one (the base) is kept as it is
+	 */
+	private static final class Chunk {
+		final long baseTimestamp;
+		final int baseLat;
+		final int baseLon;
+		final int baseAlt;
+		byte[] data = new byte[MIN_CHUNK_SIZE];
+		int length;
+		int count = 1;
+		long lastTimestamp;
+
+		Chunk(long timestamp, int lat, int lon, int alt) {
+			baseTimestamp = lastTimestamp = timestamp;
+			baseLat = lat;
+			baseLon = lon;
+			baseAlt = alt;
+		}
+	}
+
+	/**
+	 * the chunks of an aircraft, the oldest first, and its last fix; changed under the lock of the history
+	 */
+	private static final class History {
+		final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+		long lastTimestamp = Long.MIN_VALUE;
+		int lastLat;
+		int lastLon;
+		int lastAlt;
+		// set when the history was removed from the store, the appends have to go to a new one
+		boolean removed;
+	}
+
+	private final long maxAge;
+	private final Clock clock;
+	private final ConcurrentHashMap<Integer, History> histories = new ConcurrentHashMap<>();
+
+	private final AtomicLong fixes = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong ignored = new AtomicLong();
+
+	public AircraftTrackStore() {
+		this(DEFAULT_MAX_AGE);
+	}
+
+	/**
+	 * @param maxAge
+	 *            time (ms) for which the fixes are kept, counted from their timestamp
+	 */
+	public AircraftTrackStore(long maxAge) {
+		this(maxAge, Clock.systemUTC());
+	}
+
+	AircraftTrackStore(long maxAge, Clock clock) {
+		if (maxAge <= 0)
+			throw new IllegalArgumentException("max. age must be positive");
+		this.maxAge = maxAge;
+		this.clock = clock;
+	}
+
+	/**
+	 * appends the fix of the beacon to the track of its aircraft, if the beacon is newer
+	 */
+	@Override
+	public void accept(AircraftBeacon beacon) {
+		append(beacon);
+	}
+
+	/**
+	 * @return true if the fix was appended, false if the beacon was not newer than the last fix of its aircraft or the
+	 *         aircraft address is not 6 hex digits
+	 */
+	public boolean append(AircraftBeacon beacon) {
+		final int address = beacon.getAddressInt();
+		if (address < 0) {
+			ignored.incrementAndGet();
+			return false;
+		}
+		final long timestamp = beacon.getTimestamp();
+		final int lat = beacon.getLatMicroDegrees();
+		final int lon = beacon.getLonMicroDegrees();
+		final int alt = Math.round(beacon.getAlt() * 10);
+
+		while (true) {
+			final History history = histories.computeIfAbsent(address, a -> new History());
+			synchronized (history) {
+				if (history.removed)
+					continue;
+				if (timestamp <= history.lastTimestamp) {
+					ignored.incrementAndGet();
+					return false;
+				}
+				append(history, timestamp, lat, lon, alt);
+				fixes.incrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	private void append(History history, long timestamp, int lat, int lon, int alt) {
+		Chunk chunk = history.chunks.peekLast();
+		if (chunk != null && chunk.length + MAX_FIX_SIZE > chunk.data.length) {
+			if (chunk.data.length < MAX_CHUNK_SIZE) {
+				final int size = Math.min(MAX_CHUNK_SIZE, chunk.data.length * 2);
+				bytes.addAndGet(size - chunk.data.length);
+				chunk.data = Arrays.copyOf(chunk.data, size);
+			} else {
+				// sealed, the unused tail is given back
+				bytes.addAndGet(chunk.length - chunk.data.length);
+				chunk.data = Arrays.copyOf(chunk.data, chunk.length);
+				chunk = null;
+			}
+		}
+
+		if (chunk == null) {
+			chunk = new Chunk(timestamp, lat, lon, alt);
+			history.chunks.addLast(chunk);
+			bytes.addAndGet(chunk.data.length);
+		} else {
+			final long dt = timestamp - history.lastTimestamp;
+			// the APRS times are whole seconds
+			chunk.length = dt % 1000 == 0 ? writeVarLong(chunk.data, chunk.length, dt / 1000 << 1)
+					: writeVarLong(chunk.data, chunk.length, dt << 1 | 1);
+			chunk.length = writeVarInt(chunk.data, chunk.length, zigZag(lat - history.lastLat));
+			chunk.length = writeVarInt(chunk.data, chunk.length, zigZag(lon - history.lastLon));
+			chunk.length = writeVarInt(chunk.data, chunk.length, zigZag(alt - history.lastAlt));
+			chunk.count++;
+			chunk.lastTimestamp = timestamp;
+		}
+		history.lastTimestamp = timestamp;
+		history.lastLat = lat;
+		history.lastLon = lon;
+		history.lastAlt = alt;
+	}
+
+	private static int zigZag(int value) {
+		return value << 1 ^ value >> 31;
+	}
+
+	private static int unZigZag(int value) {
+		return value >>> 1 ^ -(value & 1);
+	}
+
+	private static int writeVarInt(byte[] data, int offset, int value) {
+		while ((value & ~0x7F) != 0) {
+			data[offset++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		data[offset++] = (byte) value;
+		return offset;
+	}
+
+	private static int writeVarLong(byte[] data, int offset, long value) {
+		while ((value & ~0x7FL) != 0) {
+			data[offset++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		data[offset++] = (byte) value;
+		return offset;
+	}
+
+	/**
+	 * @return the track of the aircraft (its fixes not older than the max. age), or null if there is none
+	 */
+	public Track get(int address) {
+		return get(address, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param from
+	 *            time (ms) of the first fix, inclusive
+	 * @param to
+	 *            time (ms) of the last fix, inclusive
+	 * @return the fixes of the aircraft within the time range (and not older than the max. age), or null if the
+	 *         aircraft has no track
+	 */
+	public Track get(int address, long from, long to) {
+		final History history = histories.get(address);
+		if (history == null)
+			return null;
+		final long start = Math.max(from, clock.millis() - maxAge);
+
+		synchronized (history) {
+			if (history.removed)
+				return null;
+			int capacity = 0;
+			for (final Chunk chunk : history.chunks) {
+				if (chunk.lastTimestamp >= start && chunk.baseTimestamp <= to)
+					capacity += chunk.count;
+			}
+			final Track track = new Track(address, capacity);
+			for (final Chunk chunk : history.chunks) {
+				if (chunk.lastTimestamp >= start && chunk.baseTimestamp <= to)
+					decode(chunk, start, to, track);
+			}
+			return track;
+		}
+	}
+
+	private static void decode(Chunk chunk, long from, long to, Track track) {
+		final byte[] data = chunk.data;
+		long timestamp = chunk.baseTimestamp;
+		int lat = chunk.baseLat;
+		int lon = chunk.baseLon;
+		int alt = chunk.baseAlt;
+		int offset = 0;
+		for (int i = 0;; i++) {
+			if (timestamp > to)
+				return;
+			if (timestamp >= from)
+				track.add(timestamp, lat, lon, alt);
+			if (i + 1 == chunk.count)
+				return;
+
+			// the time delta
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[offset++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			timestamp += (value & 1) == 0 ? (value >>> 1) * 1000 : value >>> 1;
+
+			// the coordinate and altitude deltas
+			for (int field = 0; field < 3; field++) {
+				int delta = 0;
+				shift = 0;
+				do {
+					b = data[offset++];
+					delta |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				delta = unZigZag(delta);
+				if (field == 0)
+					lat += delta;
+				else if (field == 1)
+					lon += delta;
+				else
+					alt += delta;
+			}
+		}
+	}
+
+	/**
+	 * drops the fixes older than the max. age (by whole chunks) and the aircraft left without any
+	 *
+	 * @return the number of fixes dropped
+	 */
+	public int expire() {
+		final long start = clock.millis() - maxAge;
+		final int[] dropped = new int[1];
+		for (final Integer address : histories.keySet()) {
+			histories.computeIfPresent(address, (a, history) -> {
+				synchronized (history) {
+					Chunk chunk;
+					while ((chunk = history.chunks.peekFirst()) != null && chunk.lastTimestamp < start) {
+						history.chunks.pollFirst();
+						dropped[0] += chunk.count;
+						bytes.addAndGet(-chunk.data.length);
+					}
+					if (!history.chunks.isEmpty())
+						return history;
+					history.removed = true;
+					return null;
+				}
+			});
+		}
+		fixes.addAndGet(-dropped[0]);
+		return dropped[0];
+	}
+
+	/**
+	 * removes the track of the aircraft
+	 *
+	 * @return true if it had one
+	 */
+	public boolean remove(int address) {
+		final History history = histories.remove(address);
+		if (history == null)
+			return false;
+		synchronized (history) {
+			history.removed = true;
+			int count = 0;
+			for (final Chunk chunk : history.chunks) {
+				count += chunk.count;
+				bytes.addAndGet(-chunk.data.length);
+			}
+			fixes.addAndGet(-count);
+			history.chunks.clear();
+		}
+		return true;
+	}
+
+	/**
+	 * removes all the tracks
+	 */
+	public void clear() {
+		for (final Integer address : histories.keySet())
+			remove(address);
+	}
+
+	/**
+	 * @return the number of aircraft with a track
+	 */
+	public int size() {
+		return histories.size();
+	}
+
+	/**
+	 * @return the number of fixes stored (including the expired ones not dropped yet)
+	 */
+	public long getFixes() {
+		return fixes.get();
+	}
+
+	/**
+	 * @return the size (bytes) of the chunks of all the tracks
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * @return the number of beacons ignored (not newer, or no hex address)
+	 */
+	public long getIgnored() {
+		return ignored.get();
+	}
+}
@@ -0,0 +1,482 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.ReceiverBeacon;
+import org.ogn.commons.beacon.ReceiverBeaconType;
+import org.ogn.commons.utils.AprsUtils;
+
+/**
+ * Coverage of the receivers, aggregated from the beacon stream (it is a <code>Consumer</code> of all the beacons): the
+ * position beacons of the receivers keep a cache of where they are, and every aircraft beacon adds its position to
+ * the coverage of the receiver which heard it. The globe is divided into a grid of cells (of the given size in
+ * degrees); the coverage of a receiver keeps, for every cell it heard an aircraft in, the max. range (the distance
+ * between the receiver and the aircraft), the best signal strength and the number of beacons.
+ * <p>
+ * The cells of a receiver are kept in a sparse grid (an open-addressing hash table of primitive columns, 32 - 64
+ * bytes per cell), and the number of cells of all the receivers together is bounded: once the budget is used up,
+ * the beacons in new cells are dropped (and counted), while the cells already there keep being updated. The aircraft
+ * beacons of receivers whose position is not known yet, and the relayed ones, are ignored.
+ * <p>
+ * The updates of one receiver are serialized, those of different receivers run in parallel; the snapshots can be
+ * taken at any time.
+ */
+public class ReceiverCoverageMap implements Consumer<OgnBeacon> {
+
+	public static final double DEFAULT_CELL_SIZE = 0.05;
+	public static final int DEFAULT_MAX_CELLS = 2_000_000;
+
+	// beyond the range of any receiver, the positions are bogus
+	public static final double MAX_RANGE = 1_000_000;
+
+	// up to this range the equirectangular distance is within 0.03% of the haversine one, beyond it the haversine
+	// distance is taken
+	private static final double FAST_DISTANCE_RANGE = 100_000;
+
+	private static final int MIN_GRID_CAPACITY = 64;
+
+	// marks the free slots (the cells are not negative)
+	private static final int FREE = -1;
+
+	/**
+	 * copy of the coverage of a receiver, the cells ordered from the south-west to the north-east; the cells are
+	 * accessed by index
+	 */
+	public static final class Coverage {
+		private final String receiverName;
+		private final double lat;
+		private final double lon;
+		private final int cellSize;
+		private final int columns;
+		private final int[] cells;
+		private final float[] ranges;
+		private final float[] signals;
+		private final int[] counts;
+
+		Coverage(String receiverName, double lat, double lon, int cellSize, int columns, int[] cells, float[] ranges,
+				float[] signals, int[] counts) {
+			this.receiverName = receiverName;
+			this.lat = lat;
+			this.lon = lon;
+			this.cellSize = cellSize;
+			this.columns = columns;
+			this.cells = cells;
+			this.ranges = ranges;
+			this.signals = signals;
+			this.counts = counts;
+		}
+
+		public String getReceiverName() {
+			return receiverName;
+		}
+
+		/**
+		 * @return the latitude of the receiver
+		 */
+		public double getLat() {
+			return lat;
+		}
+
+		/**
+		 * @return the longitude of the receiver
+		 */
+		public double getLon() {
+			return lon;
+		}
+
+		public int size() {
+			return cells.length;
+		}
+
+		/**
+		 * @return the latitude of the south edge of the cell
+		 */
+		public double getCellLat(int index) {
+			return (cells[index] / columns * (long) cellSize - 90_000_000) / 1e6;
+		}
+
+		/**
+		 * @return the longitude of the west edge of the cell
+		 */
+		public double getCellLon(int index) {
+			return (cells[index] % columns * (long) cellSize - 180_000_000) / 1e6;
+		}
+
+		/**
+		 * @return the distance (m) to the farthest aircraft heard in the cell
+		 */
+		public float getMaxRange(int index) {
+			return ranges[index];
+		}
+
+		/**
+		 * @return the strongest signal (dB) of the aircraft heard in the cell
+		 */
+		public float getBestSignal(int index) {
+			return signals[index];
+		}
+
+		/**
+		 * @return the number of beacons heard in the cell
+		 */
+		public int getCount(int index) {
+			return counts[index];
+		}
+
+		/**
+		 * @return the distance (m) to the farthest aircraft heard, 0 if none
+		 */
+		public float getMaxRange() {
+			float result = 0;
+			for (final float range : ranges)
+				result = Math.max(result, range);
+			return result;
+		}
+
+		/**
+		 * @return the number of beacons heard
+		 */
+		public long getCount() {
+			long result = 0;
+			for (final int count : counts)
+				result += count;
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return receiverName + " " + lat + " " + lon + ": " + size() + " cells, " + getCount() + " beacons, "
+					+ getMaxRange() + "m";
+		}
+	}
+
+	/**
+	 * the cells of a receiver, one array per field
+	 */
+	private static final class Grid {
+		int mask;
+		int[] cells;
+		float[] ranges;
+		float[] signals;
+		int[] counts;
+		int size;
+
+		Grid(int capacity) {
+			mask = capacity - 1;
+			cells = new int[capacity];
+			Arrays.fill(cells, FREE);
+			ranges = new float[capacity];
+			signals = new float[capacity];
+			counts = new int[capacity];
+		}
+
+		int slot(int cell) {
+			int i = hash(cell) & mask;
+			while (cells[i] != cell && cells[i] != FREE)
+				i = (i + 1) & mask;
+			return i;
+		}
+
+		void resize() {
+			final int[] oldCells = cells;
+			final float[] oldRanges = ranges;
+			final float[] oldSignals = signals;
+			final int[] oldCounts = counts;
+
+			final int capacity = oldCells.length * 2;
+			mask = capacity - 1;
+			cells = new int[capacity];
+			Arrays.fill(cells, FREE);
+			ranges = new float[capacity];
+			signals = new float[capacity];
+			counts = new int[capacity];
+			for (int i = 0; i < oldCells.length; i++) {
+				if (oldCells[i] != FREE) {
+					final int j = slot(oldCells[i]);
+					cells[j] = oldCells[i];
+					ranges[j] = oldRanges[i];
+					signals[j] = oldSignals[i];
+					counts[j] = oldCounts[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * a receiver, its position and coverage; the coverage is updated under the lock of the receiver
+	 */
+	private static final class Receiver {
+		final String name;
+		volatile AprsUtils.ReferencePoint position;
+		Grid grid = new Grid(MIN_GRID_CAPACITY);
+		// set when the receiver was removed, its late updates are not counted against the budget
+		boolean removed;
+
+		Receiver(String name) {
+			this.name = name;
+		}
+	}
+
+	private final int cellSize;
+	private final int rows;
+	private final int columns;
+	private final int maxCells;
+
+	private final ConcurrentHashMap<String, Receiver> receivers = new ConcurrentHashMap<>();
+	private final AtomicInteger cells = new AtomicInteger();
+
+	private final AtomicLong aircraftBeacons = new AtomicLong();
+	private final AtomicLong ignored = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	public ReceiverCoverageMap() {
+		this(DEFAULT_CELL_SIZE, DEFAULT_MAX_CELLS);
+	}
+
+	/**
+	 * @param cellSize
+	 *            size (deg) of the grid cells, 0.01 - 10 deg
+	 * @param maxCells
+	 *            max. number of cells of all the receivers together
+	 */
+	public ReceiverCoverageMap(double cellSize, int maxCells) {
+		if (cellSize < 0.01 || cellSize > 10)
+			throw new IllegalArgumentException("cell size must be within 0.01 - 10 deg");
+		if (maxCells <= 0)
+			throw new IllegalArgumentException("max. cells must be positive");
+		// the columns are made as equal as possible, the last one is narrower by less than 1e-6 deg per column
+		final int size = AprsUtils.degToMicroDegrees(cellSize);
+		this.columns = (360_000_000 + size - 1) / size;
+		this.cellSize = (360_000_000 + columns - 1) / columns;
+		this.rows = (180_000_000 + this.cellSize - 1) / this.cellSize;
+		this.maxCells = maxCells;
+	}
+
+	private static int hash(int cell) {
+		final int h = cell * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int cellOf(int lat, int lon) {
+		final int row = Math.max(0, Math.min(rows - 1, (lat + 90_000_000) / cellSize));
+		final int column = Math.floorMod(Math.floorDiv(lon + 180_000_000, cellSize), columns);
+		return row * columns + column;
+	}
+
+	/**
+	 * updates the position of a receiver or the coverage of the receiver of an aircraft beacon; the other beacons
+	 * are ignored
+	 */
+	@Override
+	public void accept(OgnBeacon beacon) {
+		if (beacon instanceof AircraftBeacon)
+			update((AircraftBeacon) beacon);
+		else if (beacon instanceof ReceiverBeacon
+				&& ((ReceiverBeacon) beacon).getReceiverBeaconType() == ReceiverBeaconType.RECEIVER_POSITION)
+			updateReceiver(beacon.getId(), beacon.getLat(), beacon.getLon());
+	}
+
+	/**
+	 * sets the position of the receiver, e.g. from its position beacon or from a database of the receivers; its
+	 * coverage is kept if it moves
+	 */
+	public void updateReceiver(String receiverName, double lat, double lon) {
+		final Receiver receiver = receivers.computeIfAbsent(receiverName, Receiver::new);
+		final AprsUtils.ReferencePoint position = receiver.position;
+		if (position == null || position.getLat() != lat || position.getLon() != lon)
+			receiver.position = new AprsUtils.ReferencePoint(lat, lon);
+	}
+
+	/**
+	 * adds the position of the aircraft to the coverage of the receiver which heard it
+	 *
+	 * @return true if the coverage was updated, false if the beacon was ignored (the position of its receiver is not
+	 *         known, it was relayed or its range is bogus) or dropped (no cells left)
+	 */
+	public boolean update(AircraftBeacon beacon) {
+		aircraftBeacons.incrementAndGet();
+		final String receiverName = beacon.getReceiverName();
+		final Receiver receiver = receiverName != null ? receivers.get(receiverName) : null;
+		final AprsUtils.ReferencePoint position = receiver != null ? receiver.position : null;
+		if (position == null || beacon.isRelayed()) {
+			ignored.incrementAndGet();
+			return false;
+		}
+		double range = position.fastDistance(beacon.getLat(), beacon.getLon());
+		if (range > FAST_DISTANCE_RANGE)
+			range = position.distance(beacon.getLat(), beacon.getLon());
+		if (!(range <= MAX_RANGE)) {
+			ignored.incrementAndGet();
+			return false;
+		}
+
+		final int cell = cellOf(beacon.getLatMicroDegrees(), beacon.getLonMicroDegrees());
+		final float signal = beacon.getSignalStrength();
+		synchronized (receiver) {
+			if (receiver.removed)
+				return false;
+			final Grid grid = receiver.grid;
+			int i = grid.slot(cell);
+			if (grid.cells[i] == FREE) {
+				if (cells.incrementAndGet() > maxCells) {
+					cells.decrementAndGet();
+					dropped.incrementAndGet();
+					return false;
+				}
+				if ((grid.size + 1) * 2 > grid.mask + 1) {
+					grid.resize();
+					i = grid.slot(cell);
+				}
+				grid.cells[i] = cell;
+				grid.ranges[i] = (float) range;
+				grid.signals[i] = signal;
+				grid.size++;
+			} else {
+				grid.ranges[i] = Math.max(grid.ranges[i], (float) range);
+				grid.signals[i] = Math.max(grid.signals[i], signal);
+			}
+			grid.counts[i]++;
+		}
+		return true;
+	}
+
+	/**
+	 * @return a copy of the coverage of the receiver, or null if its position is not known
+	 */
+	public Coverage snapshot(String receiverName) {
+		final Receiver receiver = receivers.get(receiverName);
+		return receiver != null ? snapshot(receiver) : null;
+	}
+
+	/**
+	 * @return a copy of the coverage of every receiver whose position is known, in no particular order
+	 */
+	public List<Coverage> snapshot() {
+		final List<Coverage> result = new ArrayList<>(receivers.size());
+		for (final Receiver receiver : receivers.values()) {
+			final Coverage coverage = snapshot(receiver);
+			if (coverage != null)
+				result.add(coverage);
+		}
+		return result;
+	}
+
+	private Coverage snapshot(Receiver receiver) {
+		final AprsUtils.ReferencePoint position = receiver.position;
+		if (position == null)
+			return null;
+
+		// the cells (high half) and their slots (low half) of the copy, sorted by the cell
+		final long[] order;
+		final int[] cellsCopy;
+		final float[] rangesCopy;
+		final float[] signalsCopy;
+		final int[] countsCopy;
+		synchronized (receiver) {
+			final Grid grid = receiver.grid;
+			order = new long[grid.size];
+			int n = 0;
+			for (int i = 0; i <= grid.mask; i++) {
+				if (grid.cells[i] != FREE)
+					order[n++] = (long) grid.cells[i] << 32 | i;
+			}
+			cellsCopy = grid.cells.clone();
+			rangesCopy = grid.ranges.clone();
+			signalsCopy = grid.signals.clone();
+			countsCopy = grid.counts.clone();
+		}
+		Arrays.sort(order);
+
+		final int size = order.length;
+		final int[] cellsSorted = new int[size];
+		final float[] ranges = new float[size];
+		final float[] signals = new float[size];
+		final int[] counts = new int[size];
+		for (int k = 0; k < size; k++) {
+			final int i = (int) order[k];
+			cellsSorted[k] = cellsCopy[i];
+			ranges[k] = rangesCopy[i];
+			signals[k] = signalsCopy[i];
+			counts[k] = countsCopy[i];
+		}
+		return new Coverage(receiver.name, position.getLat(), position.getLon(), cellSize, columns, cellsSorted,
+				ranges, signals, counts);
+	}
+
+	/**
+	 * removes the receiver and its coverage, which frees its cells
+	 *
+	 * @return true if the receiver was known
+	 */
+	public boolean remove(String receiverName) {
+		final Receiver receiver = receivers.remove(receiverName);
+		if (receiver == null)
+			return false;
+		synchronized (receiver) {
+			receiver.removed = true;
+			cells.addAndGet(-receiver.grid.size);
+			receiver.grid = new Grid(MIN_GRID_CAPACITY);
+		}
+		return true;
+	}
+
+	/**
+	 * removes all the receivers and their coverage
+	 */
+	public void clear() {
+		for (final String receiverName : receivers.keySet())
+			remove(receiverName);
+	}
+
+	/**
+	 * @return the number of receivers whose position is known
+	 */
+	public int getReceivers() {
+		int result = 0;
+		for (final Receiver receiver : receivers.values()) {
+			if (receiver.position != null)
+				result++;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of cells of all the receivers together
+	 */
+	public int getCells() {
+		return cells.get();
+	}
+
+	/**
+	 * @return the number of aircraft beacons seen
+	 */
+	public long getAircraftBeacons() {
+		return aircraftBeacons.get();
+	}
+
+	/**
+	 * @return the number of aircraft beacons ignored (unknown receiver position, relayed or bogus range)
+	 */
+	public long getIgnored() {
+		return ignored.get();
+	}
+
+	/**
+	 * @return the number of aircraft beacons dropped because the budget of cells was used up
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+}
@@ -15,6 +15,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.ogn.commons.beacon.AircraftDescriptor;
+import org.ogn.commons.utils.AprsUtils;
+import org.ogn.commons.utils.IntObjectHashMap;
 import org.ogn.commons.utils.Streams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +44,15 @@ public abstract class FileDb {
 		}
 	}
 
+	/**
+	 * descriptors of the ids which are (6 hex digit) aircraft addresses, for the lookups by the int address; replaced
+	 * as a whole when reloaded (copy-on-write), so the lookups need no locking
+	 */
+	private volatile IntObjectHashMap<AircraftDescriptor> addressCache = new IntObjectHashMap<>();
+
+	/**
+	 * descriptors of all the ids, as they are written in the db
+	 */
 	private final ConcurrentMap<String, AircraftDescriptor> cache = new ConcurrentHashMap<>();
 
 	private final String dbFileUri;
@@ -87,22 +98,28 @@ public abstract class FileDb {
 				return;
 			}
 
+			final IntObjectHashMap<AircraftDescriptor> addresses = new IntObjectHashMap<>(addressCache);
+
 			String line;
 			while ((line = br.readLine()) != null) {
 				try {
 					final AircraftDescriptorWithId record = processLine(line);
 
-					if (record != null && record.id != null)
-						if (cache.replace(record.id, record.desc) == null) {
-							LOG.trace("putting into the cache record with key: {}", record.id);
-							cache.put(record.id, record.desc);
-						}
+					if (record != null && record.id != null) {
+						LOG.trace("putting into the cache record with key: {}", record.id);
+						cache.put(record.id, record.desc);
+						final int address = AprsUtils.parseAddress(record.id);
+						if (address >= 0)
+							addresses.put(address, record.desc);
+					}
 				} catch (final Exception e) {
 					LOG.error("Exception caught", e);
 				}
 
 			} // while
 
+			addressCache = addresses;
+
 		} catch (final Exception e) {
 			LOG.error("Exception caught", e);
 		} finally {
@@ -117,8 +134,18 @@ public abstract class FileDb {
 	}
 
 	public Optional<AircraftDescriptor> getDescriptor(String id) {
-		if (null == id || null == cache.get(id))
+		if (null == id)
 			return Optional.empty();
-		return Optional.of(cache.get(id));
+
+		// the ids match exactly, as written in the db
+		return Optional.ofNullable(cache.get(id));
+	}
+
+	/**
+	 * @param address
+	 *            24-bit aircraft address
+	 */
+	public Optional<AircraftDescriptor> getDescriptor(int address) {
+		return Optional.ofNullable(addressCache.get(address));
 	}
 }
\ No newline at end of file
@@ -77,4 +77,10 @@ public class FileDbDescriptorProvider<T extends FileDb> implements AircraftDescr
 		return db.getDescriptor(address);
 	}
 
+	@Override
+	public Optional<AircraftDescriptor> findDescriptor(int address) {
+		LOG.trace("entering findDescriptor()..");
+		return db.getDescriptor(address);
+	}
+
 }
\ No newline at end of file
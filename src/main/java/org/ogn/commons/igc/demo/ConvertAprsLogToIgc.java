@@ -8,7 +8,6 @@ import java.util.Optional;
 import java.util.stream.Stream;
 
 import org.ogn.commons.beacon.AircraftBeacon;
-import org.ogn.commons.beacon.OgnBeacon;
 import org.ogn.commons.beacon.descriptor.AircraftDescriptorProvider;
 import org.ogn.commons.beacon.impl.aprs.AprsLineParser;
 import org.ogn.commons.igc.IgcLogger;
@@ -55,12 +54,11 @@ public class ConvertAprsLogToIgc {
 			AircraftDescriptorProvider provider) {
 		try (Stream<String> stream = Files.lines(Paths.get(aprsLogFileName))) {
 
-			stream.forEach(
+			// the lines are parsed in parallel, the beacons still come in the order of the log
+			AprsLineParser.get().parseAll(stream, Runtime.getRuntime().availableProcessors(),
 
-					l -> {
+					ognBeacon -> {
 						try {
-							OgnBeacon ognBeacon = AprsLineParser.get().parse(l);
-
 							// just take aircraft beacons (a must, if the log file contains mix)
 							if (ognBeacon instanceof AircraftBeacon) {
 								AircraftBeacon aircraftBeacon = (AircraftBeacon) ognBeacon;
@@ -68,12 +66,16 @@ public class ConvertAprsLogToIgc {
 								igcLogger.log(aircraftBeacon,
 										flightDate == null ? Optional.empty() : Optional.of(flightDate),
 										provider == null ? Optional.empty()
-												: provider.findDescriptor(aircraftBeacon.getAddress()));
+												: provider.findDescriptor(aircraftBeacon.getAddressInt()));
 							}
 
 						} catch (Exception ex) {
 							ex.printStackTrace();
 						}
+					},
+
+					rejected -> {
+						// not a beacon
 					}
 
 			);
@@ -4,10 +4,7 @@
 
 package org.ogn.commons.utils;
 
-import static java.lang.Math.acos;
-import static java.lang.Math.cos;
 import static java.lang.Math.round;
-import static java.lang.Math.sin;
 import static java.lang.String.format;
 
 import java.net.InetAddress;
@@ -23,7 +20,13 @@ import org.ogn.commons.beacon.OgnBeacon;
 
 public class AprsUtils {
 
-	private static final int RADIUS = 6371000;
+	/**
+	 * mean radius of the Earth (m), of the sphere on which the distances are computed
+	 */
+	public static final double EARTH_RADIUS = 6371000;
+
+	private static final double DEG_TO_RAD = Math.PI / 180;
+	private static final double TWO_PI = 2 * Math.PI;
 
 	private AprsUtils() {
 
@@ -70,6 +73,51 @@ public class AprsUtils {
 		}
 	}
 
+	/**
+	 * @return the 24-bit value of a 6 hex digit aircraft address (FLARM, ICAO, OGN) or -1 if the given string is not
+	 *         an address
+	 */
+	public static int parseAddress(CharSequence address) {
+		return address == null ? -1 : parseAddress(address, 0, address.length());
+	}
+
+	/**
+	 * @return the 24-bit value of the 6 hex digit aircraft address in the given range of chars or -1 if the range
+	 *         does not hold an address
+	 */
+	public static int parseAddress(CharSequence s, int start, int end) {
+		if (end - start != 6)
+			return -1;
+
+		int result = 0;
+		for (int i = start; i < end; i++) {
+			final char c = s.charAt(i);
+			final int digit;
+			if (c >= '0' && c <= '9')
+				digit = c - '0';
+			else if (c >= 'A' && c <= 'F')
+				digit = c - 'A' + 10;
+			else if (c >= 'a' && c <= 'f')
+				digit = c - 'a' + 10;
+			else
+				return -1;
+			result = result << 4 | digit;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the aircraft address as 6 (upper-case) hex digits
+	 */
+	public static String formatAddress(int address) {
+		final char[] chars = new char[6];
+		for (int i = 5; i >= 0; i--) {
+			chars[i] = Character.toUpperCase(Character.forDigit(address & 0xF, 16));
+			address >>>= 4;
+		}
+		return new String(chars);
+	}
+
 	public static double dmsToDeg(double dms) {
 		final double absDms = Math.abs(dms);
 		final double d = Math.floor(absDms);
@@ -77,6 +125,40 @@ public class AprsUtils {
 		return (d + m);
 	}
 
+	/**
+	 * decodes a fixed-width APRS coordinate (DDMM.mm latitude or DDDMM.mm longitude) with integer arithmetic
+	 * 
+	 * @param s
+	 *            chars holding the coordinate
+	 * @param start
+	 *            index of the first digit
+	 * @param degreeDigits
+	 *            2 for a latitude, 3 for a longitude
+	 * @param enhancement
+	 *            third decimal digit of the minutes (from the !Wab! extension), 0 if not present
+	 * @return the absolute value of the coordinate in micro-degrees (rounded half up)
+	 */
+	public static int aprsToMicroDegrees(CharSequence s, int start, int degreeDigits, int enhancement) {
+		int degrees = 0;
+		for (int i = start; i < start + degreeDigits; i++)
+			degrees = degrees * 10 + (s.charAt(i) - '0');
+
+		final int m = start + degreeDigits;
+		final int milliMinutes = (s.charAt(m) - '0') * 10000 + (s.charAt(m + 1) - '0') * 1000
+				+ (s.charAt(m + 3) - '0') * 100 + (s.charAt(m + 4) - '0') * 10 + enhancement;
+
+		// 1 milli-minute = 1000/60 micro-degrees
+		return degrees * 1_000_000 + (milliMinutes * 1000 + 30) / 60;
+	}
+
+	public static double microDegreesToDeg(int microDegrees) {
+		return microDegrees / 1e6;
+	}
+
+	public static int degToMicroDegrees(double deg) {
+		return (int) Math.round(deg * 1e6);
+	}
+
 	public static double degToDms(double deg) {
 		final double absDeg = Math.abs(deg);
 		final double d = Math.floor(absDeg);
@@ -123,7 +205,8 @@ public class AprsUtils {
 	}
 
 	/**
-	 * Creates a unix timestamp, based on given h:m:s. Local system's date is taken as a reference
+	 * Creates a unix timestamp, based on given h:m:s. The current UTC date is taken as a reference (see
+	 * <code>UtcTimestampResolver</code>)
 	 * 
 	 * @param h
 	 *            hour
@@ -134,8 +217,7 @@ public class AprsUtils {
 	 * @return
 	 */
 	public static long toUtcTimestamp(int h, int m, int s) {
-		return ZonedDateTime.of(LocalDateTime.of(LocalDate.now(), LocalTime.of(h, m, s)), ZoneOffset.UTC)
-				.toEpochSecond() * 1000;
+		return UtcTimestampResolver.getDefault().resolve(h, m, s);
 	}
 
 	public static long toUtcTimestamp(LocalDate date, int h, int m, int s) {
@@ -155,6 +237,19 @@ public class AprsUtils {
 		return toUtcTimestamp(h, m, s);
 	}
 
+	/**
+	 * @param time
+	 *            time in 6 digit format provided in a APRS packet (e.g. 162334, 051202)
+	 * @return the timestamp, dated by the given resolver
+	 */
+	public static long toUtcTimestamp(UtcTimestampResolver resolver, String time) {
+		final int h = Integer.parseInt(time.substring(0, 2));
+		final int m = Integer.parseInt(time.substring(2, 4));
+		final int s = Integer.parseInt(time.substring(4, 6));
+
+		return resolver.resolve(h, m, s);
+	}
+
 	public static long toUtcTimestamp(LocalDate date, String time) {
 		final int h = Integer.parseInt(time.substring(0, 2));
 		final int m = Integer.parseInt(time.substring(2, 4));
@@ -172,7 +267,7 @@ public class AprsUtils {
 	}
 
 	/**
-	 * computes distance(in m) between two coordinates (in deg. format)
+	 * computes distance(in m) between two coordinates (in deg. format), see <code>haversineDistance</code>
 	 * 
 	 * @param degLat1
 	 * @param degLon1
@@ -181,14 +276,7 @@ public class AprsUtils {
 	 * @return a distance in m
 	 */
 	public static double calcDistance(double degLat1, double degLon1, double degLat2, double degLon2) {
-
-		final double radLat1 = degLat1 * Math.PI / 180;
-		final double radLon1 = degLon1 * Math.PI / 180;
-
-		final double radLat2 = degLat2 * Math.PI / 180;
-		final double radLon2 = degLon2 * Math.PI / 180;
-
-		return acos(sin(radLat1) * sin(radLat2) + cos(radLat1) * cos(radLat2) * cos(radLon2 - radLon1)) * RADIUS;
+		return haversineDistance(degLat1, degLon1, degLat2, degLon2);
 	}
 
 	public static double calcDistance(OgnBeacon beacon1, OgnBeacon beacon2) {
@@ -203,4 +291,211 @@ public class AprsUtils {
 		return calcDistanceInKm(beacon1.getLat(), beacon1.getLon(), beacon2.getLat(), beacon2.getLon());
 	}
 
+	/**
+	 * computes the great-circle distance (in m) between two coordinates (in deg. format) with the haversine formula.
+	 * Unlike the spherical law of cosines it stays accurate (to a mm) at short range; only near the antipodes the
+	 * error grows, to about a metre. Being a sphere, the Earth model itself is off by up to 0.5% (compared to the
+	 * WGS84 ellipsoid).
+	 */
+	public static double haversineDistance(double degLat1, double degLon1, double degLat2, double degLon2) {
+		final double lat1 = degLat1 * DEG_TO_RAD;
+		final double lat2 = degLat2 * DEG_TO_RAD;
+		final double sinDLat = Math.sin((lat2 - lat1) * 0.5);
+		final double sinDLon = Math.sin((degLon2 - degLon1) * DEG_TO_RAD * 0.5);
+		final double a = sinDLat * sinDLat + Math.cos(lat1) * Math.cos(lat2) * sinDLon * sinDLon;
+		return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	/**
+	 * computes the distance (in m) between two coordinates (in deg. format) on the equirectangular projection around
+	 * their mean latitude: a single cos and a square root. Compared to the haversine distance, the relative error is
+	 * below 0.001% up to 10 km, 0.01% up to 100 km and 0.2% up to 500 km (at latitudes up to 70 deg); it grows with
+	 * the square of the distance and towards the poles (0.03% at 100 km, 80 deg). Good for the receiver ranges, not
+	 * for long distances.
+	 */
+	public static double equirectangularDistance(double degLat1, double degLon1, double degLat2, double degLon2) {
+		final double lat1 = degLat1 * DEG_TO_RAD;
+		final double lat2 = degLat2 * DEG_TO_RAD;
+		final double dLon = wrapRadians((degLon2 - degLon1) * DEG_TO_RAD);
+		final double x = dLon * Math.cos((lat1 + lat2) * 0.5);
+		final double y = lat2 - lat1;
+		return EARTH_RADIUS * Math.sqrt(x * x + y * y);
+	}
+
+	/**
+	 * @return the initial bearing (deg, 0 - 360, clockwise from the north) of the great circle from the first to the
+	 *         second coordinate (in deg. format); 0 if they are the same
+	 */
+	public static double bearing(double degLat1, double degLon1, double degLat2, double degLon2) {
+		final double lat1 = degLat1 * DEG_TO_RAD;
+		final double lat2 = degLat2 * DEG_TO_RAD;
+		return initialBearing(Math.sin(lat1), Math.cos(lat1), lat2, (degLon2 - degLon1) * DEG_TO_RAD);
+	}
+
+	private static double initialBearing(double sinLat1, double cosLat1, double lat2, double dLon) {
+		final double cosLat2 = Math.cos(lat2);
+		final double y = Math.sin(dLon) * cosLat2;
+		final double x = cosLat1 * Math.sin(lat2) - sinLat1 * cosLat2 * Math.cos(dLon);
+		final double deg = Math.toDegrees(Math.atan2(y, x));
+		return deg < 0 ? deg + 360 : deg;
+	}
+
+	/**
+	 * @return the angle moved into -pi - pi
+	 */
+	private static double wrapRadians(double rad) {
+		// no branch, so that the batch loops stay vectorizable
+		return rad - TWO_PI * Math.rint(rad / TWO_PI);
+	}
+
+	/**
+	 * computes the haversine distances (in m) from a point to many others, see <code>ReferencePoint.distances</code>
+	 */
+	public static void haversineDistances(double degLat, double degLon, double[] degLats, double[] degLons,
+			double[] distances, int count) {
+		new ReferencePoint(degLat, degLon).distances(degLats, degLons, distances, count);
+	}
+
+	/**
+	 * computes the equirectangular distances (in m) from a point to many others, see
+	 * <code>ReferencePoint.fastDistances</code>
+	 */
+	public static void equirectangularDistances(double degLat, double degLon, double[] degLats, double[] degLons,
+			double[] distances, int count) {
+		new ReferencePoint(degLat, degLon).fastDistances(degLats, degLons, distances, count);
+	}
+
+	/**
+	 * A fixed point (e.g. a receiver) from which many distances and bearings are computed: its radians and the sine
+	 * and cosine of its latitude are computed once. Instances are immutable and may be cached and shared, e.g. one per
+	 * receiver.
+	 */
+	public static final class ReferencePoint {
+
+		private final double degLat;
+		private final double degLon;
+		private final double lat;
+		private final double lon;
+		private final double sinLat;
+		private final double cosLat;
+
+		public ReferencePoint(double degLat, double degLon) {
+			this.degLat = degLat;
+			this.degLon = degLon;
+			this.lat = degLat * DEG_TO_RAD;
+			this.lon = degLon * DEG_TO_RAD;
+			this.sinLat = Math.sin(lat);
+			this.cosLat = Math.cos(lat);
+		}
+
+		public ReferencePoint(OgnBeacon beacon) {
+			this(beacon.getLat(), beacon.getLon());
+		}
+
+		public double getLat() {
+			return degLat;
+		}
+
+		public double getLon() {
+			return degLon;
+		}
+
+		/**
+		 * @return the haversine distance (m) to the coordinate (in deg. format)
+		 */
+		public double distance(double degLat, double degLon) {
+			final double lat2 = degLat * DEG_TO_RAD;
+			final double sinDLat = Math.sin((lat2 - lat) * 0.5);
+			final double sinDLon = Math.sin((degLon * DEG_TO_RAD - lon) * 0.5);
+			final double a = sinDLat * sinDLat + cosLat * Math.cos(lat2) * sinDLon * sinDLon;
+			return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+		}
+
+		/**
+		 * @return the equirectangular distance (m) to the coordinate (in deg. format), with the error bounds of
+		 *         <code>AprsUtils.equirectangularDistance</code>; no trigonometric function is called
+		 */
+		public double fastDistance(double degLat, double degLon) {
+			final double dLat = degLat * DEG_TO_RAD - lat;
+			final double dLon = wrapRadians(degLon * DEG_TO_RAD - lon);
+			final double x = dLon * cosMean(dLat * 0.5);
+			return EARTH_RADIUS * Math.sqrt(x * x + dLat * dLat);
+		}
+
+		/**
+		 * @return cos of the latitude half-way to another point (half the difference of latitudes away), from the
+		 *         cached sine and cosine; the error is of the third order in the difference
+		 */
+		private double cosMean(double halfDLat) {
+			return cosLat * (1 - halfDLat * halfDLat * 0.5) - sinLat * halfDLat;
+		}
+
+		/**
+		 * @return the initial bearing (deg, 0 - 360) to the coordinate (in deg. format)
+		 */
+		public double bearing(double degLat, double degLon) {
+			return initialBearing(sinLat, cosLat, degLat * DEG_TO_RAD, degLon * DEG_TO_RAD - lon);
+		}
+
+		/**
+		 * computes the haversine distances to many coordinates. The loop is branch-free over plain arrays; the JIT
+		 * keeps the trigonometric calls scalar, so the gain over single calls comes mostly from the cached values of
+		 * the reference point.
+		 *
+		 * @param degLats
+		 *            latitudes (deg)
+		 * @param degLons
+		 *            longitudes (deg)
+		 * @param distances
+		 *            receives the distances (m)
+		 * @param count
+		 *            number of coordinates
+		 */
+		public void distances(double[] degLats, double[] degLons, double[] distances, int count) {
+			final double lat1 = lat;
+			final double lon1 = lon;
+			final double cosLat1 = cosLat;
+			for (int i = 0; i < count; i++) {
+				final double lat2 = degLats[i] * DEG_TO_RAD;
+				final double sinDLat = Math.sin((lat2 - lat1) * 0.5);
+				final double sinDLon = Math.sin((degLons[i] * DEG_TO_RAD - lon1) * 0.5);
+				final double a = sinDLat * sinDLat + cosLat1 * Math.cos(lat2) * sinDLon * sinDLon;
+				distances[i] = 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+			}
+		}
+
+		/**
+		 * computes the equirectangular distances to many coordinates (for the error bounds see
+		 * <code>AprsUtils.equirectangularDistance</code>). The loop has only multiplications, additions, rounding
+		 * and square roots over plain arrays, which the JIT can vectorize.
+		 *
+		 * @param degLats
+		 *            latitudes (deg)
+		 * @param degLons
+		 *            longitudes (deg)
+		 * @param distances
+		 *            receives the distances (m)
+		 * @param count
+		 *            number of coordinates
+		 */
+		public void fastDistances(double[] degLats, double[] degLons, double[] distances, int count) {
+			final double lat1 = lat;
+			final double lon1 = lon;
+			final double sinLat1 = sinLat;
+			final double cosLat1 = cosLat;
+			for (int i = 0; i < count; i++) {
+				final double dLat = degLats[i] * DEG_TO_RAD - lat1;
+				final double rawDLon = degLons[i] * DEG_TO_RAD - lon1;
+				final double dLon = rawDLon - TWO_PI * Math.rint(rawDLon / TWO_PI);
+				final double half = dLat * 0.5;
+				final double x = dLon * (cosLat1 * (1 - half * half * 0.5) - sinLat1 * half);
+				distances[i] = EARTH_RADIUS * Math.sqrt(x * x + dLat * dLat);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return degLat + " " + degLon;
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.utils;
+
+import java.util.Arrays;
+
+/**
+ * Map with primitive int keys (e.g. 24-bit aircraft addresses) and open addressing (linear probing): no boxing of the
+ * keys, no entry objects and no string hashing on lookup. Null values are not supported. This class is not
+ * thread-safe; it is meant to be filled by one thread and then published (copy-on-write), after which any number of
+ * threads may read it.
+ */
+public class IntObjectHashMap<V> {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] keys;
+	private Object[] values;
+	private int size;
+
+	public IntObjectHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize
+	 *            number of entries the map should hold without resizing
+	 */
+	public IntObjectHashMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2)
+			capacity <<= 1;
+		keys = new int[capacity];
+		values = new Object[capacity];
+	}
+
+	/**
+	 * creates a copy of the given map
+	 */
+	public IntObjectHashMap(IntObjectHashMap<V> other) {
+		keys = Arrays.copyOf(other.keys, other.keys.length);
+		values = Arrays.copyOf(other.values, other.values.length);
+		size = other.size;
+	}
+
+	private static int hash(int key) {
+		// the low bits of addresses are not random enough for a power-of-two table
+		final int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int index(int key) {
+		final int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (values[i] != null && keys[i] != key)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	/**
+	 * @return the value of the key or null if not present
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		return (V) values[index(key)];
+	}
+
+	public boolean containsKey(int key) {
+		return values[index(key)] != null;
+	}
+
+	/**
+	 * @return the previous value of the key or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if (value == null)
+			throw new IllegalArgumentException("null values are not supported");
+
+		final int i = index(key);
+		final V previous = (V) values[i];
+		keys[i] = key;
+		values[i] = value;
+		if (previous == null && ++size * 2 > keys.length)
+			resize();
+		return previous;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	private void resize() {
+		final int[] oldKeys = keys;
+		final Object[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new Object[oldValues.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				final int j = index(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.utils;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of latencies (or any other non-negative long values, e.g. nanoseconds) with a bounded relative
+ * error, in the manner of the HdrHistogram: the values below 64 are counted exactly, above that every power of two is
+ * split into 32 linear buckets, so a value is known within ~3%. Recording is an index computation and an atomic
+ * increment, without locks or allocation; the whole long range is covered by ~1900 buckets.
+ * <p>
+ * The statistics are read while the values keep being recorded, so they are not an atomic snapshot: a value recorded
+ * at the same time may be counted by some of them only.
+ */
+public class LatencyHistogram {
+
+	// 2^SUB_BUCKET_BITS linear buckets per power of two
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * summary of a histogram, e.g. for JMX (as a composite)
+	 */
+	public static final class Summary {
+		private final long count;
+		private final double mean;
+		private final long p50;
+		private final long p90;
+		private final long p99;
+		private final long p999;
+		private final long max;
+
+		@ConstructorProperties({ "count", "mean", "p50", "p90", "p99", "p999", "max" })
+		public Summary(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+			this.count = count;
+			this.mean = mean;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.p999 = p999;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public long getP50() {
+			return p50;
+		}
+
+		public long getP90() {
+			return p90;
+		}
+
+		public long getP99() {
+			return p99;
+		}
+
+		public long getP999() {
+			return p999;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d p99.9=%d max=%d", count, mean, p50, p90,
+					p99, p999, max);
+		}
+	}
+
+	/**
+	 * @return the bucket of the value
+	 */
+	static int index(long value) {
+		final int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+		return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+	}
+
+	/**
+	 * @return the highest value counted by the bucket
+	 */
+	static long highestValue(int index) {
+		if (index < 2 * SUB_BUCKETS)
+			return index;
+		final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		final long sub = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	/**
+	 * counts the value; negative values are counted as 0
+	 */
+	public void record(long value) {
+		final long v = Math.max(0, value);
+		counts.incrementAndGet(index(v));
+		count.increment();
+		total.add(v);
+		max.accumulate(v);
+	}
+
+	/**
+	 * @return the number of values recorded
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the greatest value recorded, 0 if none
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return the (exact) mean of the values recorded, 0 if none
+	 */
+	public double getMean() {
+		final long n = count.sum();
+		return n == 0 ? 0 : (double) total.sum() / n;
+	}
+
+	/**
+	 * @param percentile
+	 *            0 - 100
+	 * @return the value below or at which the given percentage of the values lie (within the precision of the
+	 *         buckets, never more than the max), 0 if no values were recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("percentile must be within 0 - 100");
+
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			n += counts.get(i);
+		if (n == 0)
+			return 0;
+
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank)
+				return Math.min(highestValue(i), getMax());
+		}
+		return getMax();
+	}
+
+	public Summary getSummary() {
+		return new Summary(getCount(), getMean(), getValueAtPercentile(50), getValueAtPercentile(90),
+				getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+	}
+
+	/**
+	 * forgets all the values recorded (values recorded at the same time may be partially kept)
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+		count.reset();
+		total.reset();
+		max.reset();
+	}
+
+	@Override
+	public String toString() {
+		return getSummary().toString();
+	}
+}
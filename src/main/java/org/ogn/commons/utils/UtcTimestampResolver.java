@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.utils;
+
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns the hhmmss time of an APRS packet into a unix timestamp. The date is taken from a reference clock (the
+ * system UTC clock by default, a clock following the replayed log when converting old data), and the conversion is
+ * plain arithmetic on the epoch-millis of the reference day's UTC midnight, which is cached and refreshed only when
+ * the reference clock passes midnight - no date/time objects are created per packet.
+ * <p>
+ * Around midnight the date is corrected: a packet stamped shortly before midnight but seen shortly after it belongs
+ * to the previous day, one stamped shortly after midnight but seen shortly before it (receiver clock running ahead)
+ * to the next day. "Shortly" is given by the rollover window, 1 hour by default.
+ */
+public class UtcTimestampResolver {
+
+	public static final long DEFAULT_ROLLOVER_WINDOW = TimeUnit.HOURS.toMillis(1);
+
+	private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+	private static final UtcTimestampResolver DEFAULT = new UtcTimestampResolver();
+
+	private final Clock clock;
+	private final long rolloverWindow;
+
+	/**
+	 * UTC midnight of the last reference time and the midnight after it, published together
+	 */
+	private static class Day {
+		final long start;
+		final long end;
+
+		Day(long start) {
+			this.start = start;
+			this.end = start + DAY;
+		}
+	}
+
+	private volatile Day day = new Day(0);
+
+	public UtcTimestampResolver() {
+		this(Clock.systemUTC());
+	}
+
+	public UtcTimestampResolver(Clock clock) {
+		this(clock, DEFAULT_ROLLOVER_WINDOW);
+	}
+
+	/**
+	 * @param clock
+	 *            reference clock
+	 * @param rolloverWindow
+	 *            time (ms) around midnight in which the date of the packets may differ from the reference date
+	 */
+	public UtcTimestampResolver(Clock clock, long rolloverWindow) {
+		if (rolloverWindow < 0 || rolloverWindow > DAY / 2)
+			throw new IllegalArgumentException("rollover window must be between 0 and 12 hours");
+		this.clock = clock;
+		this.rolloverWindow = rolloverWindow;
+	}
+
+	/**
+	 * @return the resolver (system UTC clock) of the APRS parsers created without one and of
+	 *         <code>AprsUtils.toUtcTimestamp</code>; a parser with another clock (e.g. one following a replayed log) is
+	 *         created with <code>AprsLineParser.create(..., resolver)</code>
+	 */
+	public static UtcTimestampResolver getDefault() {
+		return DEFAULT;
+	}
+
+	public Clock getClock() {
+		return clock;
+	}
+
+	/**
+	 * @return the timestamp (ms) of the given UTC time, dated relative to the current time of the reference clock
+	 * @throws DateTimeException
+	 *             if the time is not valid
+	 */
+	public long resolve(int h, int m, int s) {
+		return resolve(h, m, s, clock.millis());
+	}
+
+	/**
+	 * @return the timestamp (ms) of the given UTC time, dated relative to the given reference time (ms)
+	 * @throws DateTimeException
+	 *             if the time is not valid
+	 */
+	public long resolve(int h, int m, int s, long reference) {
+		if (h < 0 || h > 23 || m < 0 || m > 59 || s < 0 || s > 59)
+			throw new DateTimeException(String.format("Invalid time: %02d:%02d:%02d", h, m, s));
+
+		final long midnight = midnight(reference);
+		final long timeOfDay = ((h * 60L + m) * 60L + s) * 1000L;
+		final long referenceTimeOfDay = reference - midnight;
+
+		if (referenceTimeOfDay < rolloverWindow && timeOfDay >= DAY - rolloverWindow)
+			return midnight - DAY + timeOfDay;
+		if (referenceTimeOfDay >= DAY - rolloverWindow && timeOfDay < rolloverWindow)
+			return midnight + DAY + timeOfDay;
+		return midnight + timeOfDay;
+	}
+
+	/**
+	 * @return the timestamp (ms) of the UTC midnight starting the day of the given time
+	 */
+	private long midnight(long time) {
+		final Day current = day;
+		if (time >= current.start && time < current.end)
+			return current.start;
+
+		final Day next = new Day(Math.floorDiv(time, DAY) * DAY);
+		day = next;
+		return next.start;
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser;
+import org.ogn.commons.utils.UtcTimestampResolver;
+
+/**
+ * Helpers of the tests which feed aircraft beacons to the collections and the filters: a clock the test moves by hand
+ * and a builder of the aircraft beacon lines.
+ */
+public final class TestBeacons {
+
+	// the built beacons are dated at noon of a fixed day, the result does not depend on the time the test runs at
+	private static final AprsLineParser PARSER = AprsLineParser.create(AprsLineParser.Mode.SCANNER, null, null, null,
+			new UtcTimestampResolver(Clock.fixed(Instant.parse("2018-06-15T12:00:00Z"), ZoneOffset.UTC)));
+
+	/**
+	 * clock showing the given time (ms), UTC
+	 */
+	public static class TestClock extends Clock {
+		public volatile long millis;
+
+		@Override
+		public long millis() {
+			return millis;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Builder of the aircraft position lines, by default:
+	 * <code>FLRxxxxxx&gt;OGFLR,qAS,EGHL:/074548h5111.32N/00102.04W'086/007/A=000607 id06xxxxxx</code>
+	 */
+	public static class Builder {
+		private final int address;
+		private String callsign;
+		private String dstcall = "OGFLR";
+		private String relay;
+		private String receiver = "EGHL";
+		private int second = 7 * 3600 + 45 * 60 + 48;
+		private double lat = 51 + 11.32 / 60;
+		private double lon = -(1 + 2.04 / 60);
+		private boolean precise;
+		private int feet = 607;
+		private String comment;
+
+		Builder(int address) {
+			this.address = address;
+			this.callsign = String.format("FLR%06X", address);
+		}
+
+		public Builder callsign(String callsign) {
+			this.callsign = callsign;
+			return this;
+		}
+
+		public Builder dstcall(String dstcall) {
+			this.dstcall = dstcall;
+			return this;
+		}
+
+		/**
+		 * @param relay
+		 *            callsign of the aircraft which relayed the beacon
+		 */
+		public Builder relayedBy(String relay) {
+			this.relay = relay;
+			return this;
+		}
+
+		public Builder receiver(String receiver) {
+			this.receiver = receiver;
+			return this;
+		}
+
+		/**
+		 * @param second
+		 *            time of the beacon, as the second of the day
+		 */
+		public Builder at(int second) {
+			this.second = second;
+			return this;
+		}
+
+		/**
+		 * the position in deg, rounded to 1/100 min (to 1/1000 min with the !W! extension if <code>precise</code>)
+		 */
+		public Builder position(double lat, double lon) {
+			this.lat = lat;
+			this.lon = lon;
+			return this;
+		}
+
+		public Builder precise() {
+			this.precise = true;
+			return this;
+		}
+
+		public Builder feet(int feet) {
+			this.feet = feet;
+			return this;
+		}
+
+		/**
+		 * @param comment
+		 *            the tokens following the id token, e.g. <code>-019fpm +0.0rot 5.5dB</code>
+		 */
+		public Builder comment(String comment) {
+			this.comment = comment;
+			return this;
+		}
+
+		public String line() {
+			// in 1/100 or 1/1000 min, the last digit in the !W! extension
+			final int scale = precise ? 60000 : 6000;
+			final long latMinutes = Math.round(Math.abs(lat) * scale);
+			final long lonMinutes = Math.round(Math.abs(lon) * scale);
+			final long latHundredths = precise ? latMinutes / 10 : latMinutes;
+			final long lonHundredths = precise ? lonMinutes / 10 : lonMinutes;
+			return String.format(
+					"%s>%s,%sqAS,%s:/%02d%02d%02dh%02d%02d.%02d%s/%03d%02d.%02d%s'086/007/A=%06d%s id06%06X%s",
+					callsign, dstcall, relay == null ? "" : relay + "*,", receiver, second / 3600, second / 60 % 60,
+					second % 60, latHundredths / 6000, latHundredths % 6000 / 100, latHundredths % 100,
+					lat < 0 ? "S" : "N", lonHundredths / 6000, lonHundredths % 6000 / 100, lonHundredths % 100,
+					lon < 0 ? "W" : "E", feet, precise ? " !W" + latMinutes % 10 + lonMinutes % 10 + "!" : "",
+					address, comment == null ? "" : " " + comment);
+		}
+
+		public AircraftBeacon build() {
+			return (AircraftBeacon) PARSER.parse(line());
+		}
+	}
+
+	private TestBeacons() {
+
+	}
+
+	/**
+	 * @return a builder of the beacons of the aircraft with the given (FLARM) address
+	 */
+	public static Builder aircraft(int address) {
+		return new Builder(address);
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.ogn.commons.TestBeacons;
+import org.ogn.commons.TestBeacons.TestClock;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.filter.AircraftBeaconDeduplicator.Receptions;
+
+public class AircraftBeaconDeduplicatorTest {
+
+	/**
+	 * @return a reception of the transmission of DDE626 at 07:45:48 by the given receiver
+	 */
+	private static AircraftBeacon reception(String receiver, float signal) {
+		return TestBeacons.aircraft(0xDDE626).receiver(receiver).position(51 + 11.328 / 60, -(1 + 2.04 / 60))
+				.precise().comment(String.format(Locale.ROOT, "-019fpm +0.0rot %.1fdB 3e -4.3kHz gps2x3", signal))
+				.build();
+	}
+
+	@Test
+	public void testFirstCopyOnly() {
+		final List<AircraftBeacon> passed = new ArrayList<>();
+		final AircraftBeaconDeduplicator dedup = new AircraftBeaconDeduplicator(passed::add);
+
+		final AircraftBeacon first = reception("EGHL", 5.5f);
+		dedup.accept(first);
+		dedup.accept(reception("EGBJ", 12.0f));
+		dedup.accept(reception("LFQB", 3.1f));
+		assertEquals(1, passed.size());
+		assertSame(first, passed.get(0));
+
+		// another transmission of the same aircraft, and another aircraft
+		dedup.accept(TestBeacons.aircraft(0xDDE626).at(27949).position(51 + 11.33 / 60, -(1 + 2.03 / 60)).build());
+		dedup.accept(TestBeacons.aircraft(0xDDE627).build());
+		assertEquals(3, passed.size());
+
+		assertEquals(3, dedup.getPassed());
+		assertEquals(2, dedup.getDuplicates());
+		assertEquals(3, dedup.size());
+	}
+
+	@Test
+	public void testReceptions() {
+		final List<Receptions> passed = new ArrayList<>();
+		final AircraftBeaconDeduplicator dedup = AircraftBeaconDeduplicator.withReceptions((b, r) -> passed.add(r),
+				100, 1000);
+
+		dedup.accept(reception("EGHL", 5.5f));
+		assertEquals(1, passed.size());
+		final Receptions receptions = passed.get(0);
+		assertEquals(1, receptions.size());
+
+		dedup.accept(reception("EGBJ", 12.0f));
+		dedup.accept(reception("LFQB", 3.1f));
+		assertEquals(1, passed.size());
+		assertArrayEquals(new String[] { "EGHL", "EGBJ", "LFQB" }, receptions.getReceiverNames());
+		assertEquals(3, receptions.getSignalStrengths().length);
+		assertEquals(12.0f, receptions.getSignalStrength(1), 0);
+		assertEquals("EGBJ", receptions.getReceiverName(1));
+		assertEquals("DDE626", receptions.getBeacon().getAddress());
+	}
+
+	@Test
+	public void testExpiry() {
+		final TestClock clock = new TestClock();
+		final AtomicInteger passed = new AtomicInteger();
+		final AircraftBeaconDeduplicator dedup = new AircraftBeaconDeduplicator(b -> passed.incrementAndGet(), null,
+				100, 1000, clock);
+
+		dedup.accept(reception("EGHL", 5.5f));
+		clock.millis = 999;
+		dedup.accept(reception("EGBJ", 12.0f));
+		assertEquals(1, passed.get());
+
+		clock.millis = 1000;
+		dedup.accept(reception("LFQB", 3.1f));
+		assertEquals(2, passed.get());
+		assertEquals(1, dedup.size());
+	}
+
+	@Test
+	public void testCapacity() {
+		final AtomicInteger passed = new AtomicInteger();
+		final AircraftBeaconDeduplicator dedup = new AircraftBeaconDeduplicator(b -> passed.incrementAndGet(), 64,
+				TimeUnit.HOURS.toMillis(1));
+
+		for (int i = 0; i < 1000; i++)
+			dedup.accept(TestBeacons.aircraft(i).build());
+		assertEquals(1000, passed.get());
+		assertTrue(dedup.size() <= 64);
+
+		// the latest transmissions are still remembered
+		assertFalse(dedup.isFirst(TestBeacons.aircraft(999).receiver("EGBJ").build()));
+	}
+
+	@Test
+	public void testConcurrent() throws InterruptedException {
+		final AtomicInteger passed = new AtomicInteger();
+		final AircraftBeaconDeduplicator dedup = new AircraftBeaconDeduplicator(b -> passed.incrementAndGet());
+
+		final List<AircraftBeacon> beacons = new ArrayList<>();
+		for (int i = 0; i < 500; i++)
+			beacons.add(TestBeacons.aircraft(i).build());
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int t = 0; t < 8; t++)
+			executor.execute(() -> beacons.forEach(dedup));
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(500, passed.get());
+		assertEquals(500 * 7, dedup.getDuplicates());
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+import org.ogn.commons.TestBeacons;
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser;
+import org.ogn.commons.utils.AprsUtils;
+
+public class AprsFilterTest {
+
+	private final AprsLineParser parser = AprsLineParser.get();
+
+	// 51.1887N 1.034W
+	private final OgnBeacon aircraft = parser.parse(
+			"FLRDDE626>APRS,qAS,EGHL:/074548h5111.32N/00102.04W'086/007/A=000607 id0ADDE626 -019fpm +0.0rot 5.5dB 3e -4.3kHz");
+	// 45.6627N 6.3467E
+	private final OgnBeacon receiver = parser
+			.parse("Albertvil>APRS,TCPIP*,qAC,GLIDERN2:/153724h4539.76NI00620.80E&/A=001246");
+	private final OgnBeacon receiverStatus = parser.parse(
+			"Albertvil>APRS,TCPIP*,qAC,GLIDERN2:>153724h v0.2.6.ARM CPU:0.8 RAM:856.8/1017.6MB NTP:1.7ms/-70.8ppm +55.4C");
+
+	private static AprsFilter filter(String expression) {
+		return AprsFilter.compile(expression);
+	}
+
+	private static OgnBeacon at(String callsign, double lat, double lon) {
+		return TestBeacons.aircraft(0xDDE626).callsign(callsign).dstcall("APRS").position(lat, lon).build();
+	}
+
+	@Test
+	public void testRange() {
+		assertTrue(filter("r/51.2/-1.0/10").test(aircraft));
+		assertFalse(filter("r/51.2/-1.0/1").test(aircraft));
+		assertTrue(filter("r/45/6/100").test(receiver));
+		// no position
+		assertFalse(filter("r/45/6/100").test(receiverStatus));
+		// more than the half of the circumference
+		assertTrue(filter("r/-51/179/30000").test(aircraft));
+
+		final Random random = new Random(3);
+		for (int i = 0; i < 2000; i++) {
+			final double lat = random.nextDouble() * 170 - 85;
+			final double lon = random.nextDouble() * 360 - 180;
+			final double centerLat = Math.max(-90, Math.min(90, lat + random.nextGaussian() * 3));
+			double centerLon = lon + random.nextGaussian() * 3;
+			centerLon = centerLon > 180 ? centerLon - 360 : centerLon < -180 ? centerLon + 360 : centerLon;
+			final double km = 1 + random.nextDouble() * 500;
+
+			final OgnBeacon beacon = at("FLRDDE626", lat, lon);
+			final double distance = AprsUtils.haversineDistance(centerLat, centerLon, beacon.getLat(),
+					beacon.getLon()) / 1000;
+			final AprsFilter filter = filter(
+					String.format(Locale.ROOT, "r/%.6f/%.6f/%.6f", centerLat, centerLon, km));
+			if (Math.abs(distance - km) > 1e-3)
+				assertEquals(distance + " km within " + km + " km", distance <= km, filter.test(beacon));
+		}
+	}
+
+	@Test
+	public void testArea() {
+		assertTrue(filter("a/52/-2/51/0").test(aircraft));
+		assertFalse(filter("a/52/-1/51/0").test(aircraft));
+		assertFalse(filter("a/52/-2/51/0").test(receiverStatus));
+
+		// across the antimeridian
+		final AprsFilter pacific = filter("a/10/170/-10/-170");
+		assertTrue(pacific.test(at("FLRDDE626", 0, 179.5)));
+		assertTrue(pacific.test(at("FLRDDE626", 0, -179.5)));
+		assertFalse(pacific.test(at("FLRDDE626", 0, 0)));
+		assertFalse(pacific.test(at("FLRDDE626", 11, 179.5)));
+	}
+
+	@Test
+	public void testCallsigns() {
+		assertTrue(filter("p/FLR").test(aircraft));
+		assertTrue(filter("p/ICA/flrdd").test(aircraft));
+		assertFalse(filter("p/ICA/OGN").test(aircraft));
+		assertTrue(filter("p/Al").test(receiverStatus));
+
+		assertTrue(filter("b/FLRDDE626").test(aircraft));
+		assertFalse(filter("b/FLRDDE62").test(aircraft));
+		assertFalse(filter("b/FLRDDE6266").test(aircraft));
+		assertTrue(filter("b/OGN123456/FLRDD*").test(aircraft));
+		assertTrue(filter("b/ALBERTVIL").test(receiver));
+		assertFalse(filter("b/Albert").test(receiver));
+	}
+
+	@Test
+	public void testTypes() {
+		assertTrue(filter("t/p").test(aircraft));
+		assertTrue(filter("t/p").test(receiver));
+		assertFalse(filter("t/p").test(receiverStatus));
+		assertTrue(filter("t/ms").test(receiverStatus));
+		assertFalse(filter("t/ms").test(aircraft));
+	}
+
+	@Test
+	public void testCombined() {
+		// any of the filters, none of the exclusions
+		final AprsFilter filter = filter(" r/45/6/200  p/FLR -b/FLRDDE626 -t/s ");
+		assertEquals("r/45/6/200  p/FLR -b/FLRDDE626 -t/s", filter.getExpression());
+		assertFalse(filter.test(aircraft));
+		assertTrue(filter.test(at("FLRDDE627", 0, 0)));
+		assertTrue(filter.test(receiver));
+		assertFalse(filter.test(receiverStatus));
+
+		assertFalse(filter("").test(aircraft));
+		assertFalse(filter("-p/OGN").test(aircraft));
+	}
+
+	@Test
+	public void testInvalid() {
+		for (final String expression : new String[] { "r/45/6", "r/45/6/x", "r/95/6/10", "r/45/6/-1", "r/45/6/10/1",
+				"a/50/0/51/1", "a/50/0/49", "p/", "p//FLR", "b/FL*R", "t/px", "t/p/FLRDDE626/10", "m/50", "f/EGHL/50",
+				"x", "-", "rr/45/6/10" }) {
+			try {
+				AprsFilter.compile(expression);
+				fail(expression);
+			} catch (final IllegalArgumentException ex) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testRouter() {
+		final AprsFilterRouter router = new AprsFilterRouter();
+		final List<OgnBeacon> flarms = new ArrayList<>();
+		final List<OgnBeacon> alps = new ArrayList<>();
+		final AprsFilterRouter.Subscription flarm = router.subscribe("p/FLR", flarms::add);
+		router.subscribe("a/48/5/44/10", alps::add);
+		router.subscribe("t/p", beacon -> {
+			throw new IllegalStateException("failing consumer");
+		});
+		assertEquals(3, router.size());
+
+		router.accept(aircraft);
+		router.accept(receiver);
+		router.accept(receiverStatus);
+		assertEquals(1, flarms.size());
+		assertEquals(1, alps.size());
+		assertEquals(receiver, alps.get(0));
+
+		flarm.cancel();
+		assertEquals(2, router.size());
+		router.accept(aircraft);
+		assertEquals(1, flarms.size());
+	}
+}
@@ -55,6 +55,11 @@ public class AprsAircraftBeaconTest {
 		Assert.assertEquals("1084", aircraftBeacon.getHeardAircraftIds()[0]);
 		Assert.assertEquals("B597", aircraftBeacon.getHeardAircraftIds()[1]);
 		Assert.assertEquals("B598", aircraftBeacon.getHeardAircraftIds()[2]);
+		Assert.assertEquals(3, aircraftBeacon.getHeardAircraftIdCount());
+		Assert.assertEquals(0x1084, aircraftBeacon.getHeardAircraftId(0));
+		Assert.assertEquals(0xB598, aircraftBeacon.getHeardAircraftId(2));
+		Assert.assertTrue(aircraftBeacon.containsHeardAircraftId(0xB597));
+		Assert.assertFalse(aircraftBeacon.containsHeardAircraftId(0xB596));
 	}
 
 	@Test
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.OgnBeacon;
+
+public class AprsBatchParsingTest {
+
+	private static final String[] CORPUS_FILES = { "src/test/java/org/ogn/commons/beacon/impl/valid_beacons.txt",
+			"src/test/resources/aprs-corpus.txt" };
+
+	private final AprsLineParser parser = AprsLineParser.get();
+
+	private static List<String> loadCorpus(int copies) throws IOException {
+		final List<String> corpus = new ArrayList<>();
+		for (final String file : CORPUS_FILES) {
+			corpus.addAll(Files.readAllLines(Paths.get(file)));
+		}
+
+		// malformed numbers must end up as rejects as well
+		corpus.add("FLRDDA5BA>APRS,qAS,LFMX:/165871h4415.41N/00600.03E'342/049/A=005524 id0ADDA5BA");
+
+		final List<String> lines = new ArrayList<>();
+		for (int i = 0; i < copies; i++) {
+			lines.addAll(corpus);
+		}
+		return lines;
+	}
+
+	private AprsBatchResult parseSequentially(List<String> lines) {
+		final List<OgnBeacon> beacons = new ArrayList<>();
+		final List<String> rejected = new ArrayList<>();
+		for (final String line : lines) {
+			OgnBeacon beacon;
+			try {
+				beacon = parser.parse(line);
+			} catch (final RuntimeException ex) {
+				beacon = null;
+			}
+			if (beacon != null) {
+				beacons.add(beacon);
+			} else {
+				rejected.add(line);
+			}
+		}
+		return new AprsBatchResult(beacons, rejected);
+	}
+
+	@Test
+	public void testParseAllList() throws IOException {
+		final List<String> lines = loadCorpus(300);
+		final AprsBatchResult expected = parseSequentially(lines);
+		final AprsBatchResult result = parser.parseAll(lines);
+
+		assertTrue(result.getRejected().size() > 0);
+		assertEquals(lines.size(), result.getBeacons().size() + result.getRejected().size());
+		assertEquals(expected.getBeacons(), result.getBeacons());
+		assertEquals(expected.getRejected(), result.getRejected());
+	}
+
+	@Test
+	public void testParseAllStream() throws IOException {
+		// more lines than fit into one chunk
+		final List<String> lines = loadCorpus(1000);
+		final AprsBatchResult expected = parseSequentially(lines);
+
+		for (final int parallelism : new int[] { 1, 4 }) {
+			final AprsBatchResult result = parser.parseAll(lines.stream(), parallelism);
+			assertEquals(expected.getBeacons(), result.getBeacons());
+			assertEquals(expected.getRejected(), result.getRejected());
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		final AprsBatchResult result = parser.parseAll(Collections.emptyList());
+		assertTrue(result.getBeacons().isEmpty());
+		assertTrue(result.getRejected().isEmpty());
+		assertTrue(parser.parseAll(Collections.<String> emptyList().stream(), 2).getBeacons().isEmpty());
+	}
+}
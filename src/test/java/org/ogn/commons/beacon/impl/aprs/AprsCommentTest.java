@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.impl.aprs.AprsComment.ScanResult;
+
+public class AprsCommentTest {
+
+	private final AprsComment comment = new AprsComment();
+
+	private ScanResult scanAircraft(String s) {
+		return comment.scanAircraft(s, 0, s.length());
+	}
+
+	private ScanResult scanReceiver(String s) {
+		return comment.scanReceiver(s, 0, s.length());
+	}
+
+	@Test
+	public void testAircraft() {
+		assertEquals(ScanResult.MATCH, scanAircraft(
+				"id06DF0A52 +020fpm +0.0rot FL000.00 55.2dB 0e -6.2kHz gps4x6 s6.01 h03 rDDACC4 +5.0dBm hearD7EA hearDA95"));
+
+		assertEquals(0x06, comment.getHex(AprsComment.DETAILS));
+		assertEquals("DF0A52", comment.getString(AprsComment.ID));
+		assertEquals(20.0f, comment.getFloat(AprsComment.CLIMB_RATE), 1e-6);
+		assertEquals(0.0f, comment.getFloat(AprsComment.TURN_RATE), 1e-6);
+		assertEquals(55.2f, comment.getFloat(AprsComment.SIGNAL_QUALITY), 1e-6);
+		assertEquals(0, comment.getInt(AprsComment.ERRORS));
+		assertEquals(-6.2f, comment.getFloat(AprsComment.FREQUENCY_OFFSET), 1e-6);
+		assertEquals("4x6", comment.getString(AprsComment.GPS_ACCURACY));
+		assertEquals(6.01f, comment.getFloat(AprsComment.FLARM_SOFTWARE_VERSION), 1e-6);
+		assertEquals(3, comment.getHex(AprsComment.FLARM_HARDWARE_VERSION));
+		assertEquals("DDACC4", comment.getString(AprsComment.FLARM_ID));
+		assertEquals(5.0f, comment.getFloat(AprsComment.SIGNAL_POWER), 1e-6);
+		assertArrayEquals(new int[] { 0xD7EA, 0xDA95 }, comment.getHeardAircraftIds());
+	}
+
+	@Test
+	public void testAircraftOptionalFields() {
+		assertEquals(ScanResult.MATCH, scanAircraft("id0ADDA5BA -454fpm -1.1rot 8.8dB 0e +51.2kHz gps4x5"));
+		assertTrue(comment.has(AprsComment.CLIMB_RATE));
+		assertFalse(comment.has(AprsComment.FLIGHT_LEVEL));
+		assertFalse(comment.has(AprsComment.FLARM_ID));
+		assertNull(comment.getString(AprsComment.FLARM_ID));
+		assertEquals(0, comment.getHeardAircraftIds().length);
+	}
+
+	@Test
+	public void testAircraftNoMatch() {
+		assertEquals(ScanResult.NO_MATCH, scanAircraft("CPU:0.7 RAM:770.0/968.2MB NTP:1.8ms/-3.3ppm +41.2C"));
+		assertEquals(ScanResult.NO_MATCH, scanAircraft("id0ADD"));
+	}
+
+	@Test
+	public void testAircraftUndecided() {
+		// the tokens are out of order, only the regex can tell
+		assertEquals(ScanResult.UNDECIDED, scanAircraft("id0ADDA5BA -1.1rot -454fpm"));
+	}
+
+	@Test
+	public void testReceiver() {
+		assertEquals(ScanResult.MATCH, scanReceiver(
+				"v0.2.6.ARM CPU:0.2 RAM:777.7/968.2MB NTP:3.1ms/-3.8ppm 4.902V 0.583A +33.6C 14/16Acfts[1h] RF:+62-0.8ppm/+33.66dB/+19.4dB@10km[112619]/+25.0dB@10km[8/15]"));
+
+		assertEquals("0.2.6", comment.getString(AprsComment.VERSION));
+		assertEquals("ARM", comment.getString(AprsComment.PLATFORM));
+		assertEquals(0.2f, comment.getFloat(AprsComment.CPU_LOAD), 1e-6);
+		assertEquals(777.7f, comment.getFloat(AprsComment.RAM_FREE), 1e-4);
+		assertEquals(968.2f, comment.getFloat(AprsComment.RAM_TOTAL), 1e-4);
+		assertEquals(3.1f, comment.getFloat(AprsComment.NTP_OFFSET), 1e-6);
+		assertEquals(-3.8f, comment.getFloat(AprsComment.NTP_CORRECTION), 1e-6);
+		assertEquals(33.6f, comment.getFloat(AprsComment.CPU_TEMPERATURE), 1e-6);
+		assertEquals(62, comment.getInt(AprsComment.RF_CORRECTION_MANUAL));
+		assertEquals(-0.8f, comment.getFloat(AprsComment.RF_CORRECTION_AUTOMATIC), 1e-6);
+		assertEquals(33.66f, comment.getFloat(AprsComment.SIGNAL_QUALITY), 1e-6);
+		assertEquals("15", comment.getString(AprsComment.GOOD_AND_BAD_SENDERS));
+	}
+
+	@Test
+	public void testReceiverNoMatch() {
+		assertEquals(ScanResult.NO_MATCH, scanReceiver("id0ADDA5BA -454fpm -1.1rot 8.8dB 0e +51.2kHz gps4x5"));
+		assertEquals(ScanResult.NO_MATCH, scanReceiver("CPU:0.7 RAM:770.0/968.2MB NTP:1.8ms/-3.3ppm"));
+	}
+
+	@Test
+	public void testHeardAircraftIds() {
+		final String proximity = "hearDA95 hearD7EA\thear0001hearDA95 ";
+		assertArrayEquals(new int[] { 0x0001, 0xD7EA, 0xDA95 },
+				AprsComment.heardAircraftIds(proximity, 0, proximity.length()));
+		assertEquals("0001", AprsComment.formatHeardAircraftId(1));
+		assertEquals("DA95", AprsComment.formatHeardAircraftId(0xDA95));
+	}
+
+	@Test
+	public void testClassify() {
+		assertEquals(AprsComment.Type.AIRCRAFT, AprsComment.classify("id0ADDA5BA -454fpm", 0));
+		assertEquals(AprsComment.Type.AIRCRAFT, AprsComment.classify(" id0ADDA5BA", 1));
+		assertEquals(AprsComment.Type.RECEIVER, AprsComment.classify("v0.2.6.ARM CPU:0.2", 0));
+		assertEquals(AprsComment.Type.RECEIVER, AprsComment.classify("CPU:0.2 RAM:777.7/968.2MB", 0));
+		assertEquals(AprsComment.Type.UNKNOWN, AprsComment.classify("CP", 0));
+		assertEquals(AprsComment.Type.UNKNOWN, AprsComment.classify("i", 0));
+		assertEquals(AprsComment.Type.UNKNOWN, AprsComment.classify("", 0));
+		assertEquals(AprsComment.Type.UNKNOWN, AprsComment.classify("Antenna: chinese, on a pylon", 0));
+	}
+
+	@Test
+	public void testNumbers() {
+		for (final String s : new String[] { "0", "-0", "+1.5", "123.456", ".5", "5.", "1234567", "12345678",
+				"0.0000001", "0.00000000001" }) {
+			assertEquals(s, Float.floatToIntBits(Float.parseFloat(s)),
+					Float.floatToIntBits(AprsNumbers.parseFloat(s, 0, s.length())));
+		}
+		assertEquals(-62, AprsNumbers.parseInt("-62", 0, 3));
+		assertEquals(0xDDACC4, AprsNumbers.parseHex("DDACC4", 0, 6));
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.ReceiverBeacon;
+import org.ogn.commons.utils.UtcTimestampResolver;
+
+public class AprsDecoderRegistryTest {
+
+	private static final String FLARM_LINE = "FLRDDE626>OGFLR,qAS,EGHL:/074548h5111.32N/00102.04W'086/007/A=000607 id0ADDE626 -019fpm +0.0rot 5.5dB 3e -4.3kHz";
+	private static final String RECEIVER_LINE = "Saleve>OGNSDR,TCPIP*,qAC,GLIDERN1:>132201h v0.2.7.arm CPU:0.8 RAM:1000.3/1055.3MB NTP:0.5ms/-7.3ppm +50.5C";
+
+	private static AprsBeaconDecoder lookup(AprsDecoderRegistry registry, String dstcall) {
+		final String line = "X>" + dstcall + ",";
+		return registry.lookup(line, 2, 2 + dstcall.length());
+	}
+
+	@Test
+	public void testDefaultRegistry() {
+		final AprsDecoderRegistry registry = AprsDecoderRegistry.getDefault();
+
+		assertEquals(0, registry.getDstcalls().length);
+		assertSame(AprsDecoders.GENERIC, lookup(registry, "APRS"));
+		assertSame(AprsDecoders.GENERIC, lookup(registry, "OGFLR"));
+		assertSame(AprsDecoders.GENERIC, lookup(registry, "OGNSDR"));
+
+		final AprsLineParser parser = AprsLineParser.get();
+		assertTrue(parser.parse(FLARM_LINE) instanceof AircraftBeacon);
+		assertTrue(parser.parse(RECEIVER_LINE) instanceof ReceiverBeacon);
+		assertTrue(parser.parse(RECEIVER_LINE.replace("OGNSDR", "OGFLR")) instanceof ReceiverBeacon);
+		assertTrue(parser.parse(FLARM_LINE.replace("OGFLR", "OGNSDR")) instanceof AircraftBeacon);
+	}
+
+	private static AprsLineParser parser(AprsDecoderRegistry registry) {
+		return AprsLineParser.create(AprsLineParser.Mode.SCANNER, null, null, null, UtcTimestampResolver.getDefault(),
+				registry);
+	}
+
+	@Test
+	public void testSpecializedDecoder() {
+		final AprsDecoderRegistry registry = new AprsDecoderRegistry(AprsDecoders.GENERIC);
+		registry.register("OGFLR", AprsDecoders.LAZY_AIRCRAFT);
+		final AprsLineParser parser = parser(registry);
+		assertSame(registry, parser.getRegistry());
+		assertTrue(parser.parse(FLARM_LINE) instanceof LazyAprsAircraftBeacon);
+
+		// a receiver comment under an aircraft dstcall is still decoded (by the generic decoder)
+		assertTrue(parser.parse(RECEIVER_LINE.replace("OGNSDR", "OGFLR")) instanceof ReceiverBeacon);
+
+		// the other parsers are not affected
+		assertSame(AprsDecoderRegistry.getDefault(), AprsLineParser.get().getRegistry());
+		assertTrue(AprsLineParser.get().parse(FLARM_LINE) instanceof AprsAircraftBeacon);
+	}
+
+	@Test
+	public void testRegister() {
+		final AprsDecoderRegistry registry = new AprsDecoderRegistry(AprsDecoders.GENERIC);
+		final AprsBeaconDecoder rejectAll = (envelope, comment) -> null;
+
+		assertSame(AprsDecoders.GENERIC, lookup(registry, "OGFLR"));
+		registry.register("OGFLR", rejectAll);
+		assertSame(rejectAll, lookup(registry, "OGFLR"));
+		assertSame(AprsDecoders.GENERIC, lookup(registry, "OGNTRK"));
+		registry.register("OGFLR", AprsDecoders.LAZY_AIRCRAFT);
+		assertSame(AprsDecoders.LAZY_AIRCRAFT, lookup(registry, "OGFLR"));
+		assertArrayEquals(new String[] { "OGFLR" }, registry.getDstcalls());
+
+		// the table grows
+		for (int i = 0; i < 100; i++)
+			registry.register("OG" + i, rejectAll);
+		assertEquals(101, registry.getDstcalls().length);
+		for (int i = 0; i < 100; i++)
+			assertSame(rejectAll, lookup(registry, "OG" + i));
+		assertSame(AprsDecoders.LAZY_AIRCRAFT, lookup(registry, "OGFLR"));
+
+		registry.unregister("OGFLR");
+		assertSame(AprsDecoders.GENERIC, lookup(registry, "OGFLR"));
+		registry.setFallback(rejectAll);
+		assertSame(rejectAll, lookup(registry, "OGFLR"));
+	}
+
+	@Test
+	public void testCustomDecoder() {
+		final AprsDecoderRegistry registry = new AprsDecoderRegistry(AprsDecoders.GENERIC);
+		registry.register("OGFLR", (envelope, comment) -> null);
+		final OgnBeacon beacon = parser(registry).parse(FLARM_LINE);
+		assertNull(beacon);
+		assertTrue(AprsLineParser.get().parse(FLARM_LINE) instanceof AircraftBeacon);
+	}
+}
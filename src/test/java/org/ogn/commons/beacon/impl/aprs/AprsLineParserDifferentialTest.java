@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser.Mode;
+import org.ogn.commons.utils.JsonUtils;
+
+/**
+ * Checks that the scanner-based and the regex-based parsing paths produce exactly the same beacons
+ */
+public class AprsLineParserDifferentialTest {
+
+	private static final String[] CORPUS_FILES = { "src/test/java/org/ogn/commons/beacon/impl/valid_beacons.txt",
+			"src/test/resources/aprs-corpus.txt" };
+
+	// chars which are significant for the APRS envelope
+	private static final String MUTATION_CHARS = ",:/>*! hNSEW0123456789.A=!\t\nI&'";
+
+	private final AprsLineParser scanner = AprsLineParser.get(Mode.SCANNER);
+	private final AprsLineParser regex = AprsLineParser.get(Mode.REGEX);
+
+	private static List<String> loadCorpus() throws IOException {
+		final List<String> lines = new ArrayList<>();
+		for (final String file : CORPUS_FILES) {
+			lines.addAll(Files.readAllLines(Paths.get(file)));
+		}
+		return lines;
+	}
+
+	private static Object parse(AprsLineParser parser, String line) {
+		return parse(() -> parser.parse(line));
+	}
+
+	private static Object parse(Supplier<OgnBeacon> parse) {
+		try {
+			return parse.get();
+		} catch (final RuntimeException ex) {
+			// malformed numbers are reported the same way by both paths
+			return ex.getClass();
+		}
+	}
+
+	private void assertSameResult(String line) {
+		assertSameResult(line, parse(regex, line), parse(scanner, line));
+	}
+
+	private static void assertSameResult(String line, Object expected, Object actual) {
+		if (!(expected instanceof OgnBeacon)) {
+			assertEquals("scanner result differs: " + line, expected, actual);
+			return;
+		}
+
+		assertNotNull("scanner rejected: " + line, actual);
+		assertEquals(line, expected.getClass(), actual.getClass());
+		assertEquals(line, expected, actual);
+		assertEquals(line, JsonUtils.toJson(expected), JsonUtils.toJson(actual));
+	}
+
+	@Test
+	public void testModes() {
+		assertEquals(Mode.SCANNER, AprsLineParser.get().getMode());
+		assertEquals(Mode.SCANNER, scanner.getMode());
+		assertEquals(Mode.REGEX, regex.getMode());
+	}
+
+	@Test
+	public void testCorpus() throws IOException {
+		int accepted = 0;
+		for (final String line : loadCorpus()) {
+			assertSameResult(line);
+			if (parse(regex, line) instanceof OgnBeacon)
+				accepted++;
+		}
+		assertTrue(accepted > 0);
+	}
+
+	@Test
+	public void testParseWithoutResult() throws IOException {
+		// parse() goes without the parse result unless it is needed, tryParse() always builds it
+		for (final AprsLineParser parser : Arrays.asList(scanner, regex)) {
+			for (final String line : loadCorpus()) {
+				final Object expected = parse(() -> parser.tryParse(line).getBeacon());
+				assertSameResult(line, expected, parse(parser, line));
+				final byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+				assertSameResult(line, expected, parse(() -> parser.parse(bytes, 0, bytes.length)));
+			}
+		}
+	}
+
+	@Test
+	public void testMutatedCorpus() throws IOException {
+		final Random rnd = new Random(20180301L);
+
+		for (final String line : loadCorpus()) {
+			for (int i = 0; i < 50; i++) {
+				final StringBuilder mutated = new StringBuilder(line);
+				final int edits = 1 + rnd.nextInt(3);
+				for (int e = 0; e < edits && mutated.length() > 0; e++) {
+					final int pos = rnd.nextInt(mutated.length());
+					final char c = MUTATION_CHARS.charAt(rnd.nextInt(MUTATION_CHARS.length()));
+					switch (rnd.nextInt(4)) {
+					case 0:
+						mutated.setCharAt(pos, c);
+						break;
+					case 1:
+						mutated.insert(pos, c);
+						break;
+					case 2:
+						mutated.deleteCharAt(pos);
+						break;
+					default:
+						mutated.setLength(pos);
+					}
+				}
+				assertSameResult(mutated.toString());
+			}
+		}
+	}
+
+	@Test
+	public void testByteInput() throws IOException {
+		for (final String line : loadCorpus()) {
+			final byte[] bytes = ("\r\n" + line + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+			final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+			direct.put(bytes);
+
+			final Object expected = parse(scanner, line);
+			for (final AprsLineParser parser : new AprsLineParser[] { scanner, regex }) {
+				assertSameResult(line, expected, parse(() -> parser.parse(bytes, 2, line.length())));
+				assertSameResult(line, expected, parse(() -> parser.parse(ByteBuffer.wrap(bytes), 2, line.length())));
+				assertSameResult(line, expected, parse(() -> parser.parse(direct, 2, line.length())));
+			}
+
+			// the beacon must not depend on the buffer any more
+			final Object beacon = parse(() -> scanner.parse(bytes, 2, line.length()));
+			Arrays.fill(bytes, (byte) 'X');
+			assertSameResult(line, expected, beacon);
+		}
+	}
+
+	@Test
+	public void testEdgeCases() {
+		final String valid = "FLRDDA5BA>APRS,qAS,LFMX:/165829h4415.41N/00600.03E'342/049/A=005524";
+		assertSameResult("");
+		assertSameResult(">");
+		assertSameResult(valid);
+		assertSameResult(valid + " ");
+		assertSameResult(valid + "\n");
+		assertSameResult(valid + " id0ADDA5BA\n");
+		assertSameResult(valid + "\nid0ADDA5BA");
+		assertSameResult(valid + " !W12!\nid0ADDA5BA");
+		assertSameResult(valid.replace("LFMX", "LF MX"));
+		assertSameResult("X>APRS,qAS,R:>165829h CPU:0.9 RAM:968.2/1056.5MB NTP:1.5ms/-20.0ppm\n");
+		assertSameResult("X>APRS,qAS,R:>165829h\nCPU:0.9 RAM:968.2/1056.5MB NTP:1.5ms/-20.0ppm");
+	}
+
+	@Test
+	public void testServerComments() {
+		final String line = "#FLRDDA5BA>APRS,qAS,LFMX:/165829h4415.41N/00600.03E'342/049/A=005524 id0ADDA5BA";
+		final byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+		for (final AprsLineParser parser : new AprsLineParser[] { scanner, regex }) {
+			assertNull(parser.parse(line));
+			assertNull(parser.parse(bytes, 0, bytes.length));
+			assertNull(parser.parse("# aprsc 2.1.4-g408ed49 1 Mar 2018 16:58:29 GMT GLIDERN1 37.187.40.234:10152"));
+		}
+		assertNotNull(scanner.parse(line.substring(1)));
+	}
+}
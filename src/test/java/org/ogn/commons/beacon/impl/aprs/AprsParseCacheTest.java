@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser.Mode;
+
+public class AprsParseCacheTest {
+
+	private static final String FLARM_LINE = "FLRDDE626>OGFLR,qAS,EGHL:/074548h5111.32N/00102.04W'086/007/A=000607 id0ADDE626 -019fpm +0.0rot 5.5dB 3e -4.3kHz gps2x3";
+	private static final String RECEIVER_LINE = "Saleve>OGNSDR,TCPIP*,qAC,GLIDERN1:>132201h v0.2.7.arm CPU:0.8 RAM:1000.3/1055.3MB NTP:0.5ms/-7.3ppm +50.5C";
+
+	@Test
+	public void testRepeatedLines() {
+		for (final Mode mode : Mode.values()) {
+			final AprsParseCache cache = new AprsParseCache(64);
+			final AprsLineParser parser = AprsLineParser.withCache(mode, cache);
+			assertSame(cache, parser.getCache());
+
+			final OgnBeacon aircraft = parser.parse(FLARM_LINE);
+			final OgnBeacon receiver = parser.parse(RECEIVER_LINE);
+			assertEquals(AprsLineParser.get(mode).parse(FLARM_LINE), aircraft);
+
+			// identical lines (but other instances) from the other servers
+			assertSame(aircraft, parser.parse(new String(FLARM_LINE)));
+			assertSame(receiver, parser.parse(new String(RECEIVER_LINE)));
+
+			final byte[] bytes = FLARM_LINE.getBytes(StandardCharsets.ISO_8859_1);
+			assertSame(aircraft, parser.parse(bytes, 0, bytes.length));
+
+			assertEquals(3, cache.getHits());
+			assertEquals(2, cache.getMisses());
+		}
+	}
+
+	@Test
+	public void testRawPacketOfSharedBeacon() throws Exception {
+		final byte[] bytes = FLARM_LINE.getBytes(StandardCharsets.ISO_8859_1);
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (int i = 0; i < 1000; i++) {
+				// parsed from bytes, the beacon holds the line as bytes until the raw packet is asked for
+				final AprsLineParser parser = AprsLineParser.withCache(Mode.SCANNER, new AprsParseCache(64));
+				final OgnBeacon beacon = parser.parse(bytes, 0, bytes.length);
+				final CountDownLatch start = new CountDownLatch(1);
+				final Future<String> other = executor.submit(() -> {
+					start.await();
+					return parser.parse(bytes, 0, bytes.length).getRawPacket();
+				});
+				start.countDown();
+				assertEquals(FLARM_LINE, beacon.getRawPacket());
+				assertEquals(FLARM_LINE, other.get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testRejectedLines() {
+		final AprsParseCache cache = new AprsParseCache(64);
+		final AprsLineParser parser = AprsLineParser.withCache(Mode.SCANNER, cache);
+
+		assertNull(parser.parse("not an aprs line"));
+		assertNull(parser.parse("not an aprs line"));
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testHashCollision() {
+		// "Aa" and "BB" have the same hash
+		final String lineA = FLARM_LINE.replace("EGHL", "EGAa");
+		final String lineB = FLARM_LINE.replace("EGHL", "EGBB");
+		assertEquals(lineA.hashCode(), lineB.hashCode());
+
+		final AprsLineParser parser = AprsLineParser.withCache(Mode.SCANNER, new AprsParseCache(2));
+		final AircraftBeacon a = (AircraftBeacon) parser.parse(lineA);
+		final AircraftBeacon b = (AircraftBeacon) parser.parse(lineB);
+		assertNotSame(a, b);
+		assertEquals("EGAa", a.getReceiverName());
+		assertEquals("EGBB", b.getReceiverName());
+		assertSame(a, parser.parse(lineA));
+		assertSame(b, parser.parse(lineB));
+	}
+
+	@Test
+	public void testEviction() {
+		final AprsParseCache cache = new AprsParseCache(2);
+		final AprsLineParser parser = AprsLineParser.withCache(Mode.SCANNER, cache);
+
+		final OgnBeacon first = parser.parse(FLARM_LINE);
+		for (int i = 0; i < 10; i++)
+			parser.parse(FLARM_LINE.replace("EGHL", "EG" + i));
+		assertNotSame(first, parser.parse(FLARM_LINE));
+
+		cache.clear();
+		assertEquals(2, cache.getCapacity());
+	}
+
+	@Test
+	public void testNotCachingByDefault() {
+		assertNull(AprsLineParser.get().getCache());
+		assertNotSame(AprsLineParser.get().parse(FLARM_LINE), AprsLineParser.get().parse(FLARM_LINE));
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser.Mode;
+
+public class AprsParseResultTest {
+
+	private static final String PREFIX = "FLRDDE626>OGFLR,qAS,EGHL:/";
+	private static final String FLARM_LINE = PREFIX
+			+ "074548h5111.32N/00102.04W'086/007/A=000607 id0ADDE626 -019fpm +0.0rot 5.5dB 3e -4.3kHz gps2x3";
+
+	private static void assertRejected(AprsLineParser parser, String line, AprsRejectReason reason, int offset) {
+		final AprsParseResult result = parser.tryParse(line);
+		assertFalse(line, result.isAccepted());
+		assertNull(line, result.getBeacon());
+		assertEquals(line, reason, result.getReason());
+		assertEquals(line, offset, result.getOffset());
+		assertEquals(line, line, result.getLine());
+
+		// parse does not throw either
+		assertNull(line, parser.parse(line));
+	}
+
+	@Test
+	public void testAccepted() {
+		for (final Mode mode : Mode.values()) {
+			final AprsParseResult result = AprsLineParser.get(mode).tryParse(FLARM_LINE);
+			assertTrue(result.isAccepted());
+			assertTrue(result.getBeacon() instanceof AircraftBeacon);
+			assertNull(result.getReason());
+			assertEquals(-1, result.getOffset());
+			assertNull(result.getLine());
+
+			final byte[] bytes = FLARM_LINE.getBytes(StandardCharsets.ISO_8859_1);
+			assertEquals(result.getBeacon(), AprsLineParser.get(mode).tryParse(bytes, 0, bytes.length).getBeacon());
+		}
+	}
+
+	@Test
+	public void testRejectReasons() {
+		for (final Mode mode : Mode.values()) {
+			final AprsLineParser parser = AprsLineParser.get(mode);
+
+			assertRejected(parser, "# aprsc 2.1.4-g408ed49", AprsRejectReason.SERVER_COMMENT, 0);
+			assertRejected(parser, "hello world", AprsRejectReason.UNKNOWN_FORMAT, 0);
+			assertRejected(parser, FLARM_LINE.replace("074548h", "254548h"), AprsRejectReason.BAD_TIME,
+					PREFIX.length());
+			assertRejected(parser, FLARM_LINE.replace("5111.32N", "5171.32N"), AprsRejectReason.BAD_COORDINATE,
+					PREFIX.length() + 7);
+			assertRejected(parser, FLARM_LINE.replace("00102.04W", "00162.04W"), AprsRejectReason.BAD_COORDINATE,
+					PREFIX.length() + 16);
+
+			final int commentStart = FLARM_LINE.indexOf(" id") + 1;
+			assertRejected(parser, FLARM_LINE.substring(0, commentStart) + "hello there",
+					AprsRejectReason.UNKNOWN_COMMENT, commentStart);
+			assertRejected(parser, FLARM_LINE.replace("+0.0rot", "+0..0rot"), AprsRejectReason.BAD_NUMBER,
+					commentStart);
+		}
+	}
+
+	@Test
+	public void testRejectSink() {
+		final AprsRejectSink sink = new AprsRejectSink(2);
+		final AprsLineParser parser = AprsLineParser.create(Mode.SCANNER, null, sink);
+		assertSame(sink, parser.getRejectSink());
+
+		parser.parse(FLARM_LINE);
+		parser.parse("# aprsc 2.1.4-g408ed49");
+		assertEquals(0, sink.size());
+
+		parser.parse("hello world");
+		parser.parse(FLARM_LINE.replace("074548h", "254548h"));
+		parser.parse("hello again");
+		assertEquals(2, sink.size());
+		assertEquals(1, sink.getDropped());
+
+		final List<AprsParseResult> rejects = sink.drain();
+		assertEquals(2, rejects.size());
+		assertEquals("hello world", rejects.get(0).getLine());
+		assertEquals(AprsRejectReason.BAD_TIME, rejects.get(1).getReason());
+		assertEquals(0, sink.size());
+
+		// there is room again
+		parser.parse("hello again");
+		assertEquals(1, sink.drain().size());
+	}
+
+	@Test
+	public void testCachedRejects() {
+		final AprsRejectSink sink = new AprsRejectSink(16);
+		final AprsLineParser parser = AprsLineParser.create(Mode.SCANNER, new AprsParseCache(64), sink);
+
+		final AprsParseResult first = parser.tryParse("hello world");
+		assertSame(first, parser.tryParse(new String("hello world")));
+		// a reject is kept once, not for every copy of the line
+		assertEquals(1, sink.size());
+	}
+}
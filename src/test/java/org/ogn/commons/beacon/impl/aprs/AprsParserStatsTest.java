@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser.Mode;
+import org.ogn.commons.beacon.impl.aprs.AprsParserMetrics.Stage;
+
+public class AprsParserStatsTest {
+
+	private static final String AIRCRAFT_LINE = "FLRDDE626>OGFLR,qAS,EGHL:/074548h5111.32N/00102.04W'086/007/A=000607 id0ADDE626 -019fpm +0.0rot 5.5dB 3e -4.3kHz gps2x3";
+	private static final String STATUS_LINE = "Saleve>OGNSDR,TCPIP*,qAC,GLIDERN1:>132201h v0.2.7.arm CPU:0.8 RAM:1000.3/1055.3MB NTP:0.5ms/-7.3ppm +50.5C";
+	private static final String POSITION_LINE = "EBZW>APRS,TCPIP*,qAC,GLIDERN1:/102546h5100.86NI00531.43E&/A=000298 CPU:0.9 RAM:968.2/1056.5MB NTP:1.5ms/-20.0ppm RF:+127-2.9ppm/+4.3dB";
+
+	private static void parseAll(AprsLineParser parser) {
+		parser.parse(AIRCRAFT_LINE);
+		parser.parse(AIRCRAFT_LINE);
+		parser.parse(STATUS_LINE);
+		parser.parse(POSITION_LINE);
+		parser.parse("# aprsc 2.1.4-g408ed49");
+		parser.parse("hello world");
+		parser.parse(AIRCRAFT_LINE.replace("074548h", "254548h"));
+	}
+
+	@Test
+	public void testCounters() {
+		assertNull(AprsLineParser.get().getMetrics());
+
+		for (final Mode mode : Mode.values()) {
+			final AprsParserStats stats = new AprsParserStats();
+			final AprsLineParser parser = AprsLineParser.create(mode, null, null, stats);
+			assertSame(stats, parser.getMetrics());
+			parseAll(parser);
+
+			assertEquals(7, stats.getLines());
+			assertEquals(2 * AIRCRAFT_LINE.length() + STATUS_LINE.length() + POSITION_LINE.length() + 22 + 11
+					+ AIRCRAFT_LINE.length(), stats.getBytes());
+			assertEquals(2, stats.getAircraftBeacons());
+			assertEquals(1, stats.getReceiverStatusBeacons());
+			assertEquals(1, stats.getReceiverPositionBeacons());
+			assertEquals(1, stats.getRejects(AprsRejectReason.SERVER_COMMENT));
+			assertEquals(1, stats.getRejects(AprsRejectReason.UNKNOWN_FORMAT));
+			assertEquals(1, stats.getRejects(AprsRejectReason.BAD_TIME));
+			assertEquals(2, stats.getRejects());
+			assertEquals(Long.valueOf(1), stats.getRejectsByReason().get("BAD_TIME"));
+
+			assertEquals(mode.toString(), 1, stats.getLatency(Stage.STATUS).getCount());
+			assertEquals(mode.toString(), 4, stats.getLatency(Stage.POSITION).getCount());
+			assertEquals(mode.toString(), 4, stats.getLatency(Stage.COMMENT).getCount());
+
+			stats.reset();
+			assertEquals(0, stats.getLines());
+			assertEquals(0, stats.getRejects());
+			assertEquals(0, stats.getLatency(Stage.COMMENT).getCount());
+		}
+	}
+
+	@Test
+	public void testCachedLinesAreCountedButNotTimed() {
+		final AprsParserStats stats = new AprsParserStats();
+		final AprsLineParser parser = AprsLineParser.create(Mode.SCANNER, new AprsParseCache(64), null, stats);
+		parser.parse(AIRCRAFT_LINE);
+		parser.parse(AIRCRAFT_LINE);
+
+		assertEquals(2, stats.getAircraftBeacons());
+		assertEquals(1, stats.getLatency(Stage.COMMENT).getCount());
+	}
+
+	@Test
+	public void testJmx() throws Exception {
+		final AprsParserStats stats = new AprsParserStats();
+		parseAll(AprsLineParser.create(Mode.SCANNER, null, null, stats));
+
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = stats.register("test");
+		try {
+			assertEquals(2L, server.getAttribute(name, "AircraftBeacons"));
+			assertEquals(2L, server.getAttribute(name, "Rejects"));
+			final CompositeData latency = (CompositeData) server.getAttribute(name, "CommentLatency");
+			assertEquals(4L, latency.get("count"));
+
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "Lines"));
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+}
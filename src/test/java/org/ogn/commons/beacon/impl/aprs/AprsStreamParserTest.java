@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.ReceiverBeacon;
+
+public class AprsStreamParserTest {
+
+	private static final String[] CORPUS_FILES = { "src/test/java/org/ogn/commons/beacon/impl/valid_beacons.txt",
+			"src/test/resources/aprs-corpus.txt" };
+
+	private static final String FLARM_LINE = "FLRDDE626>OGFLR,qAS,EGHL:/074548h5111.32N/00102.04W'086/007/A=000607 id0ADDE626 -019fpm +0.0rot 5.5dB 3e -4.3kHz";
+
+	/**
+	 * hands the data over in small pieces, so that the lines get split between the reads
+	 */
+	private static class TrickleChannel implements ReadableByteChannel {
+		private final ByteBuffer data;
+		private final int chunk;
+
+		TrickleChannel(byte[] data, int chunk) {
+			this.data = ByteBuffer.wrap(data);
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) {
+			if (!data.hasRemaining())
+				return -1;
+			final int n = Math.min(Math.min(chunk, dst.remaining()), data.remaining());
+			final ByteBuffer slice = data.duplicate();
+			slice.limit(slice.position() + n);
+			dst.put(slice);
+			data.position(data.position() + n);
+			return n;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static List<String> loadCorpus() throws IOException {
+		final List<String> lines = new ArrayList<>();
+		for (final String file : CORPUS_FILES) {
+			lines.addAll(Files.readAllLines(Paths.get(file)));
+		}
+		return lines;
+	}
+
+	private static List<OgnBeacon> parseSequentially(List<String> lines) {
+		final AprsLineParser parser = AprsLineParser.get();
+		final List<OgnBeacon> result = new ArrayList<>();
+		for (final String line : lines) {
+			try {
+				final OgnBeacon beacon = parser.parse(line);
+				if (beacon != null)
+					result.add(beacon);
+			} catch (final RuntimeException ex) {
+				// rejected
+			}
+		}
+		return result;
+	}
+
+	private static List<OgnBeacon> parseStream(AprsStreamParser[] parser, ReadableByteChannel channel, int bufferSize,
+			int queueCapacity) throws IOException {
+		final List<OgnBeacon> result = Collections.synchronizedList(new ArrayList<>());
+		parser[0] = new AprsStreamParser(AprsLineParser.get(), (AircraftBeacon beacon) -> result.add(beacon),
+				(ReceiverBeacon beacon) -> result.add(beacon), bufferSize, queueCapacity);
+		parser[0].parse(channel);
+		return result;
+	}
+
+	@Test
+	public void testCorpus() throws IOException {
+		final List<String> lines = loadCorpus();
+		final List<OgnBeacon> expected = parseSequentially(lines);
+		final byte[] data = (String.join("\r\n", lines) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+		for (final int queueCapacity : new int[] { 0, 4 }) {
+			for (final int chunk : new int[] { 1, 7, 4096 }) {
+				final AprsStreamParser[] parser = new AprsStreamParser[1];
+				final List<OgnBeacon> beacons = parseStream(parser, new TrickleChannel(data, chunk), 512,
+						queueCapacity);
+
+				assertEquals(expected, beacons);
+				assertEquals(data.length, parser[0].getBytes());
+				assertEquals(lines.stream().filter(line -> !line.isEmpty()).count(), parser[0].getLines());
+				assertTrue(parser[0].getRejects() > 0);
+			}
+		}
+	}
+
+	@Test
+	public void testInputStream() throws IOException {
+		final List<OgnBeacon> beacons = new ArrayList<>();
+		final AprsStreamParser parser = new AprsStreamParser(beacons::add, beacons::add);
+
+		// no line terminator after the last line
+		final String data = "# aprsc 2.1.4-g408ed49\n" + FLARM_LINE + "\nsome garbage\n" + FLARM_LINE;
+		parser.parse(new ByteArrayInputStream(data.getBytes(StandardCharsets.ISO_8859_1)));
+
+		assertEquals(2, beacons.size());
+		assertEquals(FLARM_LINE, beacons.get(1).getRawPacket());
+		assertEquals(4, parser.getLines());
+		assertEquals(1, parser.getRejects());
+	}
+
+	@Test
+	public void testLongLine() throws IOException {
+		final StringBuilder data = new StringBuilder(FLARM_LINE).append('\n');
+		for (int i = 0; i < 1000; i++)
+			data.append('x');
+		data.append('\n').append(FLARM_LINE).append('\n');
+
+		final AprsStreamParser[] parser = new AprsStreamParser[1];
+		final List<OgnBeacon> beacons = parseStream(parser,
+				new TrickleChannel(data.toString().getBytes(StandardCharsets.ISO_8859_1), 100), 256, 0);
+
+		assertEquals(2, beacons.size());
+		assertEquals(3, parser[0].getLines());
+		assertEquals(1, parser[0].getRejects());
+	}
+
+	@Test
+	public void testStopBeforeParse() throws IOException {
+		final List<OgnBeacon> beacons = new ArrayList<>();
+		final AprsStreamParser parser = new AprsStreamParser(beacons::add, beacons::add);
+		parser.stop();
+		parser.parse(new ByteArrayInputStream((FLARM_LINE + "\n").getBytes(StandardCharsets.ISO_8859_1)));
+
+		assertTrue(beacons.isEmpty());
+		assertEquals(0, parser.getBytes());
+	}
+
+	@Test
+	public void testNonBlockingChannel() throws IOException {
+		final Pipe pipe = Pipe.open();
+		try {
+			pipe.source().configureBlocking(false);
+			new AprsStreamParser(null, null).parse(pipe.source());
+			fail("non-blocking channel accepted");
+		} catch (final IllegalArgumentException ex) {
+			// expected
+		} finally {
+			pipe.source().close();
+			pipe.sink().close();
+		}
+	}
+}
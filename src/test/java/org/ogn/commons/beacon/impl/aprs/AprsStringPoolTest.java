@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.ReceiverBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser.Mode;
+
+public class AprsStringPoolTest {
+
+	private static final String FLARM_LINE = "FLRDDE626>OGFLR,qAS,EGHL:/074548h5111.32N/00102.04W'086/007/A=000607 id0ADDE626 -019fpm +0.0rot 5.5dB 3e -4.3kHz gps2x3 rDDE626";
+	private static final String RECEIVER_LINE = "Saleve>OGNSDR,TCPIP*,qAC,GLIDERN1:>132201h v0.2.7.arm CPU:0.8 RAM:1000.3/1055.3MB NTP:0.5ms/-7.3ppm +50.5C";
+
+	@Test
+	public void testIntern() {
+		final AprsStringPool pool = new AprsStringPool(16);
+		final String a = new String("DDE626");
+		final String b = new String("DDE626");
+
+		assertSame(a, pool.intern(a));
+		assertSame(a, pool.intern(b));
+		assertSame(a, pool.intern("id0ADDE626 -019fpm", 4, 10));
+		assertNull(pool.intern(null));
+		assertEquals("", pool.intern("abc", 1, 1));
+
+		pool.clear();
+		assertSame(b, pool.intern(b));
+	}
+
+	@Test
+	public void testBounded() {
+		final AprsStringPool pool = new AprsStringPool(100);
+		assertEquals(128, pool.getCapacity());
+
+		// the pool keeps working (and stays bounded) when there are more values than slots
+		for (int i = 0; i < 10000; i++)
+			assertEquals(Integer.toHexString(i), pool.intern(Integer.toHexString(i)));
+
+		// the recently used values survive
+		final String recent = pool.intern(new String("recent"));
+		assertSame(recent, pool.intern(new String("recent")));
+	}
+
+	@Test
+	public void testConcurrentIntern() {
+		final AprsStringPool pool = new AprsStringPool(1 << 10);
+		IntStream.range(0, 100000).parallel().forEach(i -> {
+			final String value = "ID" + (i % 500);
+			assertEquals(value, pool.intern(value));
+			assertEquals(value, pool.intern("x" + value, 1, value.length() + 1));
+		});
+	}
+
+	@Test
+	public void testParsedBeacons() {
+		for (final Mode mode : Mode.values()) {
+			final AprsLineParser parser = AprsLineParser.get(mode);
+			final AircraftBeacon first = (AircraftBeacon) parser.parse(FLARM_LINE);
+			final AircraftBeacon second = (AircraftBeacon) parser.parse(new String(FLARM_LINE));
+
+			assertNotSame(first, second);
+			assertSame(first.getId(), second.getId());
+			assertSame(first.getReceiverName(), second.getReceiverName());
+			assertSame(first.getAddress(), second.getAddress());
+			assertSame(first.getOriginalAddress(), second.getOriginalAddress());
+			assertSame(first.getGpsStatus(), second.getGpsStatus());
+
+			final ReceiverBeacon receiver1 = (ReceiverBeacon) parser.parse(RECEIVER_LINE);
+			final ReceiverBeacon receiver2 = (ReceiverBeacon) parser.parse(new String(RECEIVER_LINE));
+			assertSame(receiver1.getServerName(), receiver2.getServerName());
+			assertSame(receiver1.getVersion(), receiver2.getVersion());
+			assertSame(receiver1.getPlatform(), receiver2.getPlatform());
+		}
+	}
+}
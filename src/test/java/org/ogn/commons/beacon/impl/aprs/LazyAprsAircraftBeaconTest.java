@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.utils.AprsUtils;
+import org.ogn.commons.utils.UtcTimestampResolver;
+
+public class LazyAprsAircraftBeaconTest {
+
+	private static final String[] CORPUS_FILES = { "src/test/java/org/ogn/commons/beacon/impl/valid_beacons.txt",
+			"src/test/resources/aprs-corpus.txt" };
+
+	private static final String LINE = "FLRDDDEAD>APRS,qAS,EDER:/114500h5029.86N/00956.98E'342/049/A=005524 !W12! id0ADDDEAD -454fpm -1.1rot 8.8dB 0e +51.2kHz gps4x5 hearD7EA hearDA95";
+
+	private final AprsLineParser parser = createLazyParser();
+
+	private static AprsLineParser createLazyParser() {
+		final AprsDecoderRegistry registry = new AprsDecoderRegistry(AprsDecoders.GENERIC);
+		for (final String dstcall : AprsDecoders.AIRCRAFT_DSTCALLS)
+			registry.register(dstcall, AprsDecoders.LAZY_AIRCRAFT);
+		return AprsLineParser.create(AprsLineParser.Mode.SCANNER, null, null, null, UtcTimestampResolver.getDefault(),
+				registry);
+	}
+
+	private static AprsAircraftBeacon parseEagerly(String line) {
+		return new AprsAircraftBeacon((AircraftBeacon) AprsLineParser.get(AprsLineParser.Mode.REGEX).parse(line));
+	}
+
+	@Test
+	public void testGetters() {
+		final OgnBeacon beacon = parser.parse(LINE);
+		assertTrue(beacon instanceof LazyAprsAircraftBeacon);
+
+		final AircraftBeacon lazy = (AircraftBeacon) beacon;
+		assertEquals("DDDEAD", lazy.getAddress());
+		assertEquals(0xDDDEAD, lazy.getAddressInt());
+		assertEquals(50.49768333, lazy.getLat(), 1e-6);
+		assertEquals(50497683, lazy.getLatMicroDegrees());
+		assertEquals(9.9497, lazy.getLon(), 1e-6);
+		assertEquals(9949700, lazy.getLonMicroDegrees());
+		assertEquals(AprsUtils.feetsToMetres(-454) / 60.0f, lazy.getClimbRate(), 1e-6);
+		assertEquals(51.2f, lazy.getFrequencyOffset(), 1e-6);
+		assertEquals("4x5", lazy.getGpsStatus());
+		assertArrayEquals(new String[] { "D7EA", "DA95" }, lazy.getHeardAircraftIds());
+
+		// memoized values are stable
+		assertEquals(lazy.getLat(), lazy.getLat(), 0);
+		assertEquals(lazy.getAddress(), lazy.getAddress());
+		lazy.getHeardAircraftIds()[0] = "XXXX";
+		assertEquals("D7EA", lazy.getHeardAircraftIds()[0]);
+
+		assertEquals(parseEagerly(LINE), ((LazyAprsAircraftBeacon) lazy).copy());
+	}
+
+	@Test
+	public void testCorpus() throws IOException {
+		for (final String file : CORPUS_FILES) {
+			for (final String line : Files.readAllLines(Paths.get(file))) {
+				final OgnBeacon beacon;
+				try {
+					beacon = parser.parse(line);
+				} catch (final RuntimeException ex) {
+					continue;
+				}
+				if (beacon instanceof LazyAprsAircraftBeacon) {
+					assertEquals(line, parseEagerly(line), ((LazyAprsAircraftBeacon) beacon).copy());
+				}
+
+				// the lines from a byte buffer must survive the buffer being overwritten
+				final byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+				final OgnBeacon fromBytes;
+				try {
+					fromBytes = parser.parse(bytes, 0, bytes.length);
+				} catch (final RuntimeException ex) {
+					continue;
+				}
+				if (fromBytes instanceof LazyAprsAircraftBeacon) {
+					Arrays.fill(bytes, (byte) 'x');
+					assertEquals(line, parseEagerly(line), ((LazyAprsAircraftBeacon) fromBytes).copy());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		final OgnBeacon beacon = parser.parse(LINE);
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(beacon);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			final AircraftBeacon copy = (AircraftBeacon) in.readObject();
+			assertTrue(copy instanceof AprsAircraftBeacon);
+			assertEquals(LINE, copy.getRawPacket());
+			assertEquals("DDDEAD", copy.getAddress());
+			assertEquals(((AircraftBeacon) beacon).getClimbRate(), copy.getClimbRate(), 0);
+		}
+	}
+}
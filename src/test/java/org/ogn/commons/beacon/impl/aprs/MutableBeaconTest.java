@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.beacon.impl.aprs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.OgnBeacon;
+import org.ogn.commons.beacon.ReceiverBeacon;
+import org.ogn.commons.beacon.ReceiverBeaconType;
+import org.ogn.commons.utils.JsonUtils;
+
+public class MutableBeaconTest {
+
+	private static final String[] CORPUS_FILES = { "src/test/java/org/ogn/commons/beacon/impl/valid_beacons.txt",
+			"src/test/resources/aprs-corpus.txt" };
+
+	private final AprsLineParser parser = AprsLineParser.get();
+
+	private static List<String> loadCorpus() throws IOException {
+		final List<String> lines = new ArrayList<>();
+		for (final String file : CORPUS_FILES) {
+			lines.addAll(Files.readAllLines(Paths.get(file)));
+		}
+		return lines;
+	}
+
+	@Test
+	public void testAircraft() {
+		final MutableAircraftBeacon target = new MutableAircraftBeacon();
+		final String line = "FLRDDDEAD>APRS,qAS,EDER:/114500h5029.86N/00956.98E'342/049/A=005524 id0ADDDEAD -454fpm -1.1rot 8.8dB 0e +51.2kHz gps4x5 hearD7EA hearDA95";
+
+		assertTrue(parser.parseInto(line, target));
+		assertEquals("FLRDDDEAD", target.getId());
+		assertEquals("EDER", target.getReceiverName());
+		assertEquals("DDDEAD", target.getAddress());
+		assertEquals("4x5", target.getGpsStatus());
+		assertEquals("", target.getOriginalAddress());
+		assertEquals(342, target.getTrack());
+		assertArrayEquals(new String[] { "D7EA", "DA95" }, target.getHeardAircraftIds());
+		assertEquals(line, target.getRawPacket());
+
+		final AircraftBeacon copy = target.copy();
+		assertEquals(parser.parse(line), copy);
+
+		// the target is overwritten, the copy is not
+		final String other = "ICA4B0E3A>APRS,qAS,Letzi:/072319h4711.75N\\00802.59E^327/149/A=006498 id154B0E3A -395fpm +0.0rot 19.0dB 0e -6.2kHz gps2x3";
+		assertTrue(parser.parseInto(other, target));
+		assertEquals("4B0E3A", target.getAddress());
+		assertEquals(0, target.getHeardAircraftIds().length);
+		assertEquals("DDDEAD", copy.getAddress());
+		assertEquals(parser.parse(other), target.copy());
+	}
+
+	@Test
+	public void testReceiver() {
+		final MutableReceiverBeacon target = new MutableReceiverBeacon();
+		final String status = "LKHS>APRS,TCPIP*,qAC,GLIDERN2:>211635h v0.2.6.ARM CPU:0.2 RAM:777.7/968.2MB NTP:3.1ms/-3.8ppm +33.6C RF:+62-0.8ppm/+33.66dB";
+
+		assertTrue(parser.parseInto(status, target));
+		assertEquals(ReceiverBeaconType.RECEIVER_STATUS, target.getReceiverBeaconType());
+		assertEquals("GLIDERN2", target.getServerName());
+		assertEquals("0.2.6", target.getVersion());
+		assertEquals("ARM", target.getPlatform());
+		assertEquals(62, target.getRecCrystalCorrection());
+		assertEquals(parser.parse(status), target.copy());
+
+		final String position = "LKHS>APRS,TCPIP*,qAC,GLIDERN2:/211635h4902.45NI01429.51E&000/000/A=001689";
+		assertTrue(parser.parseInto(position, target));
+		assertEquals(ReceiverBeaconType.RECEIVER_POSITION, target.getReceiverBeaconType());
+		assertEquals(Float.NaN, target.getCpuTemp(), 0);
+		assertEquals(parser.parse(position), target.copy());
+	}
+
+	@Test
+	public void testRejected() {
+		final MutableAircraftBeacon aircraft = new MutableAircraftBeacon();
+		final MutableReceiverBeacon receiver = new MutableReceiverBeacon();
+
+		assertFalse(parser.parseInto("# aprsc 2.1.4-g408ed49", aircraft));
+		assertFalse(parser.parseInto("# aprsc 2.1.4-g408ed49", receiver));
+		assertFalse(parser.parseInto(
+				"LKHS>APRS,TCPIP*,qAC,GLIDERN2:/211635h4902.45NI01429.51E&000/000/A=001689 CPU:0.2 RAM:777.7/968.2MB NTP:3.1ms/-3.8ppm",
+				aircraft));
+	}
+
+	@Test
+	public void testCorpus() throws IOException {
+		final MutableAircraftBeacon aircraft = new MutableAircraftBeacon();
+		final MutableReceiverBeacon receiver = new MutableReceiverBeacon();
+
+		for (final String line : loadCorpus()) {
+			final OgnBeacon expected;
+			try {
+				expected = parser.parse(line);
+			} catch (final RuntimeException ex) {
+				continue;
+			}
+
+			final byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+			final AsciiCharSequence seq = new AsciiCharSequence(bytes, 0, bytes.length);
+
+			assertEquals(line, expected instanceof AircraftBeacon, parser.parseInto(seq, aircraft));
+			assertEquals(line, expected instanceof ReceiverBeacon, parser.parseInto(seq, receiver));
+
+			if (expected instanceof AircraftBeacon) {
+				assertEquals(line, expected, aircraft.copy());
+				assertEquals(line, JsonUtils.toJson(expected), JsonUtils.toJson(aircraft.copy()));
+			} else if (expected instanceof ReceiverBeacon) {
+				assertEquals(line, expected, receiver.copy());
+				assertEquals(line, JsonUtils.toJson(expected), JsonUtils.toJson(receiver.copy()));
+			}
+		}
+	}
+}
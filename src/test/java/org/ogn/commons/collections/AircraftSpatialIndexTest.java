@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.ogn.commons.TestBeacons;
+import org.ogn.commons.TestBeacons.TestClock;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.collections.AircraftSpatialIndex.Position;
+
+public class AircraftSpatialIndexTest {
+
+	private static AircraftBeacon beacon(int address, int second, double lat, double lon) {
+		return TestBeacons.aircraft(address).at(second).position(lat, lon).feet(1000).build();
+	}
+
+	private static double distance(double lat1, double lon1, double lat2, double lon2) {
+		final double p1 = Math.toRadians(lat1);
+		final double p2 = Math.toRadians(lat2);
+		final double a = Math.pow(Math.sin((p2 - p1) / 2), 2)
+				+ Math.cos(p1) * Math.cos(p2) * Math.pow(Math.sin(Math.toRadians(lon2 - lon1) / 2), 2);
+		return 2 * 6371000 * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	private static Set<Integer> addresses(List<Position> positions) {
+		final Set<Integer> result = new TreeSet<>();
+		for (final Position position : positions)
+			assertTrue("duplicate", result.add(position.getAddress()));
+		return result;
+	}
+
+	@Test
+	public void testUpdateAndMove() {
+		final AircraftSpatialIndex index = new AircraftSpatialIndex();
+		assertTrue(index.update(beacon(0xDDE626, 3600, 51.1, -1.0)));
+		assertEquals(1, index.withinRadius(51.1, -1.0, 1000).size());
+
+		// moved to another cell
+		assertTrue(index.update(beacon(0xDDE626, 3601, 52.1, -1.0)));
+		assertTrue(index.withinRadius(51.1, -1.0, 1000).isEmpty());
+		assertEquals(1, index.withinRadius(52.1, -1.0, 1000).size());
+		assertEquals(52.1, index.get(0xDDE626).getLat(), 1e-6);
+
+		// an older beacon does not move it back
+		assertFalse(index.update(beacon(0xDDE626, 3599, 51.1, -1.0)));
+		assertEquals(52.1, index.get(0xDDE626).getLat(), 1e-6);
+
+		assertEquals(1, index.size());
+		assertTrue(index.remove(0xDDE626));
+		assertFalse(index.remove(0xDDE626));
+		assertNull(index.get(0xDDE626));
+		assertTrue(index.withinRadius(52.1, -1.0, 1000).isEmpty());
+		assertTrue(index.nearest(52.1, -1.0, 3).isEmpty());
+	}
+
+	@Test
+	public void testQueriesMatchLinearScan() {
+		final Random random = new Random(7);
+		for (final double cellSize : new double[] { 0.25, 0.7, 5 }) {
+			final AircraftSpatialIndex index = new AircraftSpatialIndex(cellSize, AircraftSpatialIndex.DEFAULT_MAX_AGE);
+			final List<AircraftBeacon> beacons = new ArrayList<>();
+			for (int i = 0; i < 2000; i++) {
+				// clustered around a few spots, some at the antimeridian and near the poles
+				final double[] spot = new double[][] { { 47, 8 }, { -33, -70 }, { 65, 179.9 }, { -88, 0 },
+						{ 0, 0 } }[i % 5];
+				final double lat = Math.max(-89.99, Math.min(89.99, spot[0] + random.nextGaussian() * 2));
+				double lon = spot[1] + random.nextGaussian() * 2;
+				lon = lon > 180 ? lon - 360 : lon < -180 ? lon + 360 : lon;
+				final AircraftBeacon beacon = beacon(i, 3600, lat, lon);
+				beacons.add(beacon);
+				index.accept(beacon);
+			}
+			assertEquals(2000, index.size());
+
+			for (int q = 0; q < 200; q++) {
+				final AircraftBeacon center = beacons.get(random.nextInt(beacons.size()));
+				final double lat = center.getLat() + random.nextGaussian() * 0.5;
+				final double lon = center.getLon() + random.nextGaussian() * 0.5;
+				final double radius = random.nextDouble() * 300_000;
+
+				final Set<Integer> expected = new TreeSet<>();
+				for (final AircraftBeacon beacon : beacons) {
+					if (distance(lat, lon, beacon.getLat(), beacon.getLon()) <= radius)
+						expected.add(beacon.getAddressInt());
+				}
+				assertEquals(expected, addresses(index.withinRadius(lat, lon, radius)));
+
+				final double south = lat - 1;
+				final double north = lat + 1;
+				final double west = lon - 2 < -180 ? lon + 358 : lon - 2;
+				final double east = lon + 2 > 180 ? lon - 358 : lon + 2;
+				expected.clear();
+				for (final AircraftBeacon beacon : beacons) {
+					final boolean inLon = west <= east ? beacon.getLon() >= west && beacon.getLon() <= east
+							: beacon.getLon() >= west || beacon.getLon() <= east;
+					if (inLon && beacon.getLat() >= south && beacon.getLat() <= north)
+						expected.add(beacon.getAddressInt());
+				}
+				assertEquals(expected, addresses(index.withinBox(south, west, north, east)));
+
+				final int k = 1 + random.nextInt(20);
+				final List<Double> expectedDistances = new ArrayList<>();
+				for (final AircraftBeacon beacon : beacons)
+					expectedDistances.add(distance(lat, lon, beacon.getLat(), beacon.getLon()));
+				expectedDistances.sort(null);
+				final List<Position> nearest = index.nearest(lat, lon, k);
+				assertEquals(k, nearest.size());
+				addresses(nearest);
+				for (int i = 0; i < k; i++) {
+					assertEquals(expectedDistances.get(i),
+							distance(lat, lon, nearest.get(i).getLat(), nearest.get(i).getLon()), 1e-3);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testExpiry() {
+		final TestClock clock = new TestClock();
+		final AircraftSpatialIndex index = new AircraftSpatialIndex(0.25, 1000, clock);
+		index.accept(beacon(1, 3600, 47, 8));
+		clock.millis = 600;
+		index.accept(beacon(2, 3600, 47.01, 8));
+
+		clock.millis = 1000;
+		assertNull(index.get(1));
+		assertNotNull(index.get(2));
+		assertEquals(1, index.withinRadius(47, 8, 10_000).size());
+		assertEquals(1, index.nearest(47, 8, 5).size());
+		assertEquals(2, index.size());
+
+		assertEquals(1, index.expire());
+		assertEquals(1, index.size());
+		clock.millis = 1600;
+		assertEquals(1, index.expire());
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	public void testQueriesDuringUpdates() throws InterruptedException {
+		final AircraftSpatialIndex index = new AircraftSpatialIndex(0.1, AircraftSpatialIndex.DEFAULT_MAX_AGE);
+		final int aircraft = 200;
+		final AircraftBeacon[][] beacons = new AircraftBeacon[aircraft][100];
+		for (int a = 0; a < aircraft; a++) {
+			for (int s = 0; s < beacons[a].length; s++)
+				// flying east through many cells
+				beacons[a][s] = beacon(a, 3600 + s, 47 + a * 0.001, 8 + s * 0.05);
+		}
+
+		final AtomicBoolean done = new AtomicBoolean();
+		final Throwable[] failure = new Throwable[1];
+		final Thread reader = new Thread(() -> {
+			while (!done.get()) {
+				// each aircraft at most once
+				addresses(index.withinBox(46, 7, 49, 14));
+				addresses(index.nearest(47.1, 10, 50));
+			}
+		});
+		reader.setUncaughtExceptionHandler((t, ex) -> failure[0] = ex);
+		reader.start();
+
+		final Thread[] writers = new Thread[4];
+		for (int w = 0; w < writers.length; w++) {
+			final int writer = w;
+			writers[w] = new Thread(() -> {
+				for (int s = 0; s < 100; s++) {
+					for (int a = writer; a < aircraft; a += writers.length)
+						index.accept(beacons[a][s]);
+				}
+			});
+			writers[w].start();
+		}
+		for (final Thread writer : writers)
+			writer.join();
+		done.set(true);
+		reader.join();
+
+		if (failure[0] != null)
+			throw new AssertionError(failure[0]);
+		assertEquals(aircraft, index.withinBox(46, 7, 49, 14).size());
+		assertEquals(aircraft, index.withinRadius(47.1, 12.95, 20_000).size());
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.ogn.commons.TestBeacons;
+import org.ogn.commons.TestBeacons.TestClock;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.AircraftType;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser;
+
+public class AircraftStateTableTest {
+
+	private final AprsLineParser parser = AprsLineParser.get();
+
+	/**
+	 * @return a beacon of the aircraft at the given second of the day, with the altitude and the latitude derived
+	 *         from the second
+	 */
+	private static AircraftBeacon beacon(int address, int second) {
+		return TestBeacons.aircraft(address).at(second)
+				.position(51 + (second / 100 % 60 + second % 100 / 100.0) / 60, -(1 + 2.04 / 60)).feet(second)
+				.comment("-019fpm +0.0rot 5.5dB").build();
+	}
+
+	@Test
+	public void testUpdate() {
+		final AircraftStateTable table = new AircraftStateTable();
+
+		final AircraftBeacon first = beacon(0xDDE626, 3600);
+		assertTrue(table.update(first));
+		final AircraftStateTable.State state = table.get(0xDDE626);
+		assertNotNull(state);
+		assertEquals(0xDDE626, state.getAddress());
+		assertEquals(first.getLat(), state.getLat(), 1e-6);
+		assertEquals(first.getLon(), state.getLon(), 1e-6);
+		assertEquals(first.getAlt(), state.getAlt(), 0);
+		assertEquals(86, state.getTrack());
+		assertEquals(first.getGroundSpeed(), state.getGroundSpeed(), 0);
+		assertEquals(first.getClimbRate(), state.getClimbRate(), 0);
+		assertEquals(AircraftType.GLIDER, state.getAircraftType());
+		assertEquals(first.getTimestamp(), state.getTimestamp());
+
+		// a newer beacon replaces the state, a copy or an older one does not
+		final AircraftBeacon second = beacon(0xDDE626, 3601);
+		assertTrue(table.update(second));
+		assertFalse(table.update(beacon(0xDDE626, 3601)));
+		assertFalse(table.update(first));
+		assertEquals(second.getTimestamp(), table.get(0xDDE626).getTimestamp());
+		assertEquals(second.getAlt(), table.get(0xDDE626).getAlt(), 0);
+
+		assertNull(table.get(0xDDE627));
+		assertEquals(1, table.size());
+		assertEquals(2, table.getUpdates());
+		assertEquals(2, table.getIgnored());
+
+		// no hex address
+		table.accept((AircraftBeacon) parser.parse(
+				"E95AM6>OGFLR,qAS,EGHL:/074548h5111.32N/00102.04W'086/007/A=000607 id06E95AM6 -019fpm +0.0rot"));
+		assertEquals(1, table.size());
+		assertEquals(3, table.getIgnored());
+
+		table.clear();
+		assertEquals(0, table.size());
+		assertNull(table.get(0xDDE626));
+	}
+
+	@Test
+	public void testSnapshot() {
+		final AircraftStateTable table = new AircraftStateTable();
+		final Map<Integer, AircraftBeacon> beacons = new HashMap<>();
+		for (int address = 0; address < 3000; address++) {
+			final AircraftBeacon beacon = beacon(address * 4099 & 0xFFFFFF, 7200 + address);
+			beacons.put(beacon.getAddressInt(), beacon);
+			table.accept(beacon);
+		}
+
+		assertEquals(3000, table.size());
+		final AircraftStateTable.Snapshot snapshot = table.snapshot();
+		assertEquals(3000, snapshot.size());
+		for (int i = 0; i < snapshot.size(); i++) {
+			final AircraftBeacon beacon = beacons.remove(snapshot.getAddress(i));
+			assertNotNull(beacon);
+			assertEquals(beacon.getLatMicroDegrees(), snapshot.getLatMicroDegrees(i));
+			assertEquals(beacon.getLonMicroDegrees(), snapshot.getLonMicroDegrees(i));
+			assertEquals(beacon.getAlt(), snapshot.getAlt(i), 0);
+			assertEquals(beacon.getTimestamp(), snapshot.getTimestamp(i));
+		}
+		assertTrue(beacons.isEmpty());
+	}
+
+	@Test
+	public void testExpiry() {
+		final TestClock clock = new TestClock();
+		final AircraftStateTable table = new AircraftStateTable(1000, clock);
+
+		// the odd aircraft are heard of again later
+		for (int address = 0; address < 1000; address++)
+			table.accept(beacon(address, 3600));
+		clock.millis = 600;
+		for (int address = 1; address < 1000; address += 2)
+			table.accept(beacon(address, 3601));
+
+		clock.millis = 1000;
+		assertNull(table.get(0));
+		assertNotNull(table.get(1));
+		assertEquals(500, table.snapshot().size());
+		assertEquals(1000, table.size());
+
+		assertEquals(500, table.expire());
+		assertEquals(500, table.size());
+		for (int address = 0; address < 1000; address++)
+			assertEquals(address % 2 == 1, table.get(address) != null);
+
+		clock.millis = 1600;
+		assertEquals(500, table.expire());
+		assertEquals(0, table.size());
+	}
+
+	@Test
+	public void testConsistentRowsUnderConcurrentUpdates() throws InterruptedException {
+		final AircraftStateTable table = new AircraftStateTable();
+		final int aircraft = 8;
+		final int seconds = 2000;
+
+		// the altitude of every beacon, by its time
+		final AircraftBeacon[][] beacons = new AircraftBeacon[aircraft][seconds];
+		final Map<Long, Float> altitudes = new HashMap<>();
+		final Map<Long, Integer> latitudes = new HashMap<>();
+		for (int a = 0; a < aircraft; a++) {
+			for (int s = 0; s < seconds; s++) {
+				beacons[a][s] = beacon(0x100000 + a, 7200 + s);
+				altitudes.put(beacons[a][s].getTimestamp(), beacons[a][s].getAlt());
+				latitudes.put(beacons[a][s].getTimestamp(), beacons[a][s].getLatMicroDegrees());
+			}
+		}
+
+		final AtomicBoolean done = new AtomicBoolean();
+		final Thread[] writers = new Thread[4];
+		for (int w = 0; w < writers.length; w++) {
+			final int writer = w;
+			writers[w] = new Thread(() -> {
+				for (int s = 0; s < seconds; s++) {
+					for (int a = writer; a < aircraft; a += writers.length)
+						table.accept(beacons[a][s]);
+				}
+			});
+			writers[w].start();
+		}
+
+		final Thread reader = new Thread(() -> {
+			while (!done.get()) {
+				final AircraftStateTable.Snapshot snapshot = table.snapshot();
+				for (int i = 0; i < snapshot.size(); i++) {
+					final long timestamp = snapshot.getTimestamp(i);
+					assertEquals(altitudes.get(timestamp), snapshot.getAlt(i), 0);
+					assertEquals(latitudes.get(timestamp).intValue(), snapshot.getLatMicroDegrees(i));
+				}
+			}
+		});
+		final Throwable[] failure = new Throwable[1];
+		reader.setUncaughtExceptionHandler((t, ex) -> failure[0] = ex);
+		reader.start();
+
+		for (final Thread writer : writers)
+			writer.join();
+		done.set(true);
+		reader.join();
+
+		if (failure[0] != null)
+			throw new AssertionError(failure[0]);
+		for (int a = 0; a < aircraft; a++)
+			assertEquals(beacons[a][seconds - 1].getTimestamp(), table.get(0x100000 + a).getTimestamp());
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.ogn.commons.TestBeacons;
+import org.ogn.commons.TestBeacons.TestClock;
+import org.ogn.commons.beacon.AircraftBeacon;
+
+public class AircraftTrackStoreTest {
+
+	/**
+	 * @return the beacons of a flight of the given length (s) starting at 02:00, every 1 - 4 s
+	 */
+	private List<AircraftBeacon> flight(int address, int seconds, Random random) {
+		final List<AircraftBeacon> result = new ArrayList<>();
+		double lat = 47;
+		double lon = 8;
+		double heading = random.nextDouble() * 2 * Math.PI;
+		int feet = 3000;
+		for (int second = 7200; second < 7200 + seconds; second += 1 + random.nextInt(4)) {
+			heading += random.nextGaussian() * 0.1;
+			// about 100 km/h
+			lat += Math.cos(heading) * 0.00025;
+			lon += Math.sin(heading) * 0.00037;
+			feet = Math.max(0, feet + (int) (random.nextGaussian() * 10));
+			result.add(TestBeacons.aircraft(address).at(second).position(lat, lon).precise().feet(feet).build());
+		}
+		return result;
+	}
+
+	private static void assertFix(AircraftBeacon beacon, AircraftTrackStore.Track track, int index) {
+		assertEquals(beacon.getTimestamp(), track.getTimestamp(index));
+		assertEquals(beacon.getLatMicroDegrees(), track.getLatMicroDegrees(index));
+		assertEquals(beacon.getLonMicroDegrees(), track.getLonMicroDegrees(index));
+		assertEquals(beacon.getAlt(), track.getAlt(index), 0.05);
+	}
+
+	@Test
+	public void testAppendAndDecode() {
+		final TestClock clock = new TestClock();
+		final AircraftTrackStore store = new AircraftTrackStore(AircraftTrackStore.DEFAULT_MAX_AGE, clock);
+		final List<AircraftBeacon> beacons = flight(0xDDE626, 3 * 3600, new Random(5));
+		clock.millis = beacons.get(beacons.size() - 1).getTimestamp();
+		for (final AircraftBeacon beacon : beacons)
+			assertTrue(store.append(beacon));
+		assertEquals(beacons.size(), store.getFixes());
+		assertEquals(1, store.size());
+
+		// a copy and an older beacon
+		assertFalse(store.append(beacons.get(beacons.size() - 1)));
+		assertFalse(store.append(beacons.get(10)));
+		assertEquals(2, store.getIgnored());
+
+		// single-digit bytes per fix
+		assertTrue(store.getBytes() + " bytes", store.getBytes() < beacons.size() * 8);
+
+		final AircraftTrackStore.Track track = store.get(0xDDE626);
+		assertEquals(0xDDE626, track.getAddress());
+		assertEquals(beacons.size(), track.size());
+		for (int i = 0; i < beacons.size(); i++)
+			assertFix(beacons.get(i), track, i);
+
+		// a time range, across the chunks
+		final long from = beacons.get(1000).getTimestamp();
+		final long to = beacons.get(3000).getTimestamp();
+		final AircraftTrackStore.Track range = store.get(0xDDE626, from - 1, to);
+		assertEquals(2001, range.size());
+		for (int i = 0; i < range.size(); i++)
+			assertFix(beacons.get(1000 + i), range, i);
+		assertEquals(0, store.get(0xDDE626, Long.MIN_VALUE, beacons.get(0).getTimestamp() - 1).size());
+
+		assertNull(store.get(0xDDE627));
+		assertTrue(store.remove(0xDDE626));
+		assertFalse(store.remove(0xDDE626));
+		assertEquals(0, store.getFixes());
+		assertEquals(0, store.getBytes());
+	}
+
+	@Test
+	public void testExpiry() {
+		final TestClock clock = new TestClock();
+		final AircraftTrackStore store = new AircraftTrackStore(3600_000, clock);
+		final Random random = new Random(9);
+		final List<AircraftBeacon> longFlight = flight(1, 3 * 3600, random);
+		final List<AircraftBeacon> shortFlight = flight(2, 600, random);
+		longFlight.forEach(store);
+		shortFlight.forEach(store);
+		final long end = longFlight.get(longFlight.size() - 1).getTimestamp();
+		clock.millis = end;
+
+		// the queries return the last hour only
+		final AircraftTrackStore.Track track = store.get(1);
+		assertTrue(track.getTimestamp(0) >= end - 3600_000);
+		assertTrue(track.getTimestamp(0) - end + 3600_000 < 5000);
+		assertEquals(end, track.getTimestamp(track.size() - 1));
+		assertEquals(0, store.get(2).size());
+
+		// whole chunks are dropped, the one holding the first fix of the last hour is kept
+		final long fixes = store.getFixes();
+		final long bytes = store.getBytes();
+		final int dropped = store.expire();
+		assertTrue(dropped >= shortFlight.size());
+		assertEquals(fixes - dropped, store.getFixes());
+		assertTrue(store.getBytes() < bytes);
+		assertTrue(store.getFixes() >= track.size());
+		assertEquals(track.size(), store.get(1).size());
+		assertNull(store.get(2));
+		assertEquals(1, store.size());
+
+		clock.millis = end + 3600_001;
+		store.expire();
+		assertEquals(0, store.size());
+		assertEquals(0, store.getFixes());
+		assertEquals(0, store.getBytes());
+	}
+
+	@Test
+	public void testConcurrentAppends() throws InterruptedException {
+		final TestClock clock = new TestClock();
+		final AircraftTrackStore store = new AircraftTrackStore(AircraftTrackStore.DEFAULT_MAX_AGE, clock);
+		final List<List<AircraftBeacon>> flights = new ArrayList<>();
+		final Random random = new Random(13);
+		for (int address = 0; address < 8; address++)
+			flights.add(flight(address, 1800, random));
+		clock.millis = flights.get(0).get(0).getTimestamp();
+
+		// every beacon is appended by two threads, only one of them succeeds
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int first = t % 2;
+			threads[t] = new Thread(() -> {
+				for (int address = first; address < flights.size(); address += 2) {
+					for (final AircraftBeacon beacon : flights.get(address)) {
+						store.accept(beacon);
+						if (beacon.getTimestamp() % 100_000 == 0)
+							store.get(beacon.getAddressInt());
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (final Thread thread : threads)
+			thread.join();
+
+		long total = 0;
+		for (int address = 0; address < flights.size(); address++) {
+			final List<AircraftBeacon> beacons = flights.get(address);
+			final AircraftTrackStore.Track track = store.get(address);
+			assertEquals(beacons.size(), track.size());
+			for (int i = 0; i < beacons.size(); i++)
+				assertFix(beacons.get(i), track, i);
+			total += beacons.size();
+		}
+		assertEquals(total, store.getFixes());
+		assertEquals(total, store.getIgnored());
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+import org.ogn.commons.TestBeacons;
+import org.ogn.commons.beacon.AircraftBeacon;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser;
+import org.ogn.commons.utils.AprsUtils;
+
+public class ReceiverCoverageMapTest {
+
+	private static final String RECEIVER = "Albertvil>APRS,TCPIP*,qAC,GLIDERN2:/153724h4539.76NI00620.80E&/A=001246";
+	private static final double RECEIVER_LAT = 45 + 39.76 / 60;
+	private static final double RECEIVER_LON = 6 + 20.80 / 60;
+
+	private final AprsLineParser parser = AprsLineParser.get();
+
+	private static AircraftBeacon beacon(String receiver, boolean relayed, int address, double lat, double lon,
+			double signal) {
+		return TestBeacons.aircraft(address).dstcall("APRS").relayedBy(relayed ? "OGN035E35" : null)
+				.receiver(receiver).at(15 * 3600 + 37 * 60 + 25).position(lat, lon).feet(3000)
+				.comment(String.format(Locale.ROOT, "-019fpm +0.0rot %.1fdB", signal)).build();
+	}
+
+	@Test
+	public void testCoverage() {
+		final ReceiverCoverageMap map = new ReceiverCoverageMap(0.1, ReceiverCoverageMap.DEFAULT_MAX_CELLS);
+
+		// the position of the receiver is not known yet
+		assertFalse(map.update(beacon("Albertvil", false, 1, 45.8, 6.5, 10)));
+		assertNull(map.snapshot("Albertvil"));
+
+		map.accept(parser.parse(RECEIVER));
+		assertEquals(1, map.getReceivers());
+
+		// two in one cell, one in another
+		assertTrue(map.update(beacon("Albertvil", false, 1, 45.82, 6.52, 10)));
+		assertTrue(map.update(beacon("Albertvil", false, 2, 45.86, 6.56, 15.5)));
+		assertTrue(map.update(beacon("Albertvil", false, 3, 45.5, 6.1, 3)));
+		// relayed, heard by another receiver, bogus range
+		assertFalse(map.update(beacon("Albertvil", true, 4, 45.7, 6.5, 20)));
+		assertFalse(map.update(beacon("Lachens", false, 5, 45.7, 6.5, 20)));
+		assertFalse(map.update(beacon("Albertvil", false, 6, 60, 30, 20)));
+
+		assertEquals(7, map.getAircraftBeacons());
+		assertEquals(4, map.getIgnored());
+		assertEquals(0, map.getDropped());
+		assertEquals(2, map.getCells());
+
+		final ReceiverCoverageMap.Coverage coverage = map.snapshot("Albertvil");
+		assertEquals("Albertvil", coverage.getReceiverName());
+		assertEquals(RECEIVER_LAT, coverage.getLat(), 1e-6);
+		assertEquals(RECEIVER_LON, coverage.getLon(), 1e-6);
+		assertEquals(2, coverage.size());
+		assertEquals(3, coverage.getCount());
+
+		// from the south-west
+		assertEquals(45.5, coverage.getCellLat(0), 1e-6);
+		assertEquals(6.1, coverage.getCellLon(0), 1e-6);
+		assertEquals(1, coverage.getCount(0));
+		assertEquals(3, coverage.getBestSignal(0), 1e-6);
+		assertEquals(AprsUtils.haversineDistance(RECEIVER_LAT, RECEIVER_LON, 45.5, 6.1), coverage.getMaxRange(0),
+				10);
+
+		assertEquals(45.8, coverage.getCellLat(1), 1e-6);
+		assertEquals(6.5, coverage.getCellLon(1), 1e-6);
+		assertEquals(2, coverage.getCount(1));
+		assertEquals(15.5, coverage.getBestSignal(1), 1e-6);
+		assertEquals(AprsUtils.haversineDistance(RECEIVER_LAT, RECEIVER_LON, 45.86, 6.56), coverage.getMaxRange(1),
+				10);
+		assertEquals(coverage.getMaxRange(1), coverage.getMaxRange(), 0);
+
+		// a long range is the haversine distance
+		assertTrue(map.update(beacon("Albertvil", false, 7, 51.5, 14.5, 1)));
+		assertEquals(AprsUtils.haversineDistance(RECEIVER_LAT, RECEIVER_LON, 51.5, 14.5),
+				map.snapshot("Albertvil").getMaxRange(), 0.1);
+
+		assertEquals(1, map.snapshot().size());
+		assertTrue(map.remove("Albertvil"));
+		assertFalse(map.remove("Albertvil"));
+		assertEquals(0, map.getCells());
+		assertTrue(map.snapshot().isEmpty());
+	}
+
+	@Test
+	public void testBudget() {
+		final ReceiverCoverageMap map = new ReceiverCoverageMap(0.01, 100);
+		map.accept(parser.parse(RECEIVER));
+		map.updateReceiver("Lachens", 43.745, 6.653);
+
+		for (int i = 0; i < 150; i++)
+			map.update(beacon("Albertvil", false, i, 45 + i * 0.01, 6.005, 5));
+		assertEquals(100, map.getCells());
+		assertEquals(50, map.getDropped());
+		assertEquals(100, map.snapshot("Albertvil").size());
+
+		// the cells already there are still updated, no new ones anywhere
+		assertTrue(map.update(beacon("Albertvil", false, 1, 45.005, 6.005, 5)));
+		assertFalse(map.update(beacon("Lachens", false, 1, 43.5, 6.5, 5)));
+		assertEquals(51, map.getDropped());
+		assertEquals(2, map.snapshot("Albertvil").getCount(0));
+
+		// removing a receiver frees its cells
+		map.remove("Albertvil");
+		assertTrue(map.update(beacon("Lachens", false, 1, 43.5, 6.5, 5)));
+		assertEquals(1, map.getCells());
+
+		map.clear();
+		assertEquals(0, map.getCells());
+		assertEquals(0, map.getReceivers());
+	}
+
+	@Test
+	public void testConcurrentUpdates() throws InterruptedException {
+		final ReceiverCoverageMap map = new ReceiverCoverageMap(0.05, 2000);
+		final String[] receivers = { "Albertvil", "Lachens", "Letzi" };
+		for (int r = 0; r < receivers.length; r++)
+			map.updateReceiver(receivers[r], 45 + r, 6);
+
+		final int beacons = 3000;
+		final AircraftBeacon[][] perThread = new AircraftBeacon[4][beacons];
+		final Random random = new Random(11);
+		for (final AircraftBeacon[] thread : perThread) {
+			for (int i = 0; i < beacons; i++) {
+				final int r = random.nextInt(receivers.length);
+				thread[i] = beacon(receivers[r], false, i, 45 + r + random.nextDouble(), 6 + random.nextDouble(),
+						random.nextInt(20));
+			}
+		}
+
+		final Thread[] threads = new Thread[perThread.length];
+		for (int t = 0; t < threads.length; t++) {
+			final AircraftBeacon[] thread = perThread[t];
+			threads[t] = new Thread(() -> {
+				for (final AircraftBeacon beacon : thread) {
+					map.accept(beacon);
+					if (beacon.getAddressInt() % 500 == 0)
+						map.snapshot();
+				}
+			});
+			threads[t].start();
+		}
+		for (final Thread thread : threads)
+			thread.join();
+
+		long count = 0;
+		int cells = 0;
+		for (final ReceiverCoverageMap.Coverage coverage : map.snapshot()) {
+			count += coverage.getCount();
+			cells += coverage.size();
+		}
+		assertEquals(perThread.length * beacons, map.getAircraftBeacons());
+		assertEquals(0, map.getIgnored());
+		assertEquals(perThread.length * beacons, count + map.getDropped());
+		assertEquals(map.getCells(), cells);
+		assertTrue(cells <= 2000);
+	}
+}
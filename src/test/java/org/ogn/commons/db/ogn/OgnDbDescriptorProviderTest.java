@@ -5,6 +5,7 @@
 package org.ogn.commons.db.ogn;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -31,6 +32,11 @@ public class OgnDbDescriptorProviderTest {
 
 		assertEquals("F-CLMT", desc.get().getRegNumber());
 
+		desc = provider.findDescriptor(0xDD83CE);
+		assertTrue(desc.isPresent());
+		assertEquals("F-CLMT", desc.get().getRegNumber());
+		assertFalse(provider.findDescriptor(0x000001).isPresent());
+
 	}
 
 }
@@ -104,6 +104,17 @@ public class OgnDbTest {
 		t2.join();
 	}
 
+	@Test
+	public void testIdCase() throws Exception {
+		final OgnDb ogndb = new OgnDb("src/test/resources/ogn-ddb.txt");
+		ogndb.reload();
+
+		// the ids match exactly, the int addresses do not depend on the case the id is written in
+		assertTrue(ogndb.getDescriptor("DD4E9C").isPresent());
+		assertFalse(ogndb.getDescriptor("dd4e9c").isPresent());
+		assertEquals("G-DGIO", ogndb.getDescriptor(0xDD4E9C).get().getRegNumber());
+	}
+
 	@Test
 	public void testMalformedUrl() throws Exception {
 		final OgnDb ogndb = new OgnDb("http/live.glidernet.org/db/download");
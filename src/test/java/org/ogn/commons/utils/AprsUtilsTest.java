@@ -13,6 +13,7 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Random;
 import java.util.TimeZone;
 
 import org.junit.Test;
@@ -56,6 +57,20 @@ public class AprsUtilsTest {
 		assertEquals(111194.926, AprsUtils.degToMeters(1.0f), 0.01);
 	}
 
+	@Test
+	public void testAprsToMicroDegrees() {
+		assertEquals(50497683, AprsUtils.aprsToMicroDegrees("5029.86N", 0, 2, 1));
+		assertEquals(9949700, AprsUtils.aprsToMicroDegrees("/00956.98E", 1, 3, 2));
+		assertEquals(0, AprsUtils.aprsToMicroDegrees("0000.00", 0, 2, 0));
+		assertEquals(180000000, AprsUtils.aprsToMicroDegrees("18000.00", 0, 3, 0));
+		assertEquals(89999983, AprsUtils.aprsToMicroDegrees("8959.99", 0, 2, 9));
+
+		// the same as the floating point conversion, up to the micro-degree rounding
+		assertEquals(AprsUtils.dmsToDeg(4415.41 / 100), AprsUtils.microDegreesToDeg(
+				AprsUtils.aprsToMicroDegrees("4415.41", 0, 2, 0)), 1e-6);
+		assertEquals(44256833, AprsUtils.degToMicroDegrees(AprsUtils.microDegreesToDeg(44256833)));
+	}
+
 	@Test
 	public void testDegToDms() {
 		double lat = 51.179500000000004;
@@ -143,4 +158,83 @@ public class AprsUtilsTest {
 		distKm = AprsUtils.calcDistanceInKm(lat1, lon1, lat2, lon2);
 		assertEquals(102.5, distKm, 0.1);
 	}
+
+	@Test
+	public void testAddress() {
+		assertEquals(0xDD4E9C, AprsUtils.parseAddress("DD4E9C"));
+		assertEquals(0xDD4E9C, AprsUtils.parseAddress("dd4e9c"));
+		assertEquals(0, AprsUtils.parseAddress("000000"));
+		assertEquals(0x3D1234, AprsUtils.parseAddress("FLR3D1234", 3, 9));
+		assertEquals(-1, AprsUtils.parseAddress("DD4E9"));
+		assertEquals(-1, AprsUtils.parseAddress("DD4E9CA"));
+		assertEquals(-1, AprsUtils.parseAddress("DD4E9G"));
+		assertEquals(-1, AprsUtils.parseAddress("some-not-existing"));
+		assertEquals(-1, AprsUtils.parseAddress(null));
+
+		assertEquals("DD4E9C", AprsUtils.formatAddress(0xDD4E9C));
+		assertEquals("00012A", AprsUtils.formatAddress(0x12A));
+	}
+
+	@Test
+	public void testGeodesy() {
+		// same point: no NaN from rounding
+		assertEquals(0, AprsUtils.calcDistance(47.123456, 8.654321, 47.123456, 8.654321), 0);
+		// a short distance (~1.1 m north)
+		assertEquals(1.112, AprsUtils.haversineDistance(47, 8, 47.00001, 8), 0.001);
+		// a quarter of the meridian
+		assertEquals(Math.PI / 2 * AprsUtils.EARTH_RADIUS, AprsUtils.haversineDistance(0, 0, 90, 0), 1e-6);
+		// across the antimeridian
+		assertEquals(AprsUtils.haversineDistance(0, -1, 0, 1), AprsUtils.haversineDistance(0, 179, 0, -179), 1e-6);
+		assertEquals(AprsUtils.haversineDistance(0, -1, 0, 1), AprsUtils.equirectangularDistance(0, 179, 0, -179),
+				1e-6);
+
+		assertEquals(0, AprsUtils.bearing(47, 8, 48, 8), 1e-9);
+		assertEquals(90, AprsUtils.bearing(0, 8, 0, 9), 1e-9);
+		assertEquals(180, AprsUtils.bearing(47, 8, 46, 8), 1e-9);
+		assertEquals(270, AprsUtils.bearing(0, -179.5, 0, 179.5), 1e-9);
+
+		final Random random = new Random(3);
+		for (int i = 0; i < 10_000; i++) {
+			final double lat1 = random.nextDouble() * 140 - 70;
+			final double lon1 = random.nextDouble() * 360 - 180;
+			final double lat2 = Math.max(-70, Math.min(70, lat1 + random.nextGaussian() * 0.3));
+			final double lon2 = lon1 + random.nextGaussian() * 0.3;
+
+			final double distance = AprsUtils.haversineDistance(lat1, lon1, lat2, lon2);
+			final AprsUtils.ReferencePoint reference = new AprsUtils.ReferencePoint(lat1, lon1);
+			assertEquals(distance, reference.distance(lat2, lon2), 1e-6);
+			assertEquals(AprsUtils.bearing(lat1, lon1, lat2, lon2), reference.bearing(lat2, lon2), 1e-9);
+
+			// the documented bounds of the approximation
+			final double bound = distance <= 100_000 ? 1e-4 : 2e-3;
+			assertEquals(distance, AprsUtils.equirectangularDistance(lat1, lon1, lat2, lon2), distance * bound);
+			assertEquals(distance, reference.fastDistance(lat2, lon2), distance * bound);
+		}
+	}
+
+	@Test
+	public void testGeodesyBatch() {
+		final Random random = new Random(5);
+		final int count = 1000;
+		final double[] lats = new double[count + 3];
+		final double[] lons = new double[count + 3];
+		for (int i = 0; i < count; i++) {
+			lats[i] = 47 + random.nextGaussian();
+			lons[i] = 8 + random.nextGaussian();
+		}
+
+		final double[] distances = new double[count + 3];
+		final double[] fastDistances = new double[count + 3];
+		AprsUtils.haversineDistances(47.5, 8.5, lats, lons, distances, count);
+		AprsUtils.equirectangularDistances(47.5, 8.5, lats, lons, fastDistances, count);
+
+		final AprsUtils.ReferencePoint reference = new AprsUtils.ReferencePoint(47.5, 8.5);
+		for (int i = 0; i < count; i++) {
+			assertEquals(AprsUtils.haversineDistance(47.5, 8.5, lats[i], lons[i]), distances[i], 1e-6);
+			assertEquals(reference.fastDistance(lats[i], lons[i]), fastDistances[i], 1e-6);
+		}
+		// nothing written past the count
+		assertEquals(0, distances[count], 0);
+		assertEquals(0, fastDistances[count], 0);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntObjectHashMapTest {
+
+	@Test
+	public void testPutAndGet() {
+		final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(0xDD4E9C));
+
+		assertNull(map.put(0xDD4E9C, "D-KTEST"));
+		assertNull(map.put(0, "zero"));
+		assertEquals("D-KTEST", map.put(0xDD4E9C, "D-KNEW"));
+
+		assertEquals(2, map.size());
+		assertEquals("D-KNEW", map.get(0xDD4E9C));
+		assertEquals("zero", map.get(0));
+		assertTrue(map.containsKey(0));
+		assertFalse(map.containsKey(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullValue() {
+		new IntObjectHashMap<String>().put(1, null);
+	}
+
+	@Test
+	public void testResizeAndCopy() {
+		final Random random = new Random(42);
+		final Map<Integer, Integer> expected = new HashMap<>();
+		final IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+		for (int i = 0; i < 20000; i++) {
+			final int key = random.nextInt(1 << 24);
+			expected.put(key, i);
+			map.put(key, i);
+		}
+		assertEquals(expected.size(), map.size());
+
+		final IntObjectHashMap<Integer> copy = new IntObjectHashMap<>(map);
+		copy.put(-1, -1);
+		assertFalse(map.containsKey(-1));
+
+		for (final Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), map.get(entry.getKey()));
+			assertEquals(entry.getValue(), copy.get(entry.getKey()));
+		}
+	}
+}
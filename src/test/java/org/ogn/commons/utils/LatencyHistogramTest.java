@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testBuckets() {
+		// exact below 64
+		for (long v = 0; v < 64; v++) {
+			assertEquals(v, LatencyHistogram.highestValue(LatencyHistogram.index(v)));
+		}
+
+		final Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			final long v = random.nextLong() >>> (1 + random.nextInt(63));
+			final long highest = LatencyHistogram.highestValue(LatencyHistogram.index(v));
+			assertTrue(v + " " + highest, highest >= v);
+			assertTrue(v + " " + highest, highest - v <= v / 32);
+		}
+
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.index(Long.MAX_VALUE)));
+	}
+
+	@Test
+	public void testPercentiles() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		assertEquals(0, histogram.getMean(), 0);
+
+		for (int v = 1; v <= 10_000; v++) {
+			histogram.record(v);
+		}
+
+		assertEquals(10_000, histogram.getCount());
+		assertEquals(10_000, histogram.getMax());
+		assertEquals(5000.5, histogram.getMean(), 1e-9);
+		assertEquals(5000, histogram.getValueAtPercentile(50), 5000 / 32);
+		assertEquals(9900, histogram.getValueAtPercentile(99), 9900 / 32);
+		assertEquals(1, histogram.getValueAtPercentile(0));
+		assertEquals(10_000, histogram.getValueAtPercentile(100));
+
+		final LatencyHistogram.Summary summary = histogram.getSummary();
+		assertEquals(10_000, summary.getCount());
+		assertEquals(histogram.getValueAtPercentile(99.9), summary.getP999());
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getValueAtPercentile(50));
+	}
+
+	@Test
+	public void testConcurrentRecording() throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 50_000; i++) {
+					histogram.record(i % 1000);
+				}
+			});
+			threads[t].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(200_000, histogram.getCount());
+		assertEquals(999, histogram.getMax());
+		assertEquals(499.5, histogram.getMean(), 1e-9);
+	}
+}
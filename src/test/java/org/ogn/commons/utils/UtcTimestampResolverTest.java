@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2018 OGN, All Rights Reserved.
+ */
+
+package org.ogn.commons.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+import org.ogn.commons.beacon.impl.aprs.AprsLineParser;
+import org.ogn.commons.beacon.impl.aprs.MutableAircraftBeacon;
+
+public class UtcTimestampResolverTest {
+
+	private static long at(String dateTime) {
+		return Instant.parse(dateTime).toEpochMilli();
+	}
+
+	private static UtcTimestampResolver resolverAt(String dateTime) {
+		return new UtcTimestampResolver(Clock.fixed(Instant.parse(dateTime), ZoneOffset.UTC));
+	}
+
+	@Test
+	public void testSameDay() {
+		final UtcTimestampResolver resolver = resolverAt("2016-10-05T11:12:33Z");
+		assertEquals(at("2016-10-05T11:12:33Z"), resolver.resolve(11, 12, 33));
+		assertEquals(at("2016-10-05T00:00:00Z"), resolver.resolve(0, 0, 0));
+		assertEquals(at("2016-10-05T23:59:59Z"), resolver.resolve(23, 59, 59));
+		assertEquals(AprsUtils.toUtcTimestamp(LocalDate.of(2016, 10, 5), 6, 23, 44), resolver.resolve(6, 23, 44));
+	}
+
+	@Test
+	public void testRollover() {
+		// stamped before midnight, seen after it
+		assertEquals(at("2016-12-31T23:59:58Z"), resolverAt("2017-01-01T00:00:03Z").resolve(23, 59, 58));
+		// stamped after midnight, seen before it
+		assertEquals(at("2017-01-01T00:00:02Z"), resolverAt("2016-12-31T23:59:59Z").resolve(0, 0, 2));
+		// outside of the window the reference date is kept
+		assertEquals(at("2017-01-01T22:00:00Z"), resolverAt("2017-01-01T00:30:00Z").resolve(22, 0, 0));
+		assertEquals(at("2016-12-31T01:30:00Z"), resolverAt("2016-12-31T23:30:00Z").resolve(1, 30, 0));
+	}
+
+	@Test
+	public void testReplay() {
+		final UtcTimestampResolver resolver = new UtcTimestampResolver(Clock.systemUTC(), 0);
+		assertEquals(at("2016-10-05T11:12:33Z"), resolver.resolve(11, 12, 33, at("2016-10-05T18:00:00Z")));
+		assertEquals(at("2018-02-28T11:12:33Z"), resolver.resolve(11, 12, 33, at("2018-02-28T00:00:00Z")));
+		assertEquals(at("1969-12-31T11:12:33Z"), resolver.resolve(11, 12, 33, at("1969-12-31T23:00:00Z")));
+	}
+
+	@Test
+	public void testParserResolver() {
+		final String line = "FLRDDE626>APRS,qAS,EGHL:/235958h5111.32N/00102.04W'086/007/A=000607 id0ADDE626";
+		final UtcTimestampResolver resolver = resolverAt("2017-01-01T00:00:03Z");
+		for (final AprsLineParser.Mode mode : AprsLineParser.Mode.values()) {
+			final AprsLineParser parser = AprsLineParser.create(mode, null, null, null, resolver);
+			assertEquals(resolver, parser.getResolver());
+			assertEquals(at("2016-12-31T23:59:58Z"), parser.parse(line).getTimestamp());
+		}
+
+		final MutableAircraftBeacon beacon = new MutableAircraftBeacon();
+		AprsLineParser.create(AprsLineParser.Mode.SCANNER, null, null, null, resolver).parseInto(line, beacon);
+		assertEquals(at("2016-12-31T23:59:58Z"), beacon.getTimestamp());
+
+		// the parsers created without a resolver keep the system clock
+		assertEquals(UtcTimestampResolver.getDefault(), AprsLineParser.get().getResolver());
+		assertEquals(at("2016-10-05T16:52:02Z"),
+				AprsUtils.toUtcTimestamp(resolverAt("2016-10-05T11:12:33Z"), "165202"));
+	}
+
+	@Test
+	public void testInvalidTime() {
+		final UtcTimestampResolver resolver = new UtcTimestampResolver();
+		for (final int[] time : new int[][] { { 24, 0, 0 }, { 12, 60, 0 }, { 12, 0, 60 }, { -1, 0, 0 } }) {
+			try {
+				resolver.resolve(time[0], time[1], time[2]);
+				fail("invalid time accepted");
+			} catch (final DateTimeException ex) {
+				// expected
+			}
+		}
+	}
+}